@@ -2,9 +2,13 @@ package win.hgfdodo.minio.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import win.hgfdodo.minio.cache.BlockCache;
 import win.hgfdodo.minio.endpoint.converter.MinioResourceRegionHttpMessageConverter;
+import win.hgfdodo.minio.executor.MinioExecutor;
 import win.hgfdodo.minio.service.MinioTemplate;
 
 /**
@@ -13,11 +17,14 @@ import win.hgfdodo.minio.service.MinioTemplate;
  * @email hgfkeep@gmail.com
  */
 @Configuration
+@EnableConfigurationProperties(EndpointProperties.class)
 public class Config {
     private final static Logger log = LoggerFactory.getLogger(Config.class);
 
     @Bean
-    public MinioResourceRegionHttpMessageConverter convertor(MinioTemplate minioTemplate) {
-        return new MinioResourceRegionHttpMessageConverter(minioTemplate);
+    public MinioResourceRegionHttpMessageConverter convertor(MinioTemplate minioTemplate, MinioExecutor minioExecutor, ObjectProvider<BlockCache> blockCache) {
+        MinioResourceRegionHttpMessageConverter convertor = new MinioResourceRegionHttpMessageConverter(minioTemplate, minioExecutor);
+        convertor.setBlockCache(blockCache.getIfAvailable());
+        return convertor;
     }
 }
@@ -0,0 +1,106 @@
+package win.hgfdodo.minio.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MinioEndpoint settings
+ *
+ * @author Guangfu He
+ */
+@ConfigurationProperties("spring.minio.endpoint")
+public class EndpointProperties {
+    private boolean enable = false;
+    /**
+     * path prefix of the endpoint
+     */
+    private String name = "/minio";
+    /**
+     * Cache-Control of object responses, the policy with the longest matching prefix wins, a policy of the bucket wins
+     * over one of all buckets with the same prefix. Objects without a matching policy are sent without Cache-Control.
+     */
+    private List<CachePolicy> cachePolicies = new ArrayList<>();
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<CachePolicy> getCachePolicies() {
+        return cachePolicies;
+    }
+
+    public void setCachePolicies(List<CachePolicy> cachePolicies) {
+        this.cachePolicies = cachePolicies;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointProperties{" +
+                "enable=" + enable +
+                ", name='" + name + '\'' +
+                ", cachePolicies=" + cachePolicies +
+                '}';
+    }
+
+    /**
+     * Cache-Control of the objects of a bucket under a prefix
+     */
+    public static class CachePolicy {
+        /**
+         * null for all buckets
+         */
+        private String bucket;
+        private String prefix = "";
+        /**
+         * Cache-Control header value, e.g. {@code public, max-age=31536000, immutable}
+         */
+        private String cacheControl;
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(String bucket) {
+            this.bucket = bucket;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getCacheControl() {
+            return cacheControl;
+        }
+
+        public void setCacheControl(String cacheControl) {
+            this.cacheControl = cacheControl;
+        }
+
+        @Override
+        public String toString() {
+            return "CachePolicy{" +
+                    "bucket='" + bucket + '\'' +
+                    ", prefix='" + prefix + '\'' +
+                    ", cacheControl='" + cacheControl + '\'' +
+                    '}';
+        }
+    }
+}
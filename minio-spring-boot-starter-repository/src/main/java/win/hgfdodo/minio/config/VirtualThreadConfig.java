@@ -0,0 +1,34 @@
+package win.hgfdodo.minio.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import win.hgfdodo.minio.executor.MinioExecutor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * run tomcat request processing, including MinioEndpoint streaming, on virtual threads when
+ * {@code spring.minio.executor=virtual}.
+ * <p>
+ * Requests get their own uncapped executor rather than the minio executor: a request waits for the span and block
+ * tasks it submits to the minio executor, with both on the same capped executor requests holding every permit would
+ * wait forever. Concurrent calls to minio are bounded by the bulkhead and the adaptive limiter instead.
+ *
+ * @author Guangfu He
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.minio.executor", havingValue = "virtual")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = MinioExecutor.newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+}
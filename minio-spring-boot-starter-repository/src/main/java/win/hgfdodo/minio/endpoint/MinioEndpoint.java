@@ -8,12 +8,12 @@ import io.minio.messages.Item;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.*;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.HandlerMapping;
+import win.hgfdodo.minio.config.EndpointProperties;
 import win.hgfdodo.minio.endpoint.message.MinioResourceRegion;
 import win.hgfdodo.minio.service.MinioTemplate;
 import win.hgfdodo.minio.vo.MinioItem;
@@ -22,9 +22,7 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -39,10 +37,12 @@ public class MinioEndpoint {
     private final Logger log = LoggerFactory.getLogger(MinioEndpoint.class);
 
     private final MinioTemplate template;
+    private final EndpointProperties endpointProperties;
     public final static int MAX_SLICE_DATA = 16 * 1024 * 1024;
 
-    public MinioEndpoint(MinioTemplate template) {
+    public MinioEndpoint(MinioTemplate template, EndpointProperties endpointProperties) {
         this.template = template;
+        this.endpointProperties = endpointProperties;
     }
 
     /**
@@ -114,32 +114,148 @@ public class MinioEndpoint {
         return responseBody;
     }
 
+    /**
+     * get ranges of the object, several ranges are answered with one {@code multipart/byteranges} response whose
+     * ranges are fetched concurrently. Unchanged objects are answered with 304 according to {@code If-None-Match}
+     * and {@code If-Modified-Since}. If {@code If-Range} does not match the current object the ranges are ignored and
+     * the whole object is answered with 200 (RFC 7233 section 3.2).
+     */
     @GetMapping(value = "/object/partial/{bucketName}/**")
-    public ResponseEntity<MinioResourceRegion> getObject(@PathVariable String bucketName, @RequestHeader HttpHeaders headers, HttpServletRequest request) throws IOException, InvalidResponseException, InvalidKeyException, NoSuchAlgorithmException, ServerException, ErrorResponseException, XmlParserException, InvalidBucketNameException, InsufficientDataException, InternalException, InvalidExpiresRangeException {
-        final String path = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE).toString();
-        final String bestMatchPattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE).toString();
-        String objectName = new AntPathMatcher().extractPathWithinPattern(bestMatchPattern, path);
+    public ResponseEntity<List<MinioResourceRegion>> getObject(@PathVariable String bucketName, @RequestHeader HttpHeaders headers, HttpServletRequest request) throws IOException, InvalidResponseException, InvalidKeyException, NoSuchAlgorithmException, ServerException, ErrorResponseException, XmlParserException, InvalidBucketNameException, InsufficientDataException, InternalException {
+        String objectName = objectName(request);
 
+        // served by the stat cache when it is enabled, the content is fetched by range when the regions are written
         ObjectStat stat = template.getObjectInfo(bucketName, objectName);
         log.debug("object stat: {}", stat);
-        String url = template.getObjectURL(bucketName, objectName);
-        UrlResource urlResource = new UrlResource(url);
+        if (isNotModified(headers, stat)) {
+            return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), bucketName, stat).build();
+        }
+        Optional<MediaType> mediaType = MediaTypeFactory.getMediaType(stat.name());
 
-        HttpRange range = null;
-        if (headers.getRange().size() > 0) {
-            range = headers.getRange().get(0);
+        List<MinioResourceRegion> regions = new ArrayList<>();
+        List<HttpRange> ranges = headers.getRange();
+        if (!ranges.isEmpty() && !isRangeValid(headers, stat)) {
+            regions.add(MinioResourceRegion.whole(bucketName, objectName, stat.etag(), stat.length(), mediaType));
+            return validators(ResponseEntity.ok(), bucketName, stat)
+                    .contentType(mediaType.orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .body(regions);
+        }
+        if (ranges.isEmpty()) {
+            regions.add(new MinioResourceRegion(bucketName, objectName, stat.etag(), 0, Math.min(MAX_SLICE_DATA, stat.length()), stat.length(), mediaType));
         }
-        if (range != null) {
+        for (HttpRange range : ranges) {
             long start = range.getRangeStart(stat.length());
             long end = range.getRangeEnd(stat.length());
             long rangeLength = Math.min(MAX_SLICE_DATA, end - start + 1);
-            MinioResourceRegion region = new MinioResourceRegion(urlResource, start, rangeLength, stat.length(), MediaTypeFactory.getMediaType(stat.name()));
-            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).contentType(region.getMediaType().get()).body(region);
-        } else {
-            long rangeLength = Math.min(MAX_SLICE_DATA, stat.length());
-            MinioResourceRegion region = new MinioResourceRegion(urlResource, 0, rangeLength, stat.length(), MediaTypeFactory.getMediaType(stat.name()));
-            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).contentType(region.getMediaType().get()).body(region);
+            regions.add(new MinioResourceRegion(bucketName, objectName, stat.etag(), start, rangeLength, stat.length(), mediaType));
+        }
+        return validators(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), bucketName, stat)
+                .contentType(mediaType.orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(regions);
+    }
+
+    /**
+     * headers of the object from its stat, without reading the content
+     */
+    @RequestMapping(value = "/object/partial/{bucketName}/**", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> headObject(@PathVariable String bucketName, @RequestHeader HttpHeaders headers, HttpServletRequest request) throws IOException, InvalidResponseException, InvalidKeyException, NoSuchAlgorithmException, ServerException, ErrorResponseException, XmlParserException, InvalidBucketNameException, InsufficientDataException, InternalException {
+        ObjectStat stat = template.getObjectInfo(bucketName, objectName(request));
+        if (isNotModified(headers, stat)) {
+            return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), bucketName, stat).build();
+        }
+        return validators(ResponseEntity.ok(), bucketName, stat)
+                .contentType(MediaTypeFactory.getMediaType(stat.name()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .contentLength(stat.length())
+                .build();
+    }
+
+    private static String objectName(HttpServletRequest request) {
+        final String path = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE).toString();
+        final String bestMatchPattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE).toString();
+        return new AntPathMatcher().extractPathWithinPattern(bestMatchPattern, path);
+    }
+
+    /**
+     * ETag, Last-Modified, Accept-Ranges and the Cache-Control policy of the object
+     */
+    private ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder builder, String bucketName, ObjectStat stat) {
+        builder.eTag(etag(stat))
+                .lastModified(stat.createdTime())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String cacheControl = cacheControl(bucketName, stat.name());
+        if (cacheControl != null) {
+            builder.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return builder;
+    }
+
+    /**
+     * @return Cache-Control of the policy with the longest matching prefix, null if no policy matches
+     */
+    private String cacheControl(String bucketName, String objectName) {
+        EndpointProperties.CachePolicy match = null;
+        int matchLength = -1;
+        for (EndpointProperties.CachePolicy policy : endpointProperties.getCachePolicies()) {
+            String prefix = policy.getPrefix() == null ? "" : policy.getPrefix();
+            if ((policy.getBucket() != null && !policy.getBucket().equals(bucketName)) || !objectName.startsWith(prefix)) {
+                continue;
+            }
+            if (prefix.length() > matchLength || (prefix.length() == matchLength && match.getBucket() == null && policy.getBucket() != null)) {
+                match = policy;
+                matchLength = prefix.length();
+            }
         }
+        return match == null ? null : match.getCacheControl();
+    }
+
+    /**
+     * {@code If-None-Match} takes precedence over {@code If-Modified-Since}, tags are compared weakly
+     */
+    private static boolean isNotModified(HttpHeaders headers, ObjectStat stat) {
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = weak(etag(stat));
+            for (String tag : ifNoneMatch) {
+                if ("*".equals(tag) || weak(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = headers.getIfModifiedSince();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return ifModifiedSince != -1 && stat.createdTime().toEpochSecond() * 1000 <= ifModifiedSince;
+    }
+
+    /**
+     * {@code If-Range} holds if its tag equals the strong etag or its date equals Last-Modified
+     */
+    private static boolean isRangeValid(HttpHeaders headers, ObjectStat stat) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag(stat));
+        }
+        try {
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) == stat.createdTime().toEpochSecond() * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String etag(ObjectStat stat) {
+        String etag = stat.etag();
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
     }
 
     @DeleteMapping("/object/{bucketName}/{objectName}/")
@@ -1,8 +1,8 @@
 package win.hgfdodo.minio.endpoint.converter;
 
+import io.minio.errors.MinioException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
@@ -12,32 +12,81 @@ import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.util.Assert;
 import org.springframework.util.MimeTypeUtils;
-import org.springframework.util.StreamUtils;
+import win.hgfdodo.minio.cache.BlockCache;
 import win.hgfdodo.minio.endpoint.message.MinioResourceRegion;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
 import win.hgfdodo.minio.service.MinioTemplate;
 
 import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.util.Collection;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * write {@link MinioResourceRegion}s, only the bytes of each region are fetched from minio with a ranged get
+ * and copied with pooled buffers, the ranges of a multipart response are merged and fetched concurrently
+ *
  * @author Guangfu He
  * @date 2020/12/23 10:06
  * @email hgfkeep@gmail.com
  */
 public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
     private final static Logger log = LoggerFactory.getLogger(MinioResourceRegionHttpMessageConverter.class);
+    public final static int BUFFER_SIZE = 256 * 1024;
+    private final static int MAX_POOLED_BUFFERS = 64;
+    /**
+     * ranges closer than this are fetched with one get, a few unused bytes are cheaper than another round trip
+     */
+    public final static int MERGE_GAP = 8 * 1024;
+    /**
+     * max size of a span buffered for a multipart response, larger spans are streamed
+     */
+    public final static int MAX_BUFFERED_SPAN = 1024 * 1024;
+    public final static int DEFAULT_WINDOW = 8;
 
     private final MinioTemplate minioTemplate;
+    private final Executor executor;
+    private final int window;
+    private BlockCache blockCache;
+    private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
 
+    /**
+     * ranges of multipart responses are fetched one after another in the request thread
+     */
     public MinioResourceRegionHttpMessageConverter(MinioTemplate minioTemplate) {
+        this(minioTemplate, Runnable::run, 1);
+    }
+
+    public MinioResourceRegionHttpMessageConverter(MinioTemplate minioTemplate, Executor executor) {
+        this(minioTemplate, executor, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param executor fetches the ranges of multipart responses concurrently
+     * @param window   max spans fetched ahead of the part being written
+     */
+    public MinioResourceRegionHttpMessageConverter(MinioTemplate minioTemplate, Executor executor, int window) {
         super(MediaType.ALL);
         this.minioTemplate = minioTemplate;
+        this.executor = executor;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * read regions with a known etag through the block cache instead of fetching them from minio
+     */
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
     }
 
     /**
@@ -112,6 +161,11 @@ public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttp
     protected void writeMinioResourceRegion(MinioResourceRegion region, HttpOutputMessage httpOutputMessage) throws IOException, HttpMessageNotWritableException {
         Assert.notNull(region, "ResourceRegion must not be null");
         HttpHeaders responseHeaders = httpOutputMessage.getHeaders();
+        if (region.isWhole()) {
+            responseHeaders.setContentLength(region.getContentLength());
+            writeRange(region, 0, region.getContentLength(), httpOutputMessage.getBody());
+            return;
+        }
 
         long start = region.getPosition();
         long end = start + region.getCount() - 1;
@@ -121,18 +175,19 @@ public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttp
         responseHeaders.add("Content-Range", "bytes " + start + '-' + end + '/' + resourceLength);
         responseHeaders.setContentLength(rangeLength);
 
-        InputStream in = region.getResource().getInputStream();
-        try {
-            StreamUtils.copyRange(in, httpOutputMessage.getBody(), start, end);
-        } finally {
-            try {
-                in.close();
-            } catch (IOException ex) {
-                log.error("close input stream error!", ex);
-            }
-        }
+        writeRange(region, start, rangeLength, httpOutputMessage.getBody());
     }
 
+    /**
+     * write a {@code multipart/byteranges} response.
+     * <p>
+     * The requested ranges are sorted and ranges overlapping or closer than {@link #MERGE_GAP} are merged into one
+     * span, every distinct span is fetched with its own ranged get on the executor. Parts are written in request
+     * order, at most {@code window} spans are fetched ahead and buffered, a span is released after its last part is
+     * written. Spans larger than {@link #MAX_BUFFERED_SPAN} are not buffered but streamed when their part is written.
+     * A span still queued on the executor when its part is written is fetched in the request thread instead of waited
+     * for, so a saturated executor only costs concurrency.
+     */
     private void writeResourceRegionCollection(Collection<MinioResourceRegion> resourceRegions,
                                                HttpOutputMessage outputMessage) throws IOException {
 
@@ -144,23 +199,26 @@ public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttp
         responseHeaders.set(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundaryString);
         OutputStream out = outputMessage.getBody();
 
-        Resource resource = null;
-        InputStream in = null;
-        long inputStreamPosition = 0;
-
+        List<MinioResourceRegion> regions = new ArrayList<>(resourceRegions);
+        Span[] parts = new Span[regions.size()];
+        List<Span> spans = plan(regions, parts);
+        int scheduled = 0;
+        int buffered = 0;
         try {
-            for (MinioResourceRegion region : resourceRegions) {
-                long start = region.getPosition() - inputStreamPosition;
-                if (start < 0 || resource != region.getResource()) {
-                    if (in != null) {
-                        in.close();
-                    }
-                    resource = region.getResource();
-                    in = resource.getInputStream();
-                    inputStreamPosition = 0;
-                    start = region.getPosition();
+            for (int i = 0; i < regions.size(); i++) {
+                Span span = parts[i];
+                // the span of this part may lie behind the window if earlier spans are still needed by later parts
+                while (span.buffered && span.future == null) {
+                    buffered += schedule(spans.get(scheduled++));
                 }
-                long end = start + region.getCount() - 1;
+                while (scheduled < spans.size() && buffered < window) {
+                    buffered += schedule(spans.get(scheduled++));
+                }
+
+                MinioResourceRegion region = regions.get(i);
+                long start = region.getPosition();
+                long resourceLength = region.getContentLength();
+                long end = Math.min(start + region.getCount(), resourceLength) - 1;
                 // Writing MIME header.
                 println(out);
                 print(out, "--" + boundaryString);
@@ -169,24 +227,28 @@ public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttp
                     print(out, "Content-Type: " + contentType);
                     println(out);
                 }
-                long resourceLength = region.getContentLength();
-                end = Math.min(end, resourceLength - inputStreamPosition - 1);
-                print(out, "Content-Range: bytes " +
-                        region.getPosition() + '-' + (region.getPosition() + region.getCount() - 1) +
-                        '/' + resourceLength);
+                print(out, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
                 println(out);
                 println(out);
                 // Printing content
-                StreamUtils.copyRange(in, out, start, end);
-                inputStreamPosition += (end + 1);
+                if (span.buffered) {
+                    byte[] data = await(span);
+                    if (end >= start) {
+                        out.write(data, (int) (start - span.start), (int) (end - start + 1));
+                    }
+                    if (span.lastPart == i) {
+                        span.future = null;
+                        buffered--;
+                    }
+                } else {
+                    writeRange(region, start, end - start + 1, out);
+                }
             }
         } finally {
-            try {
-                if (in != null) {
-                    in.close();
+            for (Span span : spans) {
+                if (span.future != null) {
+                    span.future.cancel(false);
                 }
-            } catch (IOException ex) {
-                // ignore
             }
         }
 
@@ -194,6 +256,208 @@ public class MinioResourceRegionHttpMessageConverter extends AbstractGenericHttp
         print(out, "--" + boundaryString + "--");
     }
 
+    /**
+     * merge the ranges of the regions into spans
+     *
+     * @param parts receives the span of every region
+     * @return spans in the order they are first needed by the regions
+     */
+    static List<Span> plan(List<MinioResourceRegion> regions, Span[] parts) {
+        Integer[] sorted = new Integer[regions.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.<Integer, String>comparing(i -> regions.get(i).getBucketName())
+                .thenComparing(i -> regions.get(i).getObjectName())
+                .thenComparingLong(i -> regions.get(i).getPosition()));
+        Span current = null;
+        for (int i : sorted) {
+            MinioResourceRegion region = regions.get(i);
+            long start = region.getPosition();
+            long end = Math.max(start, Math.min(start + region.getCount(), region.getContentLength()));
+            if (current != null && current.buffered
+                    && current.bucketName.equals(region.getBucketName()) && current.objectName.equals(region.getObjectName())
+                    && start <= current.end + MERGE_GAP && Math.max(end, current.end) - current.start <= MAX_BUFFERED_SPAN) {
+                current.end = Math.max(end, current.end);
+            } else {
+                current = new Span(region, start, end);
+            }
+            parts[i] = current;
+        }
+
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < parts.length; i++) {
+            Span span = parts[i];
+            if (span.lastPart < 0) {
+                spans.add(span);
+            }
+            span.lastPart = i;
+        }
+        return spans;
+    }
+
+    /**
+     * start fetching the span if it is buffered
+     *
+     * @return 1 if the span is buffered, 0 if it is streamed later
+     */
+    private int schedule(Span span) {
+        if (!span.buffered) {
+            return 0;
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        span.future = future;
+        try {
+            executor.execute(() -> run(span, future));
+        } catch (RejectedExecutionException e) {
+            // the executor is saturated, the request thread fetches the span when its part is written
+        }
+        return 1;
+    }
+
+    /**
+     * fetch the span unless another thread has started it or it was cancelled
+     */
+    private void run(Span span, CompletableFuture<byte[]> future) {
+        if (future.isDone() || !span.started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            future.complete(fetch(span));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private byte[] fetch(Span span) throws IOException {
+        byte[] data = new byte[(int) (span.end - span.start)];
+        if (data.length == 0) {
+            return data;
+        }
+        try (InputStream in = openRange(span.bucketName, span.objectName, span.etag, span.contentLength, span.start, data.length)) {
+            int length = 0;
+            while (length < data.length) {
+                int n = in.read(data, length, data.length - length);
+                if (n < 0) {
+                    throw new EOFException("object " + span.objectName + " ended " + (data.length - length) + " bytes before the end of the range");
+                }
+                length += n;
+            }
+        }
+        return data;
+    }
+
+    private byte[] await(Span span) throws IOException {
+        run(span, span.future);
+        try {
+            return span.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for range");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("fetch range of " + span.bucketName + "/" + span.objectName + " failed", cause);
+        }
+    }
+
+    /**
+     * fetch exactly the range from minio and copy it to the response
+     */
+    private void writeRange(MinioResourceRegion region, long offset, long length, OutputStream out) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        InputStream in = openRange(region.getBucketName(), region.getObjectName(), region.getEtag(), region.getContentLength(), offset, length);
+        byte[] buffer = acquireBuffer();
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("object " + region.getObjectName() + " ended " + remaining + " bytes before the end of the range");
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            releaseBuffer(buffer);
+            try {
+                in.close();
+            } catch (IOException ex) {
+                log.error("close input stream error!", ex);
+            }
+        }
+    }
+
+    /**
+     * open a range of the object, only while it still has the etag the response headers were written for
+     */
+    private InputStream openRange(String bucketName, String objectName, String etag, long contentLength, long offset, long length) throws IOException {
+        try {
+            if (etag == null) {
+                return minioTemplate.getObjectByPart(bucketName, objectName, length, offset);
+            }
+            if (blockCache != null) {
+                return blockCache.getRange(bucketName, objectName, etag, contentLength, offset, length);
+            }
+            return minioTemplate.getObjectByPart(bucketName, objectName, etag, length, offset);
+        } catch (ObjectModifiedException e) {
+            // the cached stat was dropped with the 412, the next request is planned on the new object
+            throw new HttpMessageNotWritableException("object " + bucketName + "/" + objectName
+                    + " was overwritten after its headers were written", e);
+        } catch (MinioException | InvalidKeyException | NoSuchAlgorithmException e) {
+            throw new HttpMessageNotWritableException("failed to get " + bucketName + "/" + objectName
+                    + " bytes " + offset + "-" + (offset + length - 1), e);
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer == null ? new byte[BUFFER_SIZE] : buffer;
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    /**
+     * merged range of one object, fetched with one get
+     */
+    static class Span {
+        final String bucketName;
+        final String objectName;
+        final String etag;
+        final long contentLength;
+        final long start;
+        final boolean buffered;
+        /**
+         * exclusive end
+         */
+        long end;
+        /**
+         * index of the last region written from the span
+         */
+        int lastPart = -1;
+        private CompletableFuture<byte[]> future;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Span(MinioResourceRegion region, long start, long end) {
+            this.bucketName = region.getBucketName();
+            this.objectName = region.getObjectName();
+            this.etag = region.getEtag();
+            this.contentLength = region.getContentLength();
+            this.start = start;
+            this.end = end;
+            this.buffered = end - start <= MAX_BUFFERED_SPAN;
+        }
+    }
+
     private static void println(OutputStream os) throws IOException {
         os.write('\r');
         os.write('\n');
@@ -1,6 +1,5 @@
 package win.hgfdodo.minio.endpoint.message;
 
-import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.MediaTypeFactory;
 import org.springframework.util.Assert;
@@ -14,7 +13,11 @@ import java.util.Optional;
  */
 public class MinioResourceRegion {
 
-    private final Resource resource;
+    private final String bucketName;
+
+    private final String objectName;
+
+    private final String etag;
 
     private final long position;
 
@@ -24,65 +27,105 @@ public class MinioResourceRegion {
 
     private Optional<MediaType> mediaType;
 
+    private final boolean whole;
+
 
     /**
-     * Create a new {@code ResourceRegion} from a given {@link Resource}.
-     * This region of a resource is represented by a start {@code position}
-     * and a byte {@code count} within the given {@code Resource}.
+     * Create a new {@code MinioResourceRegion} of a minio object.
+     * This region of an object is represented by a start {@code position}
+     * and a byte {@code count} within the object, only this range is fetched from minio when it is written.
      *
-     * @param resource      a Resource
-     * @param position      the start position of the region in that resource
-     * @param count         the byte count of the region in that resource
-     * @param contentLength
+     * @param bucketName    bucket of the object
+     * @param objectName    object name
+     * @param etag          etag of the object version, null if unknown
+     * @param position      the start position of the region in that object
+     * @param count         the byte count of the region in that object
+     * @param contentLength object size
      */
-    public MinioResourceRegion(Resource resource, long position, long count, long contentLength, Optional<MediaType> mediaType) {
-        Assert.notNull(resource, "Resource must not be null");
+    public MinioResourceRegion(String bucketName, String objectName, String etag, long position, long count, long contentLength, Optional<MediaType> mediaType) {
+        this(bucketName, objectName, etag, position, count, contentLength, mediaType, false);
+    }
+
+    private MinioResourceRegion(String bucketName, String objectName, String etag, long position, long count, long contentLength, Optional<MediaType> mediaType, boolean whole) {
+        Assert.notNull(bucketName, "Bucket name must not be null");
+        Assert.notNull(objectName, "Object name must not be null");
         Assert.isTrue(position >= 0, "'position' must be larger than or equal to 0");
         Assert.isTrue(count >= 0, "'count' must be larger than or equal to 0");
         Assert.isTrue(contentLength >= 0, "'contentLength' must be larger than or equal to 0");
-        this.resource = resource;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.etag = etag;
         this.position = position;
         this.count = count;
         this.contentLength = contentLength;
         this.mediaType = mediaType;
+        this.whole = whole;
         if (!this.mediaType.isPresent()) {
-            this.mediaType = MediaTypeFactory.getMediaType(this.resource);
+            this.mediaType = MediaTypeFactory.getMediaType(this.objectName);
         }
     }
 
 
     /**
-     * Return the underlying {@link Resource} for this {@code ResourceRegion}.
+     * Return the bucket of the object.
      */
-    public Resource getResource() {
-        return this.resource;
+    public String getBucketName() {
+        return this.bucketName;
     }
 
     /**
-     * Return the start position of this region in the underlying {@link Resource}.
+     * Return the name of the object.
+     */
+    public String getObjectName() {
+        return this.objectName;
+    }
+
+    /**
+     * Return the etag of the object version, null if unknown.
+     */
+    public String getEtag() {
+        return this.etag;
+    }
+
+    /**
+     * Return the start position of this region in the object.
      */
     public long getPosition() {
         return this.position;
     }
 
     /**
-     * Return the byte count of this region in the underlying {@link Resource}.
+     * Return the byte count of this region in the object.
      */
     public long getCount() {
         return this.count;
     }
 
     /**
-     * Return the content length in the underlying {@link Resource}.
+     * Return the content length in the object.
      */
     public long getContentLength() {
         return contentLength;
     }
 
     /**
-     * Return the mediaType in the underlying {@link Resource}.
+     * Return the mediaType in the object.
      */
     public Optional<MediaType> getMediaType() {
         return mediaType;
     }
+
+    /**
+     * Create the region of the whole object, written as the full representation without {@code Content-Range}.
+     */
+    public static MinioResourceRegion whole(String bucketName, String objectName, String etag, long contentLength, Optional<MediaType> mediaType) {
+        return new MinioResourceRegion(bucketName, objectName, etag, 0, contentLength, contentLength, mediaType, true);
+    }
+
+    /**
+     * Return whether this region is the full representation of the object rather than a range of it.
+     */
+    public boolean isWhole() {
+        return whole;
+    }
 }
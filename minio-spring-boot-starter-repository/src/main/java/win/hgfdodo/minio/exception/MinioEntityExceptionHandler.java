@@ -82,6 +82,13 @@ public class MinioEntityExceptionHandler extends ResponseEntityExceptionHandler{
                 new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
 
+    @ExceptionHandler(value = {MinioCallNotPermittedException.class})
+    protected ResponseEntity<Object> handleCallNotPermittedError(RuntimeException ex, WebRequest request) {
+        MinioError error = new MinioError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return handleExceptionInternal(ex, error,
+                new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
 //    @ExceptionHandler(value = {Exception.class})
 //    protected ResponseEntity<Object> handleError(RuntimeException ex, WebRequest request) {
 //        MinioError error = new MinioError(HttpStatus.BAD_REQUEST, "An unexpected internal error occured while processing the request");
@@ -0,0 +1,147 @@
+package win.hgfdodo.minio.endpoint;
+
+import io.minio.ObjectStat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import win.hgfdodo.minio.config.EndpointProperties;
+import win.hgfdodo.minio.endpoint.converter.MinioResourceRegionHttpMessageConverter;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MinioEndpointTest {
+    private final static String LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+
+    private final byte[] content = new byte[1000];
+    private final EndpointProperties properties = new EndpointProperties();
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        new Random(7).nextBytes(content);
+        ZonedDateTime modified = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        MinioTemplate template = new MinioTemplate(null) {
+            @Override
+            public ObjectStat getObjectInfo(String bucketName, String objectName) {
+                return new ObjectStat(bucketName, objectName, modified, content.length, "abc", "application/octet-stream");
+            }
+
+            @Override
+            public InputStream getObjectByPart(String bucketName, String objectName, String etag, long length, long offset) throws ObjectModifiedException {
+                if (!"abc".equals(etag)) {
+                    throw new ObjectModifiedException(bucketName, objectName, etag);
+                }
+                return new ByteArrayInputStream(content, (int) offset, (int) length);
+            }
+        };
+        mvc = MockMvcBuilders.standaloneSetup(new MinioEndpoint(template, properties))
+                .setMessageConverters(new MinioResourceRegionHttpMessageConverter(template))
+                .build();
+    }
+
+    private static EndpointProperties.CachePolicy policy(String bucket, String prefix, String cacheControl) {
+        EndpointProperties.CachePolicy policy = new EndpointProperties.CachePolicy();
+        policy.setBucket(bucket);
+        policy.setPrefix(prefix);
+        policy.setCacheControl(cacheControl);
+        return policy;
+    }
+
+    @Test
+    void answersRange() throws Exception {
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/1000"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 10, 20)));
+    }
+
+    @Test
+    void answersNotModified() throws Exception {
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.IF_NONE_MATCH, "W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(content().bytes(new byte[0]));
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED))
+                .andExpect(status().isNotModified());
+        // If-None-Match takes precedence over If-Modified-Since
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.IF_NONE_MATCH, "\"other\"")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED).header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void answersRangeWhenIfRangeMatches() throws Exception {
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, "\"abc\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 10, 20)));
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, LAST_MODIFIED))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void answersWholeObjectWhenIfRangeDoesNotMatch() throws Exception {
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.RANGE, "bytes=10-19,50-59").header(HttpHeaders.IF_RANGE, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, content.length))
+                .andExpect(content().bytes(content));
+        mvc.perform(get("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, "Tue, 02 Jan 2024 00:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void answersHeadFromStat() throws Exception {
+        mvc.perform(head("/minio/object/partial/bucket/dir/a.bin"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, content.length))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED))
+                .andExpect(content().bytes(new byte[0]));
+        mvc.perform(head("/minio/object/partial/bucket/dir/a.bin").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void resolvesCacheControlByLongestPrefix() throws Exception {
+        properties.getCachePolicies().add(policy(null, "", "no-cache"));
+        properties.getCachePolicies().add(policy(null, "dir/", "max-age=60"));
+        properties.getCachePolicies().add(policy("bucket", "dir/static/", "max-age=3600"));
+        mvc.perform(head("/minio/object/partial/bucket/dir/static/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600"));
+        mvc.perform(head("/minio/object/partial/bucket/dir/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+        mvc.perform(head("/minio/object/partial/other/dir/static/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+        mvc.perform(head("/minio/object/partial/other/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void prefersBucketPolicyOverAllBucketsPolicyWithSamePrefix() throws Exception {
+        properties.getCachePolicies().add(policy("bucket", "dir/", "private"));
+        properties.getCachePolicies().add(policy(null, "dir/", "public"));
+        mvc.perform(head("/minio/object/partial/bucket/dir/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private"));
+        mvc.perform(head("/minio/object/partial/other/dir/a.js"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public"));
+        mvc.perform(head("/minio/object/partial/other/a.js"))
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+}
@@ -0,0 +1,139 @@
+package win.hgfdodo.minio.endpoint.converter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import win.hgfdodo.minio.endpoint.converter.MinioResourceRegionHttpMessageConverter.Span;
+import win.hgfdodo.minio.endpoint.message.MinioResourceRegion;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.endpoint.converter.MinioResourceRegionHttpMessageConverter.MAX_BUFFERED_SPAN;
+import static win.hgfdodo.minio.endpoint.converter.MinioResourceRegionHttpMessageConverter.MERGE_GAP;
+
+class MinioResourceRegionHttpMessageConverterTest {
+    private final static long LENGTH = 4L * MAX_BUFFERED_SPAN;
+
+    private static MinioResourceRegion region(String objectName, long position, long count) {
+        return new MinioResourceRegion("bucket", objectName, "abc", position, count, LENGTH, Optional.of(MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    private static Span[] plan(MinioResourceRegion... regions) {
+        Span[] parts = new Span[regions.length];
+        MinioResourceRegionHttpMessageConverter.plan(Arrays.asList(regions), parts);
+        return parts;
+    }
+
+    @Test
+    void mergesRangesCloserThanGap() {
+        Span[] parts = plan(region("a", 0, 100), region("a", 100 + MERGE_GAP, 100), region("a", 300 + 2 * MERGE_GAP, 100));
+        assertSame(parts[0], parts[1]);
+        assertNotSame(parts[1], parts[2]);
+        assertEquals(0, parts[0].start);
+        assertEquals(200 + MERGE_GAP, parts[0].end);
+        assertEquals(300 + 2 * MERGE_GAP, parts[2].start);
+    }
+
+    @Test
+    void doesNotMergeRangesOfDifferentObjects() {
+        Span[] parts = plan(region("a", 0, 100), region("b", 50, 100));
+        assertNotSame(parts[0], parts[1]);
+        assertEquals("b", parts[1].objectName);
+    }
+
+    @Test
+    void capsBufferedSpans() {
+        int half = MAX_BUFFERED_SPAN / 2 + 1;
+        Span[] parts = plan(region("a", 0, half), region("a", half, half), region("a", 2 * half, MAX_BUFFERED_SPAN + 1), region("a", 2 * half, 100));
+        assertNotSame(parts[0], parts[1]);
+        assertTrue(parts[0].buffered);
+        assertTrue(parts[1].buffered);
+        // a range too large to buffer is streamed on its own, a range inside it is not merged into it
+        assertFalse(parts[2].buffered);
+        assertNotSame(parts[2], parts[3]);
+        assertTrue(parts[3].buffered);
+    }
+
+    @Test
+    void mergesOverlappingUnsortedRanges() {
+        Span[] parts = new Span[3];
+        List<Span> spans = MinioResourceRegionHttpMessageConverter.plan(Arrays.asList(
+                region("a", 100_000, 1000), region("a", 0, 100), region("a", 100_500, 2000)), parts);
+        assertSame(parts[0], parts[2]);
+        assertEquals(100_000, parts[0].start);
+        assertEquals(102_500, parts[0].end);
+        assertEquals(2, parts[0].lastPart);
+        assertEquals(1, parts[1].lastPart);
+        // in the order the parts need them
+        assertEquals(Arrays.asList(parts[0], parts[1]), spans);
+    }
+
+    @Test
+    void writesPartsInRequestedOrder() throws Exception {
+        byte[] content = new byte[(int) LENGTH];
+        new Random(7).nextBytes(content);
+        AtomicInteger gets = new AtomicInteger();
+        MinioTemplate template = new MinioTemplate(null) {
+            @Override
+            public InputStream getObjectByPart(String bucketName, String objectName, String etag, long length, long offset) {
+                assertEquals("abc", etag);
+                gets.incrementAndGet();
+                return new ByteArrayInputStream(content, (int) offset, (int) length);
+            }
+        };
+        // fetches queued on the executor never start, the request thread must fetch them itself
+        List<Runnable> queued = new ArrayList<>();
+        Executor executor = queued::add;
+        MinioResourceRegionHttpMessageConverter converter = new MinioResourceRegionHttpMessageConverter(template, executor, 2);
+
+        List<MinioResourceRegion> regions = Arrays.asList(region("a", 200_000, 1000), region("a", 0, 100),
+                region("a", 200_500, 2000), region("a", MAX_BUFFERED_SPAN, MAX_BUFFERED_SPAN + 1), region("a", 50, 10));
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(regions, null, MediaType.APPLICATION_OCTET_STREAM, message);
+
+        String contentType = message.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+        StringBuilder expected = new StringBuilder();
+        for (MinioResourceRegion region : regions) {
+            int start = (int) region.getPosition();
+            int end = (int) (region.getPosition() + region.getCount() - 1);
+            expected.append("\r\n--").append(boundary).append("\r\n")
+                    .append("Content-Type: application/octet-stream\r\n")
+                    .append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(LENGTH).append("\r\n\r\n")
+                    .append(new String(content, start, end - start + 1, StandardCharsets.ISO_8859_1));
+        }
+        expected.append("\r\n--").append(boundary).append("--");
+        assertEquals(expected.toString(), message.getBodyAsString(StandardCharsets.ISO_8859_1));
+        // 200000-202500, 0-100 and the streamed range
+        assertEquals(3, gets.get());
+
+        // queued fetches of spans already written are skipped
+        queued.forEach(Runnable::run);
+        assertEquals(3, gets.get());
+    }
+
+    @Test
+    void failsWhenObjectWasOverwritten() {
+        MinioTemplate template = new MinioTemplate(null) {
+            @Override
+            public InputStream getObjectByPart(String bucketName, String objectName, String etag, long length, long offset) throws ObjectModifiedException {
+                throw new ObjectModifiedException(bucketName, objectName, etag);
+            }
+        };
+        MinioResourceRegionHttpMessageConverter converter = new MinioResourceRegionHttpMessageConverter(template);
+        List<MinioResourceRegion> regions = Arrays.asList(region("a", 0, 100), region("a", 1000, 100));
+        HttpMessageNotWritableException e = assertThrows(HttpMessageNotWritableException.class,
+                () -> converter.write(regions, null, MediaType.APPLICATION_OCTET_STREAM, new MockHttpOutputMessage()));
+        assertTrue(e.getCause() instanceof ObjectModifiedException);
+    }
+}
@@ -0,0 +1,187 @@
+package win.hgfdodo.minio.actuate;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import win.hgfdodo.minio.cache.BlockCache;
+import win.hgfdodo.minio.cache.CacheStatistics;
+import win.hgfdodo.minio.cache.DiskObjectCache;
+import win.hgfdodo.minio.cache.MemoryObjectCache;
+import win.hgfdodo.minio.cache.StatCache;
+import win.hgfdodo.minio.connection.MinioCallInterceptor;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.connection.MinioNode;
+import win.hgfdodo.minio.connection.MinioNodeGuard;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.resilience.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/minio}: nodes, open circuits, circuit breakers, bulkheads, concurrency limits, retry and hedge counters of every minio client,
+ * and hit ratio of the local caches under {@code caches}
+ *
+ * @author Guangfu He
+ */
+@Endpoint(id = "minio")
+public class MinioActuatorEndpoint {
+    private final Map<String, MinioConnectionFactory> factories;
+    private final Map<String, CacheStatistics> caches;
+
+    /**
+     * @param factories connection factories keyed by bean name
+     */
+    public MinioActuatorEndpoint(Map<String, MinioConnectionFactory> factories) {
+        this(factories, Collections.emptyMap());
+    }
+
+    /**
+     * @param factories connection factories keyed by bean name
+     * @param caches    caches keyed by bean name
+     */
+    public MinioActuatorEndpoint(Map<String, MinioConnectionFactory> factories, Map<String, CacheStatistics> caches) {
+        this.factories = factories;
+        this.caches = caches;
+    }
+
+    @ReadOperation
+    public Map<String, Object> minio() {
+        Map<String, Object> clients = new LinkedHashMap<>();
+        for (Map.Entry<String, MinioConnectionFactory> entry : factories.entrySet()) {
+            clients.put(entry.getKey(), describe(entry.getValue()));
+        }
+        if (!caches.isEmpty()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            for (Map.Entry<String, CacheStatistics> entry : caches.entrySet()) {
+                info.put(entry.getKey(), describe(entry.getValue()));
+            }
+            clients.put("caches", info);
+        }
+        return clients;
+    }
+
+    private Map<String, Object> describe(MinioConnectionFactory factory) {
+        Map<String, Object> client = new LinkedHashMap<>();
+        client.put("initialized", factory.isInitialized());
+        if (!factory.isInitialized()) {
+            // do not build a lazy factory just to describe it
+            return client;
+        }
+        client.put("initializationMillis", factory.getInitializationMillis());
+        client.put("timeToFirstSuccessMillis", factory.getTimeToFirstSuccessMillis());
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (MinioNode node : factory.getNodes()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("endpoint", node.getEndpoint());
+            info.put("outstanding", node.getOutstanding());
+            info.put("requests", node.getRequestCount());
+            info.put("failures", node.getFailureCount());
+            info.put("averageLatencyMillis", node.getAverageLatencyMillis());
+            info.put("ejected", node.isEjected());
+            nodes.add(info);
+        }
+        client.put("nodes", nodes);
+
+        for (MinioNodeGuard guard : factory.getNodeGuards()) {
+            if (guard instanceof CircuitBreakerRegistry) {
+                List<String> openCircuits = new ArrayList<>();
+                Map<String, Object> breakers = new LinkedHashMap<>();
+                for (CircuitBreaker breaker : ((CircuitBreakerRegistry) guard).getCircuitBreakers()) {
+                    Map<String, Object> info = new LinkedHashMap<>();
+                    info.put("state", breaker.getState());
+                    info.put("failureRate", breaker.getFailureRate());
+                    info.put("openCount", breaker.getOpenCount());
+                    info.put("rejected", breaker.getRejectedCount());
+                    breakers.put(breaker.getName(), info);
+                    if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+                        openCircuits.add(breaker.getName());
+                    }
+                }
+                client.put("openCircuits", openCircuits);
+                client.put("circuitBreakers", breakers);
+            }
+        }
+
+        for (MinioCallInterceptor interceptor : factory.getInterceptors()) {
+            if (interceptor instanceof BulkheadInterceptor) {
+                BulkheadInterceptor bulkhead = (BulkheadInterceptor) interceptor;
+                Map<String, Object> info = new LinkedHashMap<>();
+                for (MinioOperation.Type type : MinioOperation.Type.values()) {
+                    if (bulkhead.getLimit(type) > 0) {
+                        Map<String, Object> slots = new LinkedHashMap<>();
+                        slots.put("limit", bulkhead.getLimit(type));
+                        slots.put("available", bulkhead.getAvailable(type));
+                        info.put(type.name().toLowerCase(), slots);
+                    }
+                }
+                info.put("rejected", bulkhead.getRejectedCount());
+                client.put("bulkhead", info);
+            } else if (interceptor instanceof AdaptiveLimitInterceptor) {
+                AdaptiveLimitInterceptor limiter = (AdaptiveLimitInterceptor) interceptor;
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("read", describe(limiter.getReadLimiter()));
+                info.put("write", describe(limiter.getWriteLimiter()));
+                client.put("limiter", info);
+            } else if (interceptor instanceof RetryInterceptor) {
+                RetryInterceptor retry = (RetryInterceptor) interceptor;
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("retries", retry.getRetryCount());
+                info.put("budgetExhausted", retry.getBudgetExhaustedCount());
+                info.put("budgetAvailable", retry.getBudget().getAvailable());
+                client.put("retry", info);
+            } else if (interceptor instanceof HedgingInterceptor) {
+                HedgingInterceptor hedging = (HedgingInterceptor) interceptor;
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("requests", hedging.getRequestCount());
+                info.put("hedges", hedging.getHedgeCount());
+                info.put("hedgeWins", hedging.getHedgeWinCount());
+                info.put("hedgeRate", hedging.getHedgeRate());
+                info.put("delayMillis", hedging.getDelayMillis());
+                client.put("hedge", info);
+            }
+        }
+        return client;
+    }
+
+    private Map<String, Object> describe(CacheStatistics cache) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("size", cache.getSize());
+        info.put("hits", cache.getHitCount());
+        info.put("misses", cache.getMissCount());
+        info.put("hitRatio", cache.getHitRatio());
+        info.put("evictions", cache.getEvictionCount());
+        if (cache instanceof DiskObjectCache) {
+            DiskObjectCache disk = (DiskObjectCache) cache;
+            info.put("sizeBytes", disk.getSizeBytes());
+            info.put("bytesSaved", disk.getBytesSaved());
+            info.put("revalidations", disk.getRevalidationCount());
+        } else if (cache instanceof MemoryObjectCache) {
+            MemoryObjectCache memory = (MemoryObjectCache) cache;
+            info.put("sizeBytes", memory.getSizeBytes());
+            info.put("rejections", memory.getRejectionCount());
+        } else if (cache instanceof BlockCache) {
+            BlockCache block = (BlockCache) cache;
+            info.put("memoryHits", block.getMemoryHitCount());
+            info.put("diskHits", block.getDiskHitCount());
+            info.put("readAheads", block.getReadAheadCount());
+            info.put("memorySizeBytes", block.getMemorySizeBytes());
+            info.put("diskSizeBytes", block.getDiskSizeBytes());
+        } else if (cache instanceof StatCache) {
+            info.put("invalidations", ((StatCache) cache).getInvalidationCount());
+        }
+        return info;
+    }
+
+    private Map<String, Object> describe(VegasLimiter limiter) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("limit", limiter.getLimit());
+        info.put("inflight", limiter.getInflight());
+        info.put("queued", limiter.getQueued());
+        info.put("rejected", limiter.getRejectedCount());
+        info.put("minRttMillis", limiter.getMinRttMillis());
+        return info;
+    }
+}
@@ -0,0 +1,686 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ObjectStat;
+import io.minio.errors.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * cache of aligned object blocks for range reads, e.g. seeking in a video.
+ * <p>
+ * Objects are split in blocks of {@code blockSize} bytes keyed by bucket, object, etag and block index, a range is
+ * assembled from the blocks it overlaps. Missing blocks are fetched concurrently on the executor with ranged gets
+ * conditional on the etag, at most {@code parallelism} blocks ahead of the reader, and the {@code readAhead} blocks
+ * after the range are fetched in the background for the next request of a sequential reader. Concurrent requests
+ * for the same block share one fetch. A reader waiting for a block whose fetch has not started yet runs it itself, so a
+ * reader running on the executor never waits for work queued behind it on the same executor.
+ * <p>
+ * Fetched blocks are kept in a memory tier and written to a disk tier on the executor after the readers were served,
+ * each tier drops its least recently used blocks beyond its own size limit, blocks read from disk are promoted to
+ * memory. A new etag means new keys, so blocks of an overwritten object are never served, they are dropped on
+ * {@link #invalidate} or age out. The disk tier is emptied when the cache is created.
+ *
+ * @author Guangfu He
+ */
+public class BlockCache implements ObjectCache {
+    private final static Logger log = LoggerFactory.getLogger(BlockCache.class);
+
+    private final static String BLOCK = ".block";
+
+    private final MinioTemplate minioTemplate;
+    private final Executor executor;
+    private final int blockSize;
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final int parallelism;
+    private final int readAhead;
+
+    /**
+     * least recently used first, guarded by this
+     */
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * block lengths, least recently used first, guarded by this
+     */
+    private final LinkedHashMap<String, Integer> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private final ConcurrentMap<String, BlockLoad> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder readAheads = new LongAdder();
+
+    /**
+     * cache blocks in memory only
+     */
+    public BlockCache(MinioTemplate minioTemplate, Executor executor, int blockSize, long maxMemoryBytes) throws IOException {
+        this(minioTemplate, executor, blockSize, maxMemoryBytes, null, 0, 4, 1);
+    }
+
+    /**
+     * @param blockSize      bytes of a block, ranges are fetched in whole blocks
+     * @param maxMemoryBytes total bytes of blocks kept in memory
+     * @param directory      directory of the disk tier, null to keep blocks in memory only
+     * @param maxDiskBytes   total bytes of blocks kept on disk
+     * @param parallelism    max blocks of a range fetched at the same time
+     * @param readAhead      blocks after a range fetched in the background
+     */
+    public BlockCache(MinioTemplate minioTemplate, Executor executor, int blockSize, long maxMemoryBytes,
+                      Path directory, long maxDiskBytes, int parallelism, int readAhead) throws IOException {
+        this.minioTemplate = minioTemplate;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = maxDiskBytes > 0 ? directory : null;
+        this.maxDiskBytes = maxDiskBytes;
+        this.parallelism = Math.max(1, parallelism);
+        this.readAhead = Math.max(0, readAhead);
+        if (this.directory != null) {
+            Files.createDirectories(this.directory);
+            clearDirectory();
+        }
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        ObjectStat stat = minioTemplate.getObjectInfo(bucketName, objectName);
+        return getRange(bucketName, objectName, stat.etag(), stat.length(), 0, stat.length());
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return getRange(bucketName, objectName, stat.etag(), stat.length(), 0, stat.length());
+    }
+
+    /**
+     * range of the current version of the object, stat by {@link MinioTemplate#getObjectInfo}
+     */
+    public InputStream getRange(String bucketName, String objectName, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        ObjectStat stat = minioTemplate.getObjectInfo(bucketName, objectName);
+        return getRange(bucketName, objectName, stat.etag(), stat.length(), offset, length);
+    }
+
+    /**
+     * range of the object version with the etag, the first block is available when this returns. Returned
+     * InputStream must be closed after use.
+     *
+     * @param objectLength length of the object version
+     * @throws ObjectModifiedException the object was overwritten and has another etag
+     */
+    public InputStream getRange(String bucketName, String objectName, String etag, long objectLength, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        long end = Math.min(objectLength, offset + length);
+        BlockInputStream in = new BlockInputStream(bucketName, objectName, etag, objectLength, offset, end);
+        try {
+            in.first();
+        } catch (ExecutionException e) {
+            in.close();
+            rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            in.close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for block of " + bucketName + "/" + objectName);
+        }
+        return in;
+    }
+
+    /**
+     * the cached block or the fetch of it, queued on the executor if it is not in flight
+     */
+    private BlockLoad block(String bucketName, String objectName, String etag, long objectLength, long index, boolean ahead) {
+        String key = key(bucketName, objectName, etag, index);
+        byte[] data;
+        synchronized (this) {
+            data = memory.get(key);
+        }
+        if (data != null) {
+            if (!ahead) {
+                memoryHits.increment();
+            }
+            return new BlockLoad(data);
+        }
+        BlockLoad load = new BlockLoad(bucketName, objectName, etag, objectLength, index, key, ahead);
+        BlockLoad existing = loading.putIfAbsent(key, load);
+        if (existing != null) {
+            return existing;
+        }
+        if (ahead) {
+            readAheads.increment();
+        }
+        try {
+            executor.execute(load);
+        } catch (RejectedExecutionException e) {
+            if (ahead) {
+                loading.remove(key, load);
+                load.future.completeExceptionally(e);
+            }
+            // otherwise the reader runs it when it needs the block
+        }
+        return load;
+    }
+
+    private byte[] load(String bucketName, String objectName, String etag, long objectLength, long index, String key, boolean ahead) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        byte[] data = readDisk(key);
+        if (data != null) {
+            if (!ahead) {
+                diskHits.increment();
+            }
+            putMemory(key, data);
+            return data;
+        }
+        if (!ahead) {
+            misses.increment();
+        }
+        long start = index * blockSize;
+        data = new byte[(int) Math.min(blockSize, objectLength - start)];
+        try (InputStream in = minioTemplate.getObjectByPart(bucketName, objectName, etag, data.length, start)) {
+            int length = 0;
+            while (length < data.length) {
+                int n = in.read(data, length, data.length - length);
+                if (n < 0) {
+                    throw new EOFException("block " + index + " of " + bucketName + "/" + objectName + " ended at " + length);
+                }
+                length += n;
+            }
+        } catch (ObjectModifiedException e) {
+            invalidate(bucketName, objectName);
+            throw e;
+        }
+        putMemory(key, data);
+        return data;
+    }
+
+    private void putMemory(String key, byte[] data) {
+        if (data.length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (this) {
+            byte[] previous = memory.put(key, data);
+            if (previous != null) {
+                memoryBytes -= previous.length;
+            }
+            memoryBytes += data.length;
+            Iterator<Map.Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+                Map.Entry<String, byte[]> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                iterator.remove();
+                memoryBytes -= eldest.getValue().length;
+                evictions.increment();
+            }
+        }
+    }
+
+    private byte[] readDisk(String key) throws IOException {
+        if (directory == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (disk.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(path(key));
+        } catch (NoSuchFileException e) {
+            removeDisk(key);
+            return null;
+        }
+    }
+
+    /**
+     * write a fetched block to the disk tier on the executor, after its readers were served from memory
+     */
+    private void writeDiskLater(String key, byte[] data) {
+        if (directory == null || data.length > maxDiskBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (disk.containsKey(key)) {
+                // read from disk
+                return;
+            }
+        }
+        try {
+            executor.execute(() -> writeDisk(key, data));
+        } catch (RejectedExecutionException e) {
+            log.debug("executor saturated, block {} is not written to disk", key);
+        }
+    }
+
+    private void writeDisk(String key, byte[] data) {
+        if (directory == null || data.length > maxDiskBytes) {
+            return;
+        }
+        Path path = path(key);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, data);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("failed to write block {} to disk: {}", key, e.toString());
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Integer previous = disk.put(key, data.length);
+            if (previous != null) {
+                diskBytes -= previous;
+            }
+            diskBytes += data.length;
+            Iterator<Map.Entry<String, Integer>> iterator = disk.entrySet().iterator();
+            while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+                Map.Entry<String, Integer> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                iterator.remove();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+        for (String eldest : evicted) {
+            evictions.increment();
+            delete(eldest);
+        }
+    }
+
+    private void removeDisk(String key) {
+        synchronized (this) {
+            Integer length = disk.remove(key);
+            if (length == null) {
+                return;
+            }
+            diskBytes -= length;
+        }
+        delete(key);
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(path(key));
+        } catch (IOException e) {
+            log.warn("failed to delete cached block {}", key, e);
+        }
+    }
+
+    /**
+     * the disk index is not persisted, blocks left by a previous run are deleted
+     */
+    private void clearDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(BLOCK) || name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * drop all cached blocks of the object, of every etag
+     */
+    @Override
+    public void invalidate(String bucketName, String objectName) {
+        removeBlocks(bucketName + "/" + objectName + "#");
+    }
+
+    @Override
+    public void invalidateBucket(String bucketName) {
+        removeBlocks(bucketName + "/");
+    }
+
+    private void removeBlocks(String prefix) {
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, byte[]>> blocks = memory.entrySet().iterator();
+            while (blocks.hasNext()) {
+                Map.Entry<String, byte[]> block = blocks.next();
+                if (block.getKey().startsWith(prefix)) {
+                    blocks.remove();
+                    memoryBytes -= block.getValue().length;
+                }
+            }
+            Iterator<Map.Entry<String, Integer>> files = disk.entrySet().iterator();
+            while (files.hasNext()) {
+                Map.Entry<String, Integer> file = files.next();
+                if (file.getKey().startsWith(prefix)) {
+                    files.remove();
+                    diskBytes -= file.getValue();
+                    removed.add(file.getKey());
+                }
+            }
+        }
+        for (String key : removed) {
+            delete(key);
+        }
+    }
+
+    private Path path(String key) {
+        String name = sha256(key);
+        return directory.resolve(name.substring(0, 2)).resolve(name + BLOCK);
+    }
+
+    static String key(String bucketName, String objectName, String etag, long index) {
+        return bucketName + "/" + objectName + "#" + etag + "@" + index;
+    }
+
+    private static String sha256(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void rethrow(Throwable e) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof InvalidKeyException) {
+            throw (InvalidKeyException) e;
+        }
+        if (e instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) e;
+        }
+        if (e instanceof ErrorResponseException) {
+            throw (ErrorResponseException) e;
+        }
+        if (e instanceof InvalidResponseException) {
+            throw (InvalidResponseException) e;
+        }
+        if (e instanceof InsufficientDataException) {
+            throw (InsufficientDataException) e;
+        }
+        if (e instanceof ServerException) {
+            throw (ServerException) e;
+        }
+        if (e instanceof InternalException) {
+            throw (InternalException) e;
+        }
+        if (e instanceof XmlParserException) {
+            throw (XmlParserException) e;
+        }
+        if (e instanceof InvalidBucketNameException) {
+            throw (InvalidBucketNameException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException(e);
+    }
+
+    /**
+     * @return blocks served from memory or disk
+     */
+    @Override
+    public long getHitCount() {
+        return memoryHits.sum() + diskHits.sum();
+    }
+
+    /**
+     * @return blocks fetched from minio for a reader
+     */
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return blocks kept in memory
+     */
+    @Override
+    public synchronized long getSize() {
+        return memory.size();
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    /**
+     * @return blocks fetched ahead of the reader
+     */
+    public long getReadAheadCount() {
+        return readAheads.sum();
+    }
+
+    public synchronized long getMemorySizeBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskSizeBytes() {
+        return diskBytes;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * fetch of a block, run once by the executor or by the first reader waiting for it, whichever comes first
+     */
+    private class BlockLoad implements Runnable {
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        private final AtomicBoolean started;
+        private final String bucketName;
+        private final String objectName;
+        private final String etag;
+        private final long objectLength;
+        private final long index;
+        private final String key;
+        private final boolean ahead;
+
+        BlockLoad(String bucketName, String objectName, String etag, long objectLength, long index, String key, boolean ahead) {
+            this.started = new AtomicBoolean();
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.etag = etag;
+            this.objectLength = objectLength;
+            this.index = index;
+            this.key = key;
+            this.ahead = ahead;
+        }
+
+        /**
+         * a cached block
+         */
+        BlockLoad(byte[] data) {
+            this(null, null, null, 0, 0, null, true);
+            started.set(true);
+            future.complete(data);
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            byte[] data;
+            try {
+                data = load(bucketName, objectName, etag, objectLength, index, key, ahead);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+                return;
+            } finally {
+                loading.remove(key, this);
+            }
+            future.complete(data);
+            writeDiskLater(key, data);
+        }
+
+        /**
+         * run the fetch in the calling thread if no thread has started it, then wait for it
+         */
+        byte[] get() throws ExecutionException, InterruptedException {
+            run();
+            return future.get();
+        }
+    }
+
+    /**
+     * range assembled from blocks fetched ahead of the read position
+     */
+    private class BlockInputStream extends InputStream {
+        private final String bucketName;
+        private final String objectName;
+        private final String etag;
+        private final long objectLength;
+        private final long end;
+        private final long lastBlock;
+        private final Deque<BlockLoad> pending = new ArrayDeque<>();
+        private long position;
+        private long scheduled;
+        private byte[] current;
+        private int from;
+        private int to;
+        private boolean closed;
+
+        BlockInputStream(String bucketName, String objectName, String etag, long objectLength, long offset, long end) {
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.etag = etag;
+            this.objectLength = objectLength;
+            this.end = end;
+            this.position = offset;
+            this.scheduled = offset / blockSize;
+            this.lastBlock = end > offset ? (end - 1) / blockSize : scheduled - 1;
+            while (scheduled <= lastBlock && pending.size() < parallelism) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            pending.add(block(bucketName, objectName, etag, objectLength, scheduled++, false));
+            if (scheduled > lastBlock) {
+                long blocks = (objectLength + blockSize - 1) / blockSize;
+                for (long index = scheduled; index < Math.min(blocks, scheduled + readAhead); index++) {
+                    block(bucketName, objectName, etag, objectLength, index, true);
+                }
+            }
+        }
+
+        /**
+         * wait for the first block
+         */
+        void first() throws ExecutionException, InterruptedException {
+            BlockLoad next = pending.peek();
+            if (next != null) {
+                next.get();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || from == to) {
+                BlockLoad next = pending.poll();
+                if (next == null) {
+                    return -1;
+                }
+                current = await(next);
+                long blockStart = position / blockSize * blockSize;
+                from = (int) (position - blockStart);
+                to = (int) (Math.min(end, blockStart + blockSize) - blockStart);
+                if (to > current.length) {
+                    throw new EOFException("block of " + bucketName + "/" + objectName + " at " + blockStart + " has " + current.length + " bytes, expected " + to);
+                }
+                if (scheduled <= lastBlock) {
+                    schedule();
+                }
+            }
+            int n = Math.min(len, to - from);
+            System.arraycopy(current, from, b, off, n);
+            from += n;
+            position += n;
+            return n;
+        }
+
+        private byte[] await(BlockLoad load) throws IOException {
+            try {
+                return load.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for block");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("fetch block of " + bucketName + "/" + objectName + " failed", cause);
+            }
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : to - from;
+        }
+
+        /**
+         * blocks in flight are still completed and cached for other readers
+         */
+        @Override
+        public void close() {
+            closed = true;
+            current = null;
+            pending.clear();
+        }
+    }
+}
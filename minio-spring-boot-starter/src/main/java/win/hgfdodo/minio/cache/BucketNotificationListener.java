@@ -0,0 +1,142 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.CloseableIterator;
+import io.minio.ListenBucketNotificationArgs;
+import io.minio.Result;
+import io.minio.messages.Event;
+import io.minio.messages.NotificationRecords;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.io.Closeable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * invalidate cached objects when they change on the server.
+ * <p>
+ * A daemon thread per bucket keeps a {@code listenBucketNotification} subscription open and drops the stat and
+ * content of every created or removed object from the caches, so all application nodes see writes of the others
+ * within the notification delay. Events may be lost while the subscription is down, so the cached stats and
+ * contents of the bucket are dropped whenever it is (re)established.
+ *
+ * @author Guangfu He
+ */
+public class BucketNotificationListener implements Closeable {
+    private final static Logger log = LoggerFactory.getLogger(BucketNotificationListener.class);
+    private final static String[] EVENTS = {"s3:ObjectCreated:*", "s3:ObjectRemoved:*"};
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final Collection<String> buckets;
+    private final long reconnectDelayMillis;
+    private final StatCache statCache;
+    private final List<ObjectCache> objectCaches;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<MinioOperation> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    public BucketNotificationListener(MinioConnectionFactory minioConnectionFactory, Collection<String> buckets, Duration reconnectDelay,
+                                      StatCache statCache, List<ObjectCache> objectCaches) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.buckets = buckets;
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+        this.statCache = statCache;
+        this.objectCaches = objectCaches;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (String bucket : buckets) {
+            Thread thread = new Thread(() -> listen(bucket), "minio-notification-" + bucket);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    private void listen(String bucket) {
+        ListenBucketNotificationArgs args = ListenBucketNotificationArgs.builder()
+                .bucket(bucket)
+                .prefix("")
+                .suffix("")
+                .events(EVENTS)
+                .build();
+        while (running) {
+            MinioOperation operation = MinioOperation.list("listenBucketNotification", bucket);
+            subscriptions.add(operation);
+            try (CloseableIterator<Result<NotificationRecords>> records = minioConnectionFactory.execute(operation, client -> client.listenBucketNotification(args))) {
+                invalidateBucket(bucket);
+                log.debug("listening to notifications of bucket {}", bucket);
+                while (running && records.hasNext()) {
+                    for (Event event : records.next().get().events()) {
+                        if (event.objectName() != null) {
+                            invalidate(bucket, decode(event.objectName()));
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("notification subscription of bucket {} failed, reconnect in {} ms: {}", bucket, reconnectDelayMillis, e.toString());
+                }
+            } finally {
+                subscriptions.remove(operation);
+            }
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelayMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void invalidateBucket(String bucket) {
+        statCache.invalidateBucket(bucket);
+        for (ObjectCache cache : objectCaches) {
+            cache.invalidateBucket(bucket);
+        }
+    }
+
+    private void invalidate(String bucket, String object) {
+        statCache.invalidate(bucket, object);
+        for (ObjectCache cache : objectCaches) {
+            cache.invalidate(bucket, object);
+        }
+    }
+
+    /**
+     * object keys of events are url encoded
+     */
+    static String decode(String key) {
+        try {
+            return URLDecoder.decode(key, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return key;
+        }
+    }
+
+    /**
+     * stop listening, the http calls in flight are cancelled so that blocked readers fail and exit
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (MinioOperation subscription : subscriptions) {
+            subscription.cancel();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        threads.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package win.hgfdodo.minio.cache;
+
+/**
+ * counters of a minio cache, reported by the {@code minio} actuator endpoint
+ *
+ * @author Guangfu He
+ */
+public interface CacheStatistics {
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    /**
+     * @return number of cached entries
+     */
+    long getSize();
+
+    default double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
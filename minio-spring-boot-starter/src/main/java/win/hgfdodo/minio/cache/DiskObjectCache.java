@@ -0,0 +1,424 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ErrorCode;
+import io.minio.ObjectStat;
+import io.minio.errors.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.coalesce.SingleFlight;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+import win.hgfdodo.minio.transfer.ChannelTransfer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * size bounded local disk cache of object content.
+ * <p>
+ * Objects are stored under {@code <directory>/<xx>/<sha256 of bucket/object>.data} with a {@code .meta} sidecar
+ * holding bucket, object, etag and length. A cached object older than {@code ttl} is revalidated with statObject
+ * and downloaded again only if its etag changed. An object is downloaded on condition of the etag it was stat with, so
+ * an overwrite in between is detected and the object is stat and downloaded again. Concurrent misses of the same
+ * object share one download through the {@link win.hgfdodo.minio.coalesce.SingleFlight} of the template, if it has
+ * one. The least recently used objects are deleted when the cache exceeds {@code maxBytes}. The index is rebuilt from the sidecars when the cache is created, so cached objects
+ * survive restarts.
+ *
+ * @author Guangfu He
+ */
+public class DiskObjectCache implements ObjectCache {
+    private final static Logger log = LoggerFactory.getLogger(DiskObjectCache.class);
+
+    private final static String DATA = ".data";
+    private final static String META = ".meta";
+    private final static int MAX_FETCH_ATTEMPTS = 3;
+
+    private final MinioTemplate minioTemplate;
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlMillis;
+
+    /**
+     * least recently used first, guarded by this
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * @param maxBytes      total bytes of cached objects
+     * @param maxEntryBytes larger objects are not cached
+     * @param ttl           cached objects are revalidated after this time
+     */
+    public DiskObjectCache(MinioTemplate minioTemplate, Path directory, long maxBytes, long maxEntryBytes, Duration ttl) throws IOException {
+        this.minioTemplate = minioTemplate;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.ttlMillis = ttl.toMillis();
+        Files.createDirectories(directory);
+        rebuild();
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = key(bucketName, objectName);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null && System.currentTimeMillis() - entry.validatedAt > ttlMillis) {
+            entry = revalidate(entry);
+        }
+        InputStream in = entry == null ? null : open(entry);
+        if (in != null) {
+            hits.increment();
+            bytesSaved.add(entry.length);
+            return in;
+        }
+        misses.increment();
+        return fetch(bucketName, objectName, key);
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = key(bucketName, objectName);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        InputStream in = entry == null || !entry.etag.equals(stat.etag()) ? null : open(entry);
+        if (in != null) {
+            hits.increment();
+            bytesSaved.add(entry.length);
+            return in;
+        }
+        misses.increment();
+        return fetch(bucketName, objectName, key, stat);
+    }
+
+    /**
+     * @return null if the file of the entry was deleted
+     */
+    private InputStream open(Entry entry) throws IOException {
+        try {
+            return Files.newInputStream(dataPath(entry.key));
+        } catch (NoSuchFileException e) {
+            log.debug("cached object {}/{} was deleted from disk", entry.bucketName, entry.objectName);
+            remove(entry);
+            return null;
+        }
+    }
+
+    /**
+     * @return the entry if it is still current, null if the object changed
+     */
+    private Entry revalidate(Entry entry) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        revalidations.increment();
+        ObjectStat stat;
+        try {
+            stat = minioTemplate.getObjectInfo(entry.bucketName, entry.objectName);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.NO_SUCH_KEY) {
+                remove(entry);
+            }
+            throw e;
+        }
+        if (!entry.etag.equals(stat.etag())) {
+            remove(entry);
+            return null;
+        }
+        entry.validatedAt = System.currentTimeMillis();
+        writeMeta(entry);
+        return entry;
+    }
+
+    private InputStream fetch(String bucketName, String objectName, String key) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        for (int attempt = 1; ; attempt++) {
+            ObjectStat stat = minioTemplate.getObjectInfo(bucketName, objectName);
+            try {
+                return fetch(bucketName, objectName, key, stat);
+            } catch (ObjectModifiedException e) {
+                if (attempt >= MAX_FETCH_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("{}/{} was overwritten while fetching it, fetch again", bucketName, objectName);
+            }
+        }
+    }
+
+    private InputStream fetch(String bucketName, String objectName, String key, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (stat.length() > maxEntryBytes) {
+            return minioTemplate.getObjectIfMatch(bucketName, objectName, stat.etag());
+        }
+        SingleFlight singleFlight = minioTemplate.getSingleFlight();
+        Entry entry = singleFlight == null ? download(bucketName, objectName, key, stat)
+                : singleFlight.execute(bucketName, objectName, "diskCache:" + stat.etag(), () -> download(bucketName, objectName, key, stat));
+        InputStream in = open(entry);
+        // evicted before it could be opened
+        return in != null ? in : minioTemplate.getObjectIfMatch(bucketName, objectName, stat.etag());
+    }
+
+    /**
+     * download the object version of the stat into the cache
+     */
+    private Entry download(String bucketName, String objectName, String key, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        Path data = dataPath(key);
+        Files.createDirectories(data.getParent());
+        Path tmp = Files.createTempFile(data.getParent(), key, ".tmp");
+        try {
+            try (InputStream in = minioTemplate.getObjectIfMatch(bucketName, objectName, stat.etag());
+                 FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                long written = ChannelTransfer.transfer(in, channel, 0, stat.length());
+                if (written != stat.length()) {
+                    throw new EOFException("expected " + stat.length() + " bytes of " + bucketName + "/" + objectName + ", got " + written);
+                }
+            }
+            Entry entry = new Entry(key, bucketName, objectName, stat.etag(), stat.length(), System.currentTimeMillis());
+            move(tmp, data);
+            writeMeta(entry);
+            add(entry);
+            return entry;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void invalidate(String bucketName, String objectName) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key(bucketName, objectName));
+        }
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    @Override
+    public void invalidateBucket(String bucketName) {
+        List<Entry> removed = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.bucketName.equals(bucketName)) {
+                    removed.add(entry);
+                }
+            }
+        }
+        for (Entry entry : removed) {
+            remove(entry);
+        }
+    }
+
+    private void add(Entry entry) {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(entry.key, entry);
+            if (previous != null) {
+                sizeBytes -= previous.length;
+            }
+            sizeBytes += entry.length;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (sizeBytes > maxBytes && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                if (eldest == entry) {
+                    continue;
+                }
+                iterator.remove();
+                sizeBytes -= eldest.length;
+                evicted.add(eldest);
+            }
+        }
+        for (Entry eldest : evicted) {
+            evictions.increment();
+            delete(eldest.key);
+        }
+    }
+
+    private void remove(Entry entry) {
+        synchronized (this) {
+            if (!entries.remove(entry.key, entry)) {
+                return;
+            }
+            sizeBytes -= entry.length;
+        }
+        delete(entry.key);
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(metaPath(key));
+            Files.deleteIfExists(dataPath(key));
+        } catch (IOException e) {
+            log.warn("failed to delete cached object {}", key, e);
+        }
+    }
+
+    /**
+     * load sidecars left by a previous run, drop incomplete entries and temporary files
+     */
+    private void rebuild() throws IOException {
+        List<Entry> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(META)) {
+                    Entry entry = readMeta(name.substring(0, name.length() - META.length()), file);
+                    if (entry == null) {
+                        Files.deleteIfExists(file);
+                        Files.deleteIfExists(dataPath(name.substring(0, name.length() - META.length())));
+                    } else {
+                        loaded.add(entry);
+                    }
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(entry -> entry.validatedAt));
+        for (Entry entry : loaded) {
+            add(entry);
+        }
+        log.info("disk cache {} loaded {} objects, {} bytes", directory, loaded.size(), getSizeBytes());
+    }
+
+    private Entry readMeta(String key, Path meta) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            properties.load(in);
+            Entry entry = new Entry(key,
+                    properties.getProperty("bucket"),
+                    properties.getProperty("object"),
+                    properties.getProperty("etag"),
+                    Long.parseLong(properties.getProperty("length")),
+                    Long.parseLong(properties.getProperty("validatedAt")));
+            Path data = dataPath(key);
+            if (entry.bucketName == null || entry.objectName == null || entry.etag == null
+                    || !Files.isRegularFile(data) || Files.size(data) != entry.length) {
+                return null;
+            }
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("bucket", entry.bucketName);
+        properties.setProperty("object", entry.objectName);
+        properties.setProperty("etag", entry.etag);
+        properties.setProperty("length", String.valueOf(entry.length));
+        properties.setProperty("validatedAt", String.valueOf(entry.validatedAt));
+        Path meta = metaPath(entry.key);
+        Path tmp = Files.createTempFile(meta.getParent(), entry.key, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, null);
+            }
+            move(tmp, meta);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path dataPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + DATA);
+    }
+
+    private Path metaPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + META);
+    }
+
+    static String key(String bucketName, String objectName) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest((bucketName + "/" + objectName).getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public synchronized long getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return bytes served from disk instead of minio
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String bucketName;
+        private final String objectName;
+        private final String etag;
+        private final long length;
+        private volatile long validatedAt;
+
+        Entry(String key, String bucketName, String objectName, String etag, long length, long validatedAt) {
+            this.key = key;
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.etag = etag;
+            this.length = length;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package win.hgfdodo.minio.cache;
+
+/**
+ * approximate access frequency of keys, a count-min sketch of 4 bit counters.
+ * <p>
+ * Counters are halved after {@code 10 * width} increments, so the sketch follows the recent popularity of keys
+ * and an entry that was hot long ago does not stay admitted forever.
+ *
+ * @author Guangfu He
+ */
+class FrequencySketch {
+    private final static int DEPTH = 4;
+    private final static int MAX_COUNT = 15;
+    private final static int[] SEEDS = {0x97cb3127, 0x2f8b8b6d, 0x61c88647, 0x7ed55d16};
+
+    /**
+     * two counters per byte
+     */
+    private final byte[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries expected number of distinct hot keys
+     */
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(64, Math.min(1 << 24, expectedEntries)) - 1) << 1;
+        this.table = new byte[DEPTH][width / 2];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    synchronized void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = index(hash, i);
+            int count = get(i, index);
+            if (count < MAX_COUNT) {
+                set(i, index, count + 1);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    synchronized int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, get(i, index(hash, i)));
+        }
+        return frequency;
+    }
+
+    /**
+     * halve all counters
+     */
+    synchronized void reset() {
+        for (byte[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                // halve both nibbles at once
+                row[i] = (byte) ((row[i] >>> 1) & 0x77);
+            }
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int get(int row, int index) {
+        int b = table[row][index >>> 1];
+        return (index & 1) == 0 ? b & 0x0F : (b >>> 4) & 0x0F;
+    }
+
+    private void set(int row, int index, int count) {
+        int b = table[row][index >>> 1];
+        b = (index & 1) == 0 ? (b & 0xF0) | count : (b & 0x0F) | (count << 4);
+        table[row][index >>> 1] = (byte) b;
+    }
+
+    private static int spread(int hash) {
+        hash = (hash ^ (hash >>> 16)) * 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,511 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ErrorCode;
+import io.minio.ObjectStat;
+import io.minio.errors.*;
+import win.hgfdodo.minio.coalesce.SingleFlight;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * memory cache of small objects, bounded by bytes.
+ * <p>
+ * New objects enter a small LRU window (1% of the capacity). An object leaving the window replaces the least
+ * recently used object of the main area only if it was requested more often, as counted by a {@link FrequencySketch},
+ * so a scan over many objects read once does not flush the hot ones (W-TinyLFU).
+ * Content is kept in direct buffers outside the heap, pooled by power of two size classes and reused when entries
+ * are replaced. Hits are read from a read-only view of the buffer without copying it, the buffer is reused only after
+ * the entry is removed and its last reader is closed. Objects older than {@code ttl} are revalidated with statObject and dropped if their etag changed.
+ * <p>
+ * Misses are read from minio, or from the {@link #setSource source} cache behind this one, e.g. the disk cache.
+ * Concurrent misses of the same object share one read through the {@link win.hgfdodo.minio.coalesce.SingleFlight} of
+ * the template, if it has one.
+ *
+ * @author Guangfu He
+ */
+public class MemoryObjectCache implements ObjectCache {
+    private final static int MIN_SLOT_SIZE = 512;
+    private final static int MAX_FETCH_ATTEMPTS = 3;
+
+    private final MinioTemplate minioTemplate;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final long ttlMillis;
+    private final boolean offHeap;
+
+    private final long windowMax;
+    private final long mainMax;
+    private final FrequencySketch sketch;
+    private ObjectCache source;
+
+    /**
+     * guarded by this, least recently used first
+     */
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Deque<ByteBuffer>> freeSlots = new HashMap<>();
+    private long windowBytes;
+    private long mainBytes;
+    private long freeBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maxBytes      bytes of cached content, including unused pooled buffers
+     * @param maxEntryBytes larger objects are not cached
+     * @param ttl           cached objects are revalidated after this time
+     * @param offHeap       keep content in direct buffers
+     */
+    public MemoryObjectCache(MinioTemplate minioTemplate, long maxBytes, int maxEntryBytes, Duration ttl, boolean offHeap) {
+        this.minioTemplate = minioTemplate;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = (int) Math.min(maxEntryBytes, maxBytes / 2);
+        this.ttlMillis = ttl.toMillis();
+        this.offHeap = offHeap;
+        this.windowMax = Math.max(slotSize(this.maxEntryBytes), maxBytes / 100);
+        this.mainMax = maxBytes - windowMax;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / 4096));
+    }
+
+    /**
+     * read misses through the cache instead of from minio, invalidations are passed on to it
+     */
+    public void setSource(ObjectCache source) {
+        this.source = source;
+    }
+
+    public ObjectCache getSource() {
+        return source;
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = bucketName + "/" + objectName;
+        Entry entry;
+        synchronized (this) {
+            entry = lookup(key);
+        }
+        if (entry != null && System.currentTimeMillis() - entry.validatedAt > ttlMillis) {
+            entry = revalidate(bucketName, objectName, entry);
+        }
+        InputStream in = entry == null ? null : read(entry);
+        if (in != null) {
+            sketch.increment(key);
+            hits.increment();
+            return in;
+        }
+        misses.increment();
+        for (int attempt = 1; ; attempt++) {
+            ObjectStat stat = minioTemplate.getObjectInfo(bucketName, objectName);
+            try {
+                return fetch(bucketName, objectName, key, stat);
+            } catch (ObjectModifiedException e) {
+                if (attempt >= MAX_FETCH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = bucketName + "/" + objectName;
+        Entry entry;
+        synchronized (this) {
+            entry = lookup(key);
+        }
+        InputStream in = entry == null || !entry.etag.equals(stat.etag()) ? null : read(entry);
+        if (in != null) {
+            sketch.increment(key);
+            hits.increment();
+            return in;
+        }
+        misses.increment();
+        return fetch(bucketName, objectName, key, stat);
+    }
+
+    /**
+     * read the object version of the stat, cache it if it is small enough
+     */
+    private InputStream fetch(String bucketName, String objectName, String key, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (stat.length() > maxEntryBytes) {
+            // never admitted, not counted in the sketch
+            return open(bucketName, objectName, stat);
+        }
+        sketch.increment(key);
+        SingleFlight singleFlight = minioTemplate.getSingleFlight();
+        byte[] content = singleFlight == null ? load(bucketName, objectName, key, stat)
+                : singleFlight.execute(bucketName, objectName, "memoryCache:" + stat.etag(), () -> load(bucketName, objectName, key, stat));
+        return new ByteArrayInputStream(content);
+    }
+
+    private InputStream open(String bucketName, String objectName, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return source != null ? source.getObject(bucketName, objectName, stat) : minioTemplate.getObjectIfMatch(bucketName, objectName, stat.etag());
+    }
+
+    private byte[] load(String bucketName, String objectName, String key, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        byte[] content = new byte[(int) stat.length()];
+        try (InputStream in = open(bucketName, objectName, stat)) {
+            int read = 0;
+            while (read < content.length) {
+                int n = in.read(content, read, content.length - read);
+                if (n == -1) {
+                    throw new EOFException("expected " + content.length + " bytes of " + key + ", got " + read);
+                }
+                read += n;
+            }
+        }
+        put(key, stat.etag(), content);
+        return content;
+    }
+
+    private Entry revalidate(String bucketName, String objectName, Entry entry) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        ObjectStat stat;
+        try {
+            stat = minioTemplate.getObjectInfo(bucketName, objectName);
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.NO_SUCH_KEY) {
+                remove(entry);
+            }
+            throw e;
+        }
+        if (!entry.etag.equals(stat.etag())) {
+            remove(entry);
+            return null;
+        }
+        entry.validatedAt = System.currentTimeMillis();
+        return entry;
+    }
+
+    @Override
+    public void invalidate(String bucketName, String objectName) {
+        Entry entry;
+        synchronized (this) {
+            entry = lookup(bucketName + "/" + objectName);
+        }
+        if (entry != null) {
+            remove(entry);
+        }
+        if (source != null) {
+            source.invalidate(bucketName, objectName);
+        }
+    }
+
+    @Override
+    public void invalidateBucket(String bucketName) {
+        String prefix = bucketName + "/";
+        synchronized (this) {
+            List<Entry> removed = new ArrayList<>();
+            for (Entry entry : window.values()) {
+                if (entry.key.startsWith(prefix)) {
+                    removed.add(entry);
+                }
+            }
+            for (Entry entry : main.values()) {
+                if (entry.key.startsWith(prefix)) {
+                    removed.add(entry);
+                }
+            }
+            for (Entry entry : removed) {
+                removeEntry(entry);
+            }
+        }
+        if (source != null) {
+            source.invalidateBucket(bucketName);
+        }
+    }
+
+    /**
+     * drop cached objects whose etag differs from the given one
+     *
+     * @param etag current etag, null if the object was removed
+     */
+    public void invalidate(String bucketName, String objectName, String etag) {
+        Entry entry;
+        synchronized (this) {
+            entry = lookup(bucketName + "/" + objectName);
+        }
+        if (entry != null && !entry.etag.equals(etag)) {
+            remove(entry);
+        }
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = window.get(key);
+        return entry != null ? entry : main.get(key);
+    }
+
+    /**
+     * @return stream over the slot of the entry, null if the entry was removed meanwhile
+     */
+    private InputStream read(Entry entry) {
+        if (!entry.retain()) {
+            return null;
+        }
+        ByteBuffer view = entry.slot.asReadOnlyBuffer();
+        view.clear();
+        view.limit(entry.length);
+        return new SlotInputStream(entry, view);
+    }
+
+    /**
+     * drop a reference to the entry, the slot is reused once the entry is removed and all readers are closed
+     */
+    private void release(Entry entry) {
+        if (entry.references.decrementAndGet() == 0) {
+            synchronized (this) {
+                freeSlots.computeIfAbsent(entry.slotSize, size -> new ArrayDeque<>()).push(entry.slot);
+                freeBytes += entry.slotSize;
+            }
+        }
+    }
+
+    private synchronized void put(String key, String etag, byte[] content) {
+        Entry previous = lookup(key);
+        if (previous != null) {
+            removeEntry(previous);
+        }
+        int slotSize = slotSize(content.length);
+        windowBytes += slotSize;
+        Entry entry = new Entry(key, etag, content.length, slotSize);
+        window.put(key, entry);
+        // make room before the new slot is taken
+        Iterator<Entry> iterator = window.values().iterator();
+        while (windowBytes > windowMax && iterator.hasNext()) {
+            Entry candidate = iterator.next();
+            if (candidate == entry) {
+                continue;
+            }
+            iterator.remove();
+            windowBytes -= candidate.slotSize;
+            admit(candidate);
+        }
+        entry.slot = allocate(slotSize);
+        entry.slot.clear();
+        entry.slot.put(content);
+    }
+
+    /**
+     * move an entry leaving the window to the main area if it is more popular than the entries it replaces
+     */
+    private void admit(Entry candidate) {
+        if (mainBytes + candidate.slotSize > mainMax) {
+            int candidateFrequency = sketch.frequency(candidate.key);
+            long reclaimable = 0;
+            List<Entry> victims = new ArrayList<>();
+            for (Entry victim : main.values()) {
+                if (mainBytes - reclaimable + candidate.slotSize <= mainMax) {
+                    break;
+                }
+                if (sketch.frequency(victim.key) >= candidateFrequency) {
+                    rejections.increment();
+                    evict(candidate);
+                    return;
+                }
+                victims.add(victim);
+                reclaimable += victim.slotSize;
+            }
+            for (Entry victim : victims) {
+                main.remove(victim.key);
+                mainBytes -= victim.slotSize;
+                evict(victim);
+            }
+        }
+        main.put(candidate.key, candidate);
+        mainBytes += candidate.slotSize;
+    }
+
+    private void evict(Entry entry) {
+        evictions.increment();
+        release(entry);
+    }
+
+    private void remove(Entry entry) {
+        synchronized (this) {
+            removeEntry(entry);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        if (window.remove(entry.key, entry)) {
+            windowBytes -= entry.slotSize;
+            release(entry);
+        } else if (main.remove(entry.key, entry)) {
+            mainBytes -= entry.slotSize;
+            release(entry);
+        }
+    }
+
+
+    /**
+     * reuse a free slot of the size, or drop free slots of other sizes until a new one fits
+     */
+    private ByteBuffer allocate(int slotSize) {
+        Deque<ByteBuffer> free = freeSlots.get(slotSize);
+        if (free != null && !free.isEmpty()) {
+            freeBytes -= slotSize;
+            return free.pop();
+        }
+        Iterator<Deque<ByteBuffer>> pools = freeSlots.values().iterator();
+        while (windowBytes + mainBytes + freeBytes > maxBytes && pools.hasNext()) {
+            Deque<ByteBuffer> pool = pools.next();
+            while (!pool.isEmpty() && windowBytes + mainBytes + freeBytes > maxBytes) {
+                freeBytes -= pool.pop().capacity();
+            }
+        }
+        return offHeap ? ByteBuffer.allocateDirect(slotSize) : ByteBuffer.allocate(slotSize);
+    }
+
+    static int slotSize(int length) {
+        return Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(Math.max(1, length) - 1) << 1);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return objects not admitted to the main area because they were requested less often than the objects there
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    @Override
+    public synchronized long getSize() {
+        return window.size() + main.size();
+    }
+
+    /**
+     * @return bytes of the slots holding cached objects
+     */
+    public synchronized long getSizeBytes() {
+        return windowBytes + mainBytes;
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String etag;
+        private final int length;
+        private final int slotSize;
+        private volatile long validatedAt = System.currentTimeMillis();
+        /**
+         * set before the entry can be looked up, guarded by the cache
+         */
+        private ByteBuffer slot;
+        /**
+         * the reference of the cache while the entry is cached plus one per open reader
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Entry(String key, String etag, int length, int slotSize) {
+            this.key = key;
+            this.etag = etag;
+            this.length = length;
+            this.slotSize = slotSize;
+        }
+
+        /**
+         * @return false if the entry was removed and its slot may be reused
+         */
+        boolean retain() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * reads a cached object from its slot, releases the slot on close
+     */
+    private class SlotInputStream extends InputStream {
+        private final Entry entry;
+        private final ByteBuffer view;
+        private boolean closed;
+
+        SlotInputStream(Entry entry, ByteBuffer view) {
+            this.entry = entry;
+            this.view = view;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            return view.hasRemaining() ? view.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, view.remaining());
+            view.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ensureOpen();
+            int skipped = (int) Math.max(0, Math.min(n, view.remaining()));
+            view.position(view.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ensureOpen();
+            return view.remaining();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ObjectStat;
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * local cache of object content in front of {@link win.hgfdodo.minio.service.MinioTemplate#getObject}
+ *
+ * @author Guangfu He
+ */
+public interface ObjectCache extends CacheStatistics {
+    /**
+     * object content, from the cache if it is still current. Returned InputStream must be closed after use.
+     */
+    InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+
+    /**
+     * content of the object version of the stat, from the cache if it holds that version, e.g. for a cache in front
+     * of this one. Returned InputStream must be closed after use.
+     *
+     * @throws win.hgfdodo.minio.exception.ObjectModifiedException the object no longer has the etag of the stat
+     */
+    InputStream getObject(String bucketName, String objectName, ObjectStat stat) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+
+    /**
+     * drop the cached object, e.g. after it was overwritten
+     */
+    void invalidate(String bucketName, String objectName);
+
+    /**
+     * drop all cached objects of the bucket, e.g. after notifications of it may have been missed
+     */
+    void invalidateBucket(String bucketName);
+}
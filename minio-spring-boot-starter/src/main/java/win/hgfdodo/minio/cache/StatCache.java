@@ -0,0 +1,217 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ErrorCode;
+import io.minio.ObjectStat;
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * object metadata cache keyed by bucket, object and version.
+ * <p>
+ * Stats are kept for {@code ttl}, missing objects ({@link ErrorCode#NO_SUCH_KEY}) are remembered for
+ * {@code negativeTtl}. Writes through {@link win.hgfdodo.minio.service.MinioTemplate} and bucket notifications
+ * received by {@link BucketNotificationListener} invalidate entries before they expire. A stat loaded while its object
+ * is invalidated is not cached, as it may be older than the write.
+ *
+ * @author Guangfu He
+ */
+public class StatCache implements CacheStatistics {
+    private final static String LATEST = "";
+    private final static int GENERATION_STRIPES = 1024;
+
+    /**
+     * load the stat from minio
+     */
+    @FunctionalInterface
+    public interface Loader {
+        ObjectStat load() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+    }
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+
+    /**
+     * bucket/object to entries by version
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> entries = new ConcurrentHashMap<>();
+    /**
+     * invalidations of the objects hashed to each stripe, of each bucket and of all objects
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final ConcurrentMap<String, AtomicLong> bucketGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maxEntries max number of cached objects
+     */
+    public StatCache(Duration ttl, Duration negativeTtl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param versionId null for the latest version
+     */
+    public ObjectStat get(String bucketName, String objectName, String versionId, Loader loader) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = key(bucketName, objectName);
+        String version = versionId == null ? LATEST : versionId;
+        Map<String, Entry> versions = entries.get(key);
+        Entry entry = versions == null ? null : versions.get(version);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            if (entry.missing != null) {
+                throw entry.missing;
+            }
+            return entry.stat;
+        }
+        misses.increment();
+        long generation = generation(bucketName, key);
+        try {
+            ObjectStat stat = loader.load();
+            put(bucketName, key, version, new Entry(stat, null, System.nanoTime() + ttlNanos), generation);
+            return stat;
+        } catch (ErrorResponseException e) {
+            if (negativeTtlNanos > 0 && e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.NO_SUCH_KEY) {
+                put(bucketName, key, version, new Entry(null, e, System.nanoTime() + negativeTtlNanos), generation);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param generation generation of the key when the load started
+     */
+    private void put(String bucketName, String key, String version, Entry entry, long generation) {
+        if (generation(bucketName, key) != generation) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        ConcurrentMap<String, Entry> versions = entries.computeIfAbsent(key, k -> new ConcurrentHashMap<>(2));
+        versions.put(version, entry);
+        // an invalidation between the check and the put may have missed the entry
+        if (generation(bucketName, key) != generation) {
+            versions.remove(version, entry);
+            entries.computeIfPresent(key, (k, v) -> v.isEmpty() ? null : v);
+        }
+    }
+
+    /**
+     * @return a value changed by every invalidation of the key, bucket or cache
+     */
+    private long generation(String bucketName, String key) {
+        AtomicLong bucketGeneration = bucketGenerations.get(bucketName);
+        return generations.get(stripe(key)) + (bucketGeneration == null ? 0 : bucketGeneration.get()) + globalGeneration.get();
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    /**
+     * drop expired entries, then arbitrary ones until there is room
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        for (Iterator<ConcurrentMap<String, Entry>> iterator = entries.values().iterator(); iterator.hasNext() && entries.size() >= maxEntries; ) {
+            ConcurrentMap<String, Entry> versions = iterator.next();
+            versions.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (versions.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        for (Iterator<ConcurrentMap<String, Entry>> iterator = entries.values().iterator(); iterator.hasNext() && entries.size() >= maxEntries; ) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * drop all versions of the object
+     */
+    public void invalidate(String bucketName, String objectName) {
+        String key = key(bucketName, objectName);
+        generations.incrementAndGet(stripe(key));
+        if (entries.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * drop all objects of the bucket, e.g. after notifications may have been missed
+     */
+    public void invalidateBucket(String bucketName) {
+        String prefix = bucketName + "/";
+        // loads of other buckets in flight are still cached
+        bucketGenerations.computeIfAbsent(bucketName, b -> new AtomicLong()).incrementAndGet();
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public void clear() {
+        globalGeneration.incrementAndGet();
+        entries.clear();
+    }
+
+    private static String key(String bucketName, String objectName) {
+        return bucketName + "/" + objectName;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of cached objects, versions of an object count once
+     */
+    @Override
+    public long getSize() {
+        return entries.size();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private static class Entry {
+        private final ObjectStat stat;
+        private final ErrorResponseException missing;
+        private final long expiresAt;
+
+        Entry(ObjectStat stat, ErrorResponseException missing, long expiresAt) {
+            this.stat = stat;
+            this.missing = missing;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
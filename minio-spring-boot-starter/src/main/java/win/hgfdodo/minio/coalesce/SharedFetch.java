@@ -0,0 +1,331 @@
+package win.hgfdodo.minio.coalesce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * one upstream object stream read by several readers.
+ * <p>
+ * The upstream is read in chunks of {@code bufferSize} by whichever reader runs out of buffered data first. A chunk is
+ * dropped once every reader has consumed it, at most {@code maxBuffers} chunks are kept, so the upstream is read only as
+ * fast as the slowest open reader. Closing a reader detaches it, the upstream is closed when the last reader is closed.
+ * A reader which holds back the others for more than {@code maxWaitNanos} is detached as well, its later reads fail,
+ * so a stalled reader or one read after another on the same thread does not block the rest.
+ * Readers can join while the first chunk is still buffered.
+ *
+ * @author Guangfu He
+ */
+final class SharedFetch {
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final long maxWaitNanos;
+    private final Consumer<SharedFetch> onRetire;
+    private final CountDownLatch opened = new CountDownLatch(1);
+
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private final List<Reader> readers = new ArrayList<>();
+    /**
+     * stream offset of the first buffered byte
+     */
+    private long start;
+    /**
+     * stream offset after the last buffered byte
+     */
+    private long end;
+    private InputStream upstream;
+    private Throwable openFailure;
+    private IOException readFailure;
+    private boolean eof;
+    private boolean filling;
+    private boolean joinable = true;
+    private boolean abandoned;
+
+    /**
+     * @param onRetire called once when the fetch no longer accepts readers
+     */
+    SharedFetch(int bufferSize, int maxBuffers, long maxWaitNanos, Consumer<SharedFetch> onRetire) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = Math.max(1, maxBuffers);
+        this.maxWaitNanos = maxWaitNanos;
+        this.onRetire = onRetire;
+    }
+
+    /**
+     * @return new reader positioned at the start of the object, null if the fetch is no longer joinable
+     */
+    synchronized InputStream join() {
+        if (!joinable) {
+            return null;
+        }
+        Reader reader = new Reader();
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * set the upstream opened by the first caller
+     */
+    void open(InputStream in) throws IOException {
+        boolean unused;
+        synchronized (this) {
+            unused = readers.isEmpty();
+            if (!unused) {
+                upstream = in;
+            }
+            notifyAll();
+        }
+        opened.countDown();
+        if (unused) {
+            in.close();
+        }
+    }
+
+    /**
+     * the upstream could not be opened, joined readers receive the error
+     */
+    void fail(Throwable e) {
+        synchronized (this) {
+            openFailure = e;
+            retire();
+            notifyAll();
+        }
+        opened.countDown();
+    }
+
+    /**
+     * wait until the first caller opened the upstream
+     *
+     * @return failure of the open, null if the upstream is open
+     */
+    Throwable awaitOpen() throws InterruptedException {
+        opened.await();
+        synchronized (this) {
+            return openFailure;
+        }
+    }
+
+    /**
+     * stop accepting readers
+     */
+    synchronized void retire() {
+        if (joinable) {
+            joinable = false;
+            onRetire.accept(this);
+        }
+    }
+
+    private void fill() {
+        byte[] data = new byte[bufferSize];
+        int length = 0;
+        IOException error = null;
+        try {
+            while (length < data.length) {
+                int n = upstream.read(data, length, data.length - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        boolean done;
+        synchronized (this) {
+            filling = false;
+            if (length > 0) {
+                chunks.addLast(new Chunk(data, length));
+                end += length;
+            }
+            if (error != null) {
+                readFailure = error;
+            } else if (length < data.length) {
+                eof = true;
+            }
+            done = eof || readFailure != null || abandoned;
+            notifyAll();
+        }
+        if (done) {
+            closeUpstream();
+        }
+    }
+
+    private void closeUpstream() {
+        try {
+            upstream.close();
+        } catch (IOException e) {
+            // the response is no longer needed
+        }
+    }
+
+    /**
+     * drop chunks consumed by all readers, called with the lock held
+     */
+    private void trim() {
+        long min = end;
+        for (Reader reader : readers) {
+            min = Math.min(min, reader.position);
+        }
+        while (!chunks.isEmpty() && start + chunks.peekFirst().length <= min) {
+            start += chunks.removeFirst().length;
+            retire();
+            notifyAll();
+        }
+    }
+
+    /**
+     * detach the readers holding the first chunk, called with the lock held
+     */
+    private void detachSlowest() {
+        long first = start + chunks.peekFirst().length;
+        for (Iterator<Reader> iterator = readers.iterator(); iterator.hasNext(); ) {
+            Reader reader = iterator.next();
+            if (reader.position < first) {
+                reader.detached = true;
+                iterator.remove();
+            }
+        }
+        trim();
+        notifyAll();
+    }
+
+    private int copy(long position, byte[] b, int off, int len) {
+        long chunkStart = start;
+        for (Chunk chunk : chunks) {
+            if (position < chunkStart + chunk.length) {
+                int from = (int) (position - chunkStart);
+                int n = Math.min(len, chunk.length - from);
+                System.arraycopy(chunk.data, from, b, off, n);
+                return n;
+            }
+            chunkStart += chunk.length;
+        }
+        throw new IllegalStateException("position " + position + " is not buffered");
+    }
+
+    private static class Chunk {
+        private final byte[] data;
+        private final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private class Reader extends InputStream {
+        private long position;
+        private boolean closed;
+        private boolean detached;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                synchronized (SharedFetch.this) {
+                    long blockedSince = 0;
+                    while (true) {
+                        if (closed) {
+                            throw new IOException("Stream closed");
+                        }
+                        if (detached) {
+                            throw new IOException("fell behind the other readers of the shared minio response for more than "
+                                    + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                        }
+                        if (position < end) {
+                            int n = copy(position, b, off, len);
+                            position += n;
+                            trim();
+                            return n;
+                        }
+                        if (openFailure != null) {
+                            throw new IOException("shared minio request failed", openFailure);
+                        }
+                        if (readFailure != null) {
+                            throw readFailure;
+                        }
+                        if (eof) {
+                            return -1;
+                        }
+                        if (upstream != null && !filling && chunks.size() < maxBuffers) {
+                            filling = true;
+                            break;
+                        }
+                        try {
+                            if (upstream != null && !filling) {
+                                // buffers are full, held by slower readers
+                                long now = System.nanoTime();
+                                if (blockedSince == 0) {
+                                    blockedSince = now;
+                                } else if (now - blockedSince >= maxWaitNanos) {
+                                    detachSlowest();
+                                    blockedSince = 0;
+                                    continue;
+                                }
+                                TimeUnit.NANOSECONDS.timedWait(SharedFetch.this, maxWaitNanos - (now - blockedSince));
+                            } else {
+                                blockedSince = 0;
+                                SharedFetch.this.wait();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("interrupted while waiting for shared minio response");
+                        }
+                    }
+                }
+                fill();
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (SharedFetch.this) {
+                return closed ? 0 : (int) Math.min(Integer.MAX_VALUE, end - position);
+            }
+        }
+
+        @Override
+        public void close() {
+            boolean last;
+            synchronized (SharedFetch.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (detached) {
+                    return;
+                }
+                readers.remove(this);
+                last = readers.isEmpty();
+                if (last) {
+                    retire();
+                    chunks.clear();
+                    abandoned = true;
+                } else {
+                    trim();
+                }
+                SharedFetch.this.notifyAll();
+                if (!last || upstream == null || filling || eof || readFailure != null) {
+                    // an upstream being filled is closed by its filler, a finished one is already closed
+                    return;
+                }
+            }
+            closeUpstream();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package win.hgfdodo.minio.coalesce;
+
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * coalesce identical concurrent minio calls into one request.
+ * <p>
+ * {@link #execute} runs the call of the first caller and hands its result or exception to the callers arriving while
+ * it is in flight, e.g. stat and presign calls during a cache miss storm, and reads of objects up to
+ * {@link #getMaxObjectSize()} into memory. {@link #share} tees the content of large objects instead: one upstream
+ * response is read through a bounded shared buffer by every reader (see {@link SharedFetch}), as fast as the slowest
+ * reader, a reader holding back the others for more than {@code maxWait} is detached.
+ *
+ * @author Guangfu He
+ */
+public class SingleFlight {
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public final static int DEFAULT_BUFFERS = 16;
+    public final static Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(1);
+
+    /**
+     * the coalesced minio call
+     *
+     * @param <V> call result
+     * @param <X> extra checked exception of the call, inferred as RuntimeException if there is none
+     */
+    @FunctionalInterface
+    public interface Call<V, X extends Exception> {
+        V call() throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+    }
+
+    private final int bufferSize;
+    private final int buffers;
+    private final long maxObjectSize;
+    private final Duration maxWait;
+    private final ConcurrentMap<String, Flight> calls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SharedFetch> fetches = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * @param bufferSize bytes read from the upstream at a time
+     * @param buffers    max buffers kept for the slowest reader of a shared object stream
+     */
+    public SingleFlight(int bufferSize, int buffers) {
+        this(bufferSize, buffers, (long) bufferSize * buffers, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * @param maxObjectSize max size of objects read into memory once for identical concurrent reads
+     * @param maxWait       max time the readers of a shared object stream wait for the slowest one
+     */
+    public SingleFlight(int bufferSize, int buffers, long maxObjectSize, Duration maxWait) {
+        this.bufferSize = bufferSize;
+        this.buffers = buffers;
+        this.maxObjectSize = maxObjectSize;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * run the call, or wait for the identical call in flight and return its result
+     *
+     * @param variant operation and arguments other than bucket and object, e.g. {@code "statObject"}
+     */
+    @SuppressWarnings("unchecked")
+    public <V, X extends Exception> V execute(String bucketName, String objectName, String variant, Call<V, X> call) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = key(bucketName, objectName, variant);
+        Flight flight = new Flight();
+        Flight existing = calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            try {
+                existing.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for shared minio call " + key);
+            }
+            if (existing.failure != null) {
+                throw SingleFlight.<X>rethrow(existing.failure);
+            }
+            return (V) existing.value;
+        }
+        executions.increment();
+        try {
+            V value = call.call();
+            flight.value = value;
+            return value;
+        } catch (Throwable e) {
+            flight.failure = e;
+            throw e;
+        } finally {
+            calls.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+
+    /**
+     * open the object stream, or join the identical stream in flight.
+     * <p>
+     * Every caller gets its own stream which must be closed, the upstream is closed when all of them are.
+     *
+     * @param variant operation and arguments other than bucket and object, e.g. {@code "getObject"}
+     */
+    public <X extends Exception> InputStream share(String bucketName, String objectName, String variant, Call<InputStream, X> open) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        String key = key(bucketName, objectName, variant);
+        while (true) {
+            SharedFetch existing = fetches.get(key);
+            if (existing != null) {
+                InputStream reader = existing.join();
+                if (reader != null) {
+                    shared.increment();
+                    Throwable failure;
+                    try {
+                        failure = existing.awaitOpen();
+                    } catch (InterruptedException e) {
+                        reader.close();
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("interrupted while waiting for shared minio response " + key);
+                    }
+                    if (failure != null) {
+                        reader.close();
+                        throw SingleFlight.<X>rethrow(failure);
+                    }
+                    return reader;
+                }
+                fetches.remove(key, existing);
+                continue;
+            }
+            SharedFetch fetch = new SharedFetch(bufferSize, buffers, maxWait.toNanos(), retired -> fetches.remove(key, retired));
+            if (fetches.putIfAbsent(key, fetch) != null) {
+                continue;
+            }
+            executions.increment();
+            // joined before the upstream is opened so that its first chunk is kept for the callers arriving meanwhile
+            InputStream reader = fetch.join();
+            InputStream upstream;
+            try {
+                upstream = open.call();
+            } catch (Throwable e) {
+                fetch.fail(e);
+                reader.close();
+                throw e;
+            }
+            fetch.open(upstream);
+            return reader;
+        }
+    }
+
+    /**
+     * stop sharing calls in flight for the object, callers arriving later send their own request, e.g. after a write
+     */
+    public void forget(String bucketName, String objectName) {
+        String prefix = key(bucketName, objectName, "");
+        calls.keySet().removeIf(key -> key.startsWith(prefix));
+        for (Map.Entry<String, SharedFetch> entry : fetches.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().retire();
+            }
+        }
+    }
+
+    public long getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * @return calls sent to minio
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * @return calls served by another call in flight
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    /**
+     * result of a call in flight, published by the count down of {@code done}
+     */
+    private static class Flight {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Object value;
+        private Throwable failure;
+    }
+
+    private static String key(String bucketName, String objectName, String variant) {
+        return bucketName + "/" + objectName + "#" + variant;
+    }
+
+    /**
+     * rethrow the exception of the first caller, which is one of the declared exceptions of its call
+     *
+     * @return never returns, declared so that callers can {@code throw} it
+     */
+    @SuppressWarnings("unchecked")
+    private static <X extends Exception> RuntimeException rethrow(Throwable e) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof InvalidKeyException) {
+            throw (InvalidKeyException) e;
+        }
+        if (e instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) e;
+        }
+        if (e instanceof ErrorResponseException) {
+            throw (ErrorResponseException) e;
+        }
+        if (e instanceof InvalidResponseException) {
+            throw (InvalidResponseException) e;
+        }
+        if (e instanceof InsufficientDataException) {
+            throw (InsufficientDataException) e;
+        }
+        if (e instanceof ServerException) {
+            throw (ServerException) e;
+        }
+        if (e instanceof InternalException) {
+            throw (InternalException) e;
+        }
+        if (e instanceof XmlParserException) {
+            throw (XmlParserException) e;
+        }
+        if (e instanceof InvalidBucketNameException) {
+            throw (InvalidBucketNameException) e;
+        }
+        throw (X) e;
+    }
+}
@@ -0,0 +1,38 @@
+package win.hgfdodo.minio.config;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import win.hgfdodo.minio.connection.TunedSocketFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * build tuned OkHttpClient from {@link MinioProperties.Http}
+ *
+ * @author Guangfu He
+ */
+final class HttpClients {
+
+    private HttpClients() {
+    }
+
+    static OkHttpClient create(MinioProperties.Http http) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(http.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(http.getMaxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(http.getMaxIdleConnections(), http.getKeepAliveDuration().toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(http.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(http.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(http.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .socketFactory(new TunedSocketFactory(http.isTcpNoDelay(), http.getSendBufferSize(), http.getReceiveBufferSize()))
+                .protocols(http.isHttp2() ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1))
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package win.hgfdodo.minio.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import win.hgfdodo.minio.actuate.MinioActuatorEndpoint;
+import win.hgfdodo.minio.cache.CacheStatistics;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * minio actuator endpoint auto configuration, active when actuator is on the classpath
+ *
+ * @author Guangfu He
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+@AutoConfigureAfter(MinioAutoConfiguration.class)
+public class MinioActuatorAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public MinioActuatorEndpoint minioActuatorEndpoint(Map<String, MinioConnectionFactory> minioConnectionFactories,
+                                                       ObjectProvider<Map<String, CacheStatistics>> minioCaches) {
+        return new MinioActuatorEndpoint(minioConnectionFactories, minioCaches.getIfAvailable(Collections::emptyMap));
+    }
+}
@@ -1,15 +1,47 @@
 package win.hgfdodo.minio.config;
 
 import io.minio.MinioClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 import org.springframework.util.StringUtils;
+import win.hgfdodo.minio.cache.BucketNotificationListener;
+import win.hgfdodo.minio.cache.BlockCache;
+import win.hgfdodo.minio.cache.DiskObjectCache;
+import win.hgfdodo.minio.cache.MemoryObjectCache;
+import win.hgfdodo.minio.cache.ObjectCache;
+import win.hgfdodo.minio.cache.StatCache;
+import win.hgfdodo.minio.coalesce.SingleFlight;
+import win.hgfdodo.minio.connection.LoadBalancer;
 import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.executor.MinioExecutor;
+import win.hgfdodo.minio.presign.Presigner;
+import win.hgfdodo.minio.resilience.AdaptiveLimitInterceptor;
+import win.hgfdodo.minio.resilience.BulkheadInterceptor;
+import win.hgfdodo.minio.resilience.CircuitBreakerRegistry;
+import win.hgfdodo.minio.resilience.HedgingInterceptor;
+import win.hgfdodo.minio.resilience.RetryBudget;
+import win.hgfdodo.minio.resilience.RetryInterceptor;
+import win.hgfdodo.minio.resilience.VegasLimiter;
+import win.hgfdodo.minio.service.MinioAsyncTemplate;
 import win.hgfdodo.minio.service.MinioTemplate;
+import win.hgfdodo.minio.transfer.ParallelDownloader;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * minio connection auto configuration using MinioProperties
@@ -18,31 +50,176 @@ import win.hgfdodo.minio.service.MinioTemplate;
  */
 @EnableConfigurationProperties(MinioProperties.class)
 @Configuration
+@Import(NamedMinioClientsRegistrar.class)
 public class MinioAutoConfiguration {
     @Autowired
     MinioProperties minioProperties;
 
     /**
-     * generate Minio Client
+     * generate Minio Client, the client is shared and closed with the application context
      *
      * @return Minio Client bean
      */
-    @Bean
+    @Bean(destroyMethod = "close")
+    @Primary
     @ConditionalOnClass(MinioClient.class)
     public MinioConnectionFactory minioConnectionFactory() {
-        MinioClient.Builder builder = MinioClient.builder();
-        if (!StringUtils.isEmpty(minioProperties.getRegion())) {
-            builder.region(minioProperties.getRegion());
-        }
-        builder
-                .endpoint(minioProperties.getUrl())
-                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey());
-        return new MinioConnectionFactory(builder);
+        return createConnectionFactory(minioProperties);
     }
 
     @Bean
+    @Primary
     @ConditionalOnBean(MinioConnectionFactory.class)
-    public MinioTemplate minioTemplate(MinioConnectionFactory minioConnectionFactory) {
-        return new MinioTemplate(minioConnectionFactory);
+    public MinioTemplate minioTemplate(MinioConnectionFactory minioConnectionFactory, ObjectProvider<StatCache> statCache, ObjectProvider<SingleFlight> singleFlight,
+                                       ObjectProvider<Presigner> presigner) {
+        MinioTemplate minioTemplate = new MinioTemplate(minioConnectionFactory);
+        minioTemplate.setStatCache(statCache.getIfAvailable());
+        minioTemplate.setSingleFlight(singleFlight.getIfAvailable());
+        minioTemplate.setPresigner(presigner.getIfAvailable());
+        return minioTemplate;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.presign", name = "enabled", havingValue = "true")
+    public Presigner presigner() {
+        String endpoint = minioProperties.getEndpoints().isEmpty() ? minioProperties.getUrl() : minioProperties.getEndpoints().get(0);
+        return new Presigner(endpoint, minioProperties.getAccessKey(), minioProperties.getSecretKey(), minioProperties.getRegion(),
+                minioProperties.getPresign().getMaxCachedUrls());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.coalesce", name = "enabled", havingValue = "true")
+    public SingleFlight singleFlight() {
+        MinioProperties.Coalesce coalesce = minioProperties.getCoalesce();
+        return new SingleFlight((int) coalesce.getBufferSize().toBytes(), coalesce.getBuffers(),
+                coalesce.getMaxObjectSize().toBytes(), coalesce.getMaxWait());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public MinioExecutor minioExecutor() {
+        MinioProperties.Async async = minioProperties.getAsync();
+        return new MinioExecutor(minioProperties.getExecutor(), async.getCorePoolSize(), async.getMaxPoolSize(), async.getQueueCapacity(), async.getMaxConcurrency());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MinioAsyncTemplate minioAsyncTemplate(MinioTemplate minioTemplate, MinioExecutor minioExecutor) {
+        return new MinioAsyncTemplate(minioTemplate, minioExecutor, minioProperties.getAsync().getPrefetchIdleTimeout());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public ParallelDownloader parallelDownloader(MinioConnectionFactory minioConnectionFactory, MinioExecutor minioExecutor) {
+        MinioProperties.Download download = minioProperties.getDownload();
+        return new ParallelDownloader(minioConnectionFactory, minioExecutor, download.getPartSize().toBytes(),
+                download.getParallelism(), download.getWindow(), download.getMaxRangeAttempts());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.cache.disk", name = "enabled", havingValue = "true")
+    public DiskObjectCache diskObjectCache(MinioTemplate minioTemplate) throws IOException {
+        MinioProperties.Cache.Disk disk = minioProperties.getCache().getDisk();
+        DiskObjectCache diskObjectCache = new DiskObjectCache(minioTemplate, Paths.get(disk.getDirectory()), disk.getMaxSize().toBytes(),
+                disk.getMaxObjectSize().toBytes(), disk.getTtl());
+        // behind the memory cache when both are enabled
+        if (!minioProperties.getCache().getMemory().isEnabled()) {
+            minioTemplate.setObjectCache(diskObjectCache);
+        }
+        return diskObjectCache;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.cache.memory", name = "enabled", havingValue = "true")
+    public MemoryObjectCache memoryObjectCache(MinioTemplate minioTemplate, ObjectProvider<DiskObjectCache> diskObjectCache) {
+        MinioProperties.Cache.Memory memory = minioProperties.getCache().getMemory();
+        MemoryObjectCache memoryObjectCache = new MemoryObjectCache(minioTemplate, memory.getMaxSize().toBytes(), (int) memory.getMaxObjectSize().toBytes(),
+                memory.getTtl(), memory.isOffHeap());
+        // misses are read through the disk cache when both are enabled
+        diskObjectCache.ifAvailable(memoryObjectCache::setSource);
+        minioTemplate.setObjectCache(memoryObjectCache);
+        return memoryObjectCache;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.cache.block", name = "enabled", havingValue = "true")
+    public BlockCache blockCache(MinioTemplate minioTemplate, MinioExecutor minioExecutor) throws IOException {
+        MinioProperties.Cache.Block block = minioProperties.getCache().getBlock();
+        return new BlockCache(minioTemplate, minioExecutor, (int) block.getBlockSize().toBytes(), block.getMaxMemorySize().toBytes(),
+                Paths.get(block.getDirectory()), block.getMaxDiskSize().toBytes(), block.getParallelism(), block.getReadAhead());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.cache.stat", name = "enabled", havingValue = "true")
+    public StatCache statCache() {
+        MinioProperties.Cache.Stat stat = minioProperties.getCache().getStat();
+        return new StatCache(stat.getTtl(), stat.getNegativeTtl(), stat.getMaxEntries());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "spring.minio.cache.stat", name = "enabled", havingValue = "true")
+    public BucketNotificationListener bucketNotificationListener(MinioConnectionFactory minioConnectionFactory, StatCache statCache, ObjectProvider<ObjectCache> objectCaches) {
+        MinioProperties.Cache.Stat stat = minioProperties.getCache().getStat();
+        return new BucketNotificationListener(minioConnectionFactory, stat.getBuckets(), stat.getReconnectDelay(), statCache,
+                objectCaches.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.minio.warmup", name = "enabled", havingValue = "true")
+    public MinioWarmup minioWarmup(Map<String, MinioConnectionFactory> minioConnectionFactories) {
+        return new MinioWarmup(minioConnectionFactories, minioProperties.getWarmup());
+    }
+
+    static MinioConnectionFactory createConnectionFactory(MinioClientProperties properties) {
+        List<String> endpoints = properties.getEndpoints().isEmpty() ? Collections.singletonList(properties.getUrl()) : properties.getEndpoints();
+        List<MinioConnectionFactory.EndpointBuilder> builders = new ArrayList<>(endpoints.size());
+        for (String endpoint : endpoints) {
+            MinioClient.Builder builder = MinioClient.builder();
+            if (!StringUtils.isEmpty(properties.getRegion())) {
+                builder.region(properties.getRegion());
+            }
+            builder
+                    .endpoint(endpoint)
+                    .credentials(properties.getAccessKey(), properties.getSecretKey());
+            builders.add(new MinioConnectionFactory.EndpointBuilder(endpoint, builder));
+        }
+        MinioClientProperties.Balancer balancer = properties.getBalancer();
+        LoadBalancer loadBalancer = new LoadBalancer(balancer.getStrategy(), balancer.getFailureThreshold(), balancer.getEjectionTime(), balancer.getMaxEjectionTime());
+        MinioClientProperties.Http http = properties.getHttp();
+        MinioConnectionFactory factory = new MinioConnectionFactory(builders, () -> HttpClients.create(http), loadBalancer, properties.isLazyInit());
+        MinioClientProperties.Retry retry = properties.getRetry();
+        if (retry.isEnabled() && retry.getMaxAttempts() > 1) {
+            factory.addInterceptor(new RetryInterceptor(retry.getMaxAttempts(), retry.getInitialBackoff(), retry.getMaxBackoff(),
+                    new RetryBudget(retry.getBudgetRatio(), retry.getBudgetMinRetries())));
+        }
+        MinioClientProperties.Hedge hedge = properties.getHedge();
+        if (hedge.isEnabled()) {
+            factory.addInterceptor(new HedgingInterceptor(hedge.getPercentile(), hedge.getInitialDelay(), hedge.getMinDelay(), hedge.getBudgetRatio()));
+        }
+        MinioClientProperties.Bulkhead bulkhead = properties.getBulkhead();
+        if (bulkhead.isEnabled()) {
+            factory.addInterceptor(new BulkheadInterceptor(bulkhead.getMaxConcurrentCalls(), bulkhead.getMaxWait()));
+        }
+        MinioClientProperties.Limiter limiter = properties.getLimiter();
+        if (limiter.isEnabled()) {
+            factory.addInterceptor(new AdaptiveLimitInterceptor(vegasLimiter("read", limiter), vegasLimiter("write", limiter)));
+        }
+        MinioClientProperties.CircuitBreaker circuitBreaker = properties.getCircuitBreaker();
+        if (circuitBreaker.isEnabled()) {
+            factory.addNodeGuard(new CircuitBreakerRegistry(circuitBreaker.getFailureRateThreshold(), circuitBreaker.getMinimumCalls(),
+                    circuitBreaker.getWindowSize(), circuitBreaker.getOpenDuration(), circuitBreaker.getHalfOpenCalls()));
+        }
+        return factory;
+    }
+
+    private static VegasLimiter vegasLimiter(String name, MinioClientProperties.Limiter limiter) {
+        return new VegasLimiter(name, limiter.getInitialLimit(), limiter.getMinLimit(), limiter.getMaxLimit(), limiter.getMaxQueue(), limiter.getMaxWait().toNanos());
     }
 }
@@ -0,0 +1,781 @@
+package win.hgfdodo.minio.config;
+
+import win.hgfdodo.minio.connection.LoadBalancer;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * connection settings of one minio client
+ *
+ * @author Guangfu He
+ */
+public class MinioClientProperties {
+    /**
+     * minio URL, it should be a  URL, domain name, IPv4 address or IPv6 address
+     */
+    private String url;
+    /**
+     * endpoints of a distributed minio cluster, requests are balanced among them. {@code url} is used if empty
+     */
+    private List<String> endpoints = new ArrayList<>();
+    /**
+     * uniquely identifies a minio account.
+     */
+    private String accessKey;
+    /**
+     * the password to a minio account.
+     */
+    private String secretKey;
+
+    /**
+     * Not Required, minio server region info， used with cloud minio
+     */
+    private String region;
+
+    /**
+     * build the http client and minio clients on first use instead of at startup
+     */
+    private boolean lazyInit = false;
+
+    /**
+     * http connection pool, dispatcher and socket settings
+     */
+    private Http http = new Http();
+
+    /**
+     * endpoint selection and passive health check settings, used with multiple endpoints
+     */
+    private Balancer balancer = new Balancer();
+
+    /**
+     * retry policy of transient failures
+     */
+    private Retry retry = new Retry();
+
+    /**
+     * hedged reads, disabled by default
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * circuit breakers per endpoint and operation type
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * concurrent call limits per operation type
+     */
+    private Bulkhead bulkhead = new Bulkhead();
+
+    /**
+     * adaptive concurrency limits of reads and writes, disabled by default
+     */
+    private Limiter limiter = new Limiter();
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public String getAccessKey() {
+        return accessKey;
+    }
+
+    public void setAccessKey(String accessKey) {
+        this.accessKey = accessKey;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public void setSecretKey(String secretKey) {
+        this.secretKey = secretKey;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public void setHttp(Http http) {
+        this.http = http;
+    }
+
+    public Balancer getBalancer() {
+        return balancer;
+    }
+
+    public void setBalancer(Balancer balancer) {
+        this.balancer = balancer;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public void setRetry(Retry retry) {
+        this.retry = retry;
+    }
+
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public Limiter getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(Limiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public String toString() {
+        return "MinioClientProperties{" +
+                "url='" + url + '\'' +
+                ", endpoints=" + endpoints +
+                ", accessKey='" + accessKey + '\'' +
+                ", secretKey='" + secretKey + '\'' +
+                ", region='" + region + '\'' +
+                ", lazyInit=" + lazyInit +
+                ", http=" + http +
+                ", balancer=" + balancer +
+                ", retry=" + retry +
+                ", hedge=" + hedge +
+                ", circuitBreaker=" + circuitBreaker +
+                ", bulkhead=" + bulkhead +
+                ", limiter=" + limiter +
+                '}';
+    }
+
+    /**
+     * circuit breaker settings, bound to {@code spring.minio.circuit-breaker}
+     */
+    public static class CircuitBreaker {
+        private boolean enabled = false;
+        /**
+         * failure rate of the window which opens the breaker
+         */
+        private double failureRateThreshold = 0.5;
+        /**
+         * calls recorded before the failure rate is evaluated
+         */
+        private int minimumCalls = 20;
+        /**
+         * recent calls in the failure rate window
+         */
+        private int windowSize = 100;
+        /**
+         * time the breaker stays open before probe calls are let through
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+        /**
+         * probe calls in half-open state, the breaker closes if they all succeed
+         */
+        private int halfOpenCalls = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+
+        @Override
+        public String toString() {
+            return "CircuitBreaker{" +
+                    "enabled=" + enabled +
+                    ", failureRateThreshold=" + failureRateThreshold +
+                    ", minimumCalls=" + minimumCalls +
+                    ", windowSize=" + windowSize +
+                    ", openDuration=" + openDuration +
+                    ", halfOpenCalls=" + halfOpenCalls +
+                    '}';
+        }
+    }
+
+    /**
+     * bulkhead settings, bound to {@code spring.minio.bulkhead}
+     */
+    public static class Bulkhead {
+        private boolean enabled = false;
+        /**
+         * max concurrent calls of each operation type: read, write, list, admin
+         */
+        private Map<MinioOperation.Type, Integer> maxConcurrentCalls = new EnumMap<>(MinioOperation.Type.class);
+        /**
+         * max time to wait for a free slot, 0 to fail fast
+         */
+        private Duration maxWait = Duration.ZERO;
+
+        public Bulkhead() {
+            maxConcurrentCalls.put(MinioOperation.Type.READ, 256);
+            maxConcurrentCalls.put(MinioOperation.Type.WRITE, 128);
+            maxConcurrentCalls.put(MinioOperation.Type.LIST, 64);
+            maxConcurrentCalls.put(MinioOperation.Type.ADMIN, 32);
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<MinioOperation.Type, Integer> getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(Map<MinioOperation.Type, Integer> maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return "Bulkhead{" +
+                    "enabled=" + enabled +
+                    ", maxConcurrentCalls=" + maxConcurrentCalls +
+                    ", maxWait=" + maxWait +
+                    '}';
+        }
+    }
+
+    /**
+     * adaptive concurrency limiter settings, bound to {@code spring.minio.limiter}
+     */
+    public static class Limiter {
+        private boolean enabled = false;
+        private int initialLimit = 32;
+        private int minLimit = 4;
+        private int maxLimit = 512;
+        /**
+         * max calls waiting for a slot, calls beyond are rejected
+         */
+        private int maxQueue = 128;
+        /**
+         * max time a call waits for a slot, 0 to reject immediately
+         */
+        private Duration maxWait = Duration.ofMillis(50);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return "Limiter{" +
+                    "enabled=" + enabled +
+                    ", initialLimit=" + initialLimit +
+                    ", minLimit=" + minLimit +
+                    ", maxLimit=" + maxLimit +
+                    ", maxQueue=" + maxQueue +
+                    ", maxWait=" + maxWait +
+                    '}';
+        }
+    }
+
+    /**
+     * hedged getObject/getObjectByPart/getObjectInfo settings, bound to {@code spring.minio.hedge}
+     */
+    public static class Hedge {
+        private boolean enabled = false;
+        /**
+         * a duplicate request is sent when the first has no response after this latency percentile
+         */
+        private double percentile = 0.95;
+        /**
+         * hedge delay used until enough latencies are recorded
+         */
+        private Duration initialDelay = Duration.ofMillis(100);
+        private Duration minDelay = Duration.ofMillis(5);
+        /**
+         * max extra requests per hedgeable request
+         */
+        private double budgetRatio = 0.05;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        @Override
+        public String toString() {
+            return "Hedge{" +
+                    "enabled=" + enabled +
+                    ", percentile=" + percentile +
+                    ", initialDelay=" + initialDelay +
+                    ", minDelay=" + minDelay +
+                    ", budgetRatio=" + budgetRatio +
+                    '}';
+        }
+    }
+
+    /**
+     * retry settings, bound to {@code spring.minio.retry}
+     */
+    public static class Retry {
+        private boolean enabled = false;
+        /**
+         * max attempts including the first one
+         */
+        private int maxAttempts = 3;
+        /**
+         * upper bound of the first backoff, doubled on each retry, the actual backoff is random below it
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        /**
+         * retries allowed per request, so retries add at most this ratio of load during an outage
+         */
+        private double budgetRatio = 0.1;
+        /**
+         * retries always allowed when traffic is low
+         */
+        private int budgetMinRetries = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getBudgetMinRetries() {
+            return budgetMinRetries;
+        }
+
+        public void setBudgetMinRetries(int budgetMinRetries) {
+            this.budgetMinRetries = budgetMinRetries;
+        }
+
+        @Override
+        public String toString() {
+            return "Retry{" +
+                    "enabled=" + enabled +
+                    ", maxAttempts=" + maxAttempts +
+                    ", initialBackoff=" + initialBackoff +
+                    ", maxBackoff=" + maxBackoff +
+                    ", budgetRatio=" + budgetRatio +
+                    ", budgetMinRetries=" + budgetMinRetries +
+                    '}';
+        }
+    }
+
+    /**
+     * load balancer settings, bound to {@code spring.minio.balancer}
+     */
+    public static class Balancer {
+        private LoadBalancer.Strategy strategy = LoadBalancer.Strategy.POWER_OF_TWO_CHOICES;
+        /**
+         * consecutive 5xx responses or I/O errors before a node is ejected
+         */
+        private int failureThreshold = 3;
+        /**
+         * ejection time of the first ejection, doubled on each consecutive ejection
+         */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+        public LoadBalancer.Strategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(LoadBalancer.Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getEjectionTime() {
+            return ejectionTime;
+        }
+
+        public void setEjectionTime(Duration ejectionTime) {
+            this.ejectionTime = ejectionTime;
+        }
+
+        public Duration getMaxEjectionTime() {
+            return maxEjectionTime;
+        }
+
+        public void setMaxEjectionTime(Duration maxEjectionTime) {
+            this.maxEjectionTime = maxEjectionTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Balancer{" +
+                    "strategy=" + strategy +
+                    ", failureThreshold=" + failureThreshold +
+                    ", ejectionTime=" + ejectionTime +
+                    ", maxEjectionTime=" + maxEjectionTime +
+                    '}';
+        }
+    }
+
+    /**
+     * http client settings, bound to {@code spring.minio.http}
+     */
+    public static class Http {
+        /**
+         * max idle connections kept in the connection pool
+         */
+        private int maxIdleConnections = 32;
+        /**
+         * how long an idle connection is kept alive in the pool
+         */
+        private Duration keepAliveDuration = Duration.ofMinutes(5);
+        /**
+         * max concurrent requests of the dispatcher
+         */
+        private int maxRequests = 256;
+        /**
+         * max concurrent requests to one host of the dispatcher
+         */
+        private int maxRequestsPerHost = 64;
+        private Duration connectTimeout = Duration.ofMinutes(5);
+        private Duration readTimeout = Duration.ofMinutes(5);
+        private Duration writeTimeout = Duration.ofMinutes(5);
+        /**
+         * disable Nagle's algorithm on connection sockets
+         */
+        private boolean tcpNoDelay = true;
+        /**
+         * socket send buffer size in bytes, 0 means system default
+         */
+        private int sendBufferSize = 0;
+        /**
+         * socket receive buffer size in bytes, 0 means system default
+         */
+        private int receiveBufferSize = 0;
+        /**
+         * negotiate HTTP/2 with the server, only HTTP/1.1 is used if false
+         */
+        private boolean http2 = false;
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public void setMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+
+        public Duration getKeepAliveDuration() {
+            return keepAliveDuration;
+        }
+
+        public void setKeepAliveDuration(Duration keepAliveDuration) {
+            this.keepAliveDuration = keepAliveDuration;
+        }
+
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        public void setMaxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public Duration getWriteTimeout() {
+            return writeTimeout;
+        }
+
+        public void setWriteTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+
+        public boolean isTcpNoDelay() {
+            return tcpNoDelay;
+        }
+
+        public void setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+        }
+
+        public int getSendBufferSize() {
+            return sendBufferSize;
+        }
+
+        public void setSendBufferSize(int sendBufferSize) {
+            this.sendBufferSize = sendBufferSize;
+        }
+
+        public int getReceiveBufferSize() {
+            return receiveBufferSize;
+        }
+
+        public void setReceiveBufferSize(int receiveBufferSize) {
+            this.receiveBufferSize = receiveBufferSize;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        @Override
+        public String toString() {
+            return "Http{" +
+                    "maxIdleConnections=" + maxIdleConnections +
+                    ", keepAliveDuration=" + keepAliveDuration +
+                    ", maxRequests=" + maxRequests +
+                    ", maxRequestsPerHost=" + maxRequestsPerHost +
+                    ", connectTimeout=" + connectTimeout +
+                    ", readTimeout=" + readTimeout +
+                    ", writeTimeout=" + writeTimeout +
+                    ", tcpNoDelay=" + tcpNoDelay +
+                    ", sendBufferSize=" + sendBufferSize +
+                    ", receiveBufferSize=" + receiveBufferSize +
+                    ", http2=" + http2 +
+                    '}';
+        }
+    }
+}
@@ -1,71 +1,810 @@
 package win.hgfdodo.minio.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import win.hgfdodo.minio.executor.MinioExecutor;
+import win.hgfdodo.minio.transfer.PrefetchingInputStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Minio server connection settings
+ * <p>
+ * The top level settings configure the default client, extra clients with isolated connection pools
+ * can be declared under {@code spring.minio.clients.<name>}.
  *
  * @author Guangfu He
  */
 @ConfigurationProperties("spring.minio")
-public class MinioProperties {
+public class MinioProperties extends MinioClientProperties {
+
     /**
-     * minio URL, it should be a  URL, domain name, IPv4 address or IPv6 address
+     * named clients, each gets its own MinioConnectionFactory and MinioTemplate bean qualified by the name
      */
-    private String url;
+    private Map<String, MinioClientProperties> clients = new LinkedHashMap<>();
+
     /**
-     * uniquely identifies a minio account.
+     * thread mode of minio I/O tasks, {@code virtual} requires Java 21+
      */
-    private String accessKey;
+    private MinioExecutor.Mode executor = MinioExecutor.Mode.PLATFORM;
+
     /**
-     * the password to a minio account.
+     * executor settings of MinioAsyncTemplate
      */
-    private String secretKey;
+    private Async async = new Async();
 
     /**
-     * Not Required, minio server region info， used with cloud minio
+     * connection warm-up on application ready, disabled by default
      */
-    private String region;
+    private Warmup warmup = new Warmup();
 
-    public String getUrl() {
-        return url;
+    /**
+     * parallel ranged download settings of ParallelDownloader
+     */
+    private Download download = new Download();
+
+    /**
+     * local object caches, disabled by default
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * request coalescing of MinioTemplate, disabled by default
+     */
+    private Coalesce coalesce = new Coalesce();
+
+    /**
+     * local presigning of MinioTemplate urls, disabled by default
+     */
+    private Presign presign = new Presign();
+
+    public Map<String, MinioClientProperties> getClients() {
+        return clients;
     }
 
-    public void setUrl(String url) {
-        this.url = url;
+    public void setClients(Map<String, MinioClientProperties> clients) {
+        this.clients = clients;
     }
 
-    public String getAccessKey() {
-        return accessKey;
+    public MinioExecutor.Mode getExecutor() {
+        return executor;
     }
 
-    public void setAccessKey(String accessKey) {
-        this.accessKey = accessKey;
+    public void setExecutor(MinioExecutor.Mode executor) {
+        this.executor = executor;
     }
 
-    public String getSecretKey() {
-        return secretKey;
+    public Async getAsync() {
+        return async;
     }
 
-    public void setSecretKey(String secretKey) {
-        this.secretKey = secretKey;
+    public void setAsync(Async async) {
+        this.async = async;
     }
 
-    public String getRegion() {
-        return region;
+    public Warmup getWarmup() {
+        return warmup;
     }
 
-    public void setRegion(String region) {
-        this.region = region;
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    public Download getDownload() {
+        return download;
+    }
+
+    public void setDownload(Download download) {
+        this.download = download;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Coalesce getCoalesce() {
+        return coalesce;
+    }
+
+    public void setCoalesce(Coalesce coalesce) {
+        this.coalesce = coalesce;
+    }
+
+    public Presign getPresign() {
+        return presign;
+    }
+
+    public void setPresign(Presign presign) {
+        this.presign = presign;
     }
 
     @Override
     public String toString() {
         return "MinioProperties{" +
-                "url='" + url + '\'' +
-                ", accessKey='" + accessKey + '\'' +
-                ", secretKey='" + secretKey + '\'' +
-                ", region='" + region + '\'' +
+                "default=" + super.toString() +
+                ", clients=" + clients +
+                ", executor=" + executor +
+                ", async=" + async +
+                ", warmup=" + warmup +
+                ", download=" + download +
+                ", cache=" + cache +
+                ", coalesce=" + coalesce +
+                ", presign=" + presign +
                 '}';
     }
+
+    /**
+     * warm-up settings, bound to {@code spring.minio.warmup}
+     */
+    public static class Warmup {
+        private boolean enabled = false;
+        /**
+         * connections opened per endpoint of every client
+         */
+        private int connections = 4;
+        /**
+         * path requested with HEAD, must not require authentication
+         */
+        private String path = "/minio/health/live";
+        private Duration timeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public void setConnections(int connections) {
+            this.connections = connections;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String toString() {
+            return "Warmup{" +
+                    "enabled=" + enabled +
+                    ", connections=" + connections +
+                    ", path='" + path + '\'' +
+                    ", timeout=" + timeout +
+                    '}';
+        }
+    }
+
+    /**
+     * parallel download settings, bound to {@code spring.minio.download}
+     */
+    public static class Download {
+        /**
+         * bytes of each range request
+         */
+        private DataSize partSize = DataSize.ofMegabytes(8);
+        /**
+         * ranges downloaded at the same time to a file
+         */
+        private int parallelism = 4;
+        /**
+         * ranges fetched ahead by a download stream, bounds its memory to {@code window * partSize}
+         */
+        private int window = 8;
+        private int maxRangeAttempts = 3;
+
+        public DataSize getPartSize() {
+            return partSize;
+        }
+
+        public void setPartSize(DataSize partSize) {
+            this.partSize = partSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getWindow() {
+            return window;
+        }
+
+        public void setWindow(int window) {
+            this.window = window;
+        }
+
+        public int getMaxRangeAttempts() {
+            return maxRangeAttempts;
+        }
+
+        public void setMaxRangeAttempts(int maxRangeAttempts) {
+            this.maxRangeAttempts = maxRangeAttempts;
+        }
+
+        @Override
+        public String toString() {
+            return "Download{" +
+                    "partSize=" + partSize +
+                    ", parallelism=" + parallelism +
+                    ", window=" + window +
+                    ", maxRangeAttempts=" + maxRangeAttempts +
+                    '}';
+        }
+    }
+
+    /**
+     * presign settings, bound to {@code spring.minio.presign}
+     */
+    public static class Presign {
+        private boolean enabled = false;
+        /**
+         * signed urls kept for reuse, the least recently used ones are dropped first, 0 to sign every url
+         */
+        private int maxCachedUrls = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxCachedUrls() {
+            return maxCachedUrls;
+        }
+
+        public void setMaxCachedUrls(int maxCachedUrls) {
+            this.maxCachedUrls = maxCachedUrls;
+        }
+
+        @Override
+        public String toString() {
+            return "Presign{" +
+                    "enabled=" + enabled +
+                    ", maxCachedUrls=" + maxCachedUrls +
+                    '}';
+        }
+    }
+
+    /**
+     * request coalescing settings, bound to {@code spring.minio.coalesce}
+     */
+    public static class Coalesce {
+        private boolean enabled = false;
+        /**
+         * max size of objects read once into memory for identical concurrent {@code getObject} calls, larger objects
+         * are read by a request of their own unless read with {@code getObjectShared}
+         */
+        private DataSize maxObjectSize = DataSize.ofMegabytes(1);
+        /**
+         * bytes read from a shared object response at a time
+         */
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+        /**
+         * buffers kept for the slowest reader of a shared object response
+         */
+        private int buffers = 16;
+        /**
+         * max time the readers of a shared object response wait for the slowest one, which is detached then
+         */
+        private Duration maxWait = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxObjectSize() {
+            return maxObjectSize;
+        }
+
+        public void setMaxObjectSize(DataSize maxObjectSize) {
+            this.maxObjectSize = maxObjectSize;
+        }
+
+        public DataSize getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(DataSize bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getBuffers() {
+            return buffers;
+        }
+
+        public void setBuffers(int buffers) {
+            this.buffers = buffers;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return "Coalesce{" +
+                    "enabled=" + enabled +
+                    ", maxObjectSize=" + maxObjectSize +
+                    ", bufferSize=" + bufferSize +
+                    ", buffers=" + buffers +
+                    ", maxWait=" + maxWait +
+                    '}';
+        }
+    }
+
+    /**
+     * cache settings, bound to {@code spring.minio.cache}
+     */
+    public static class Cache {
+        private Disk disk = new Disk();
+        private Memory memory = new Memory();
+        private Stat stat = new Stat();
+        private Block block = new Block();
+
+        public Disk getDisk() {
+            return disk;
+        }
+
+        public void setDisk(Disk disk) {
+            this.disk = disk;
+        }
+
+        public Memory getMemory() {
+            return memory;
+        }
+
+        public void setMemory(Memory memory) {
+            this.memory = memory;
+        }
+
+        public Stat getStat() {
+            return stat;
+        }
+
+        public void setStat(Stat stat) {
+            this.stat = stat;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        public void setBlock(Block block) {
+            this.block = block;
+        }
+
+        @Override
+        public String toString() {
+            return "Cache{" +
+                    "disk=" + disk +
+                    ", memory=" + memory +
+                    ", stat=" + stat +
+                    ", block=" + block +
+                    '}';
+        }
+
+        /**
+         * block cache of object ranges, bound to {@code spring.minio.cache.block}
+         */
+        public static class Block {
+            private boolean enabled = false;
+            /**
+             * ranges are fetched and cached in aligned blocks of this size
+             */
+            private DataSize blockSize = DataSize.ofMegabytes(1);
+            private DataSize maxMemorySize = DataSize.ofMegabytes(64);
+            /**
+             * 0 disables the disk tier
+             */
+            private DataSize maxDiskSize = DataSize.ofBytes(0);
+            private String directory = System.getProperty("java.io.tmpdir") + "/minio-block-cache";
+            /**
+             * max blocks of a range fetched at the same time
+             */
+            private int parallelism = 4;
+            /**
+             * blocks after a range fetched in the background
+             */
+            private int readAhead = 1;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public DataSize getBlockSize() {
+                return blockSize;
+            }
+
+            public void setBlockSize(DataSize blockSize) {
+                this.blockSize = blockSize;
+            }
+
+            public DataSize getMaxMemorySize() {
+                return maxMemorySize;
+            }
+
+            public void setMaxMemorySize(DataSize maxMemorySize) {
+                this.maxMemorySize = maxMemorySize;
+            }
+
+            public DataSize getMaxDiskSize() {
+                return maxDiskSize;
+            }
+
+            public void setMaxDiskSize(DataSize maxDiskSize) {
+                this.maxDiskSize = maxDiskSize;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getReadAhead() {
+                return readAhead;
+            }
+
+            public void setReadAhead(int readAhead) {
+                this.readAhead = readAhead;
+            }
+
+            @Override
+            public String toString() {
+                return "Block{" +
+                        "enabled=" + enabled +
+                        ", blockSize=" + blockSize +
+                        ", maxMemorySize=" + maxMemorySize +
+                        ", maxDiskSize=" + maxDiskSize +
+                        ", directory='" + directory + '\'' +
+                        ", parallelism=" + parallelism +
+                        ", readAhead=" + readAhead +
+                        '}';
+            }
+        }
+
+        /**
+         * object metadata cache of MinioTemplate, bound to {@code spring.minio.cache.stat}
+         */
+        public static class Stat {
+            private boolean enabled = false;
+            private Duration ttl = Duration.ofSeconds(30);
+            /**
+             * how long a missing object is remembered
+             */
+            private Duration negativeTtl = Duration.ofSeconds(5);
+            private int maxEntries = 100000;
+            /**
+             * buckets whose notifications invalidate cached objects of all caches
+             */
+            private List<String> buckets = new ArrayList<>();
+            private Duration reconnectDelay = Duration.ofSeconds(5);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getTtl() {
+                return ttl;
+            }
+
+            public void setTtl(Duration ttl) {
+                this.ttl = ttl;
+            }
+
+            public Duration getNegativeTtl() {
+                return negativeTtl;
+            }
+
+            public void setNegativeTtl(Duration negativeTtl) {
+                this.negativeTtl = negativeTtl;
+            }
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public List<String> getBuckets() {
+                return buckets;
+            }
+
+            public void setBuckets(List<String> buckets) {
+                this.buckets = buckets;
+            }
+
+            public Duration getReconnectDelay() {
+                return reconnectDelay;
+            }
+
+            public void setReconnectDelay(Duration reconnectDelay) {
+                this.reconnectDelay = reconnectDelay;
+            }
+
+            @Override
+            public String toString() {
+                return "Stat{" +
+                        "enabled=" + enabled +
+                        ", ttl=" + ttl +
+                        ", negativeTtl=" + negativeTtl +
+                        ", maxEntries=" + maxEntries +
+                        ", buckets=" + buckets +
+                        ", reconnectDelay=" + reconnectDelay +
+                        '}';
+            }
+        }
+
+        /**
+         * memory cache of small objects, bound to {@code spring.minio.cache.memory}
+         */
+        public static class Memory {
+            private boolean enabled = false;
+            private DataSize maxSize = DataSize.ofMegabytes(64);
+            /**
+             * larger objects are read from minio without caching
+             */
+            private DataSize maxObjectSize = DataSize.ofKilobytes(256);
+            /**
+             * cached objects are revalidated with statObject after this time
+             */
+            private Duration ttl = Duration.ofMinutes(1);
+            /**
+             * keep content in direct buffers outside the heap
+             */
+            private boolean offHeap = true;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public DataSize getMaxObjectSize() {
+                return maxObjectSize;
+            }
+
+            public void setMaxObjectSize(DataSize maxObjectSize) {
+                this.maxObjectSize = maxObjectSize;
+            }
+
+            public Duration getTtl() {
+                return ttl;
+            }
+
+            public void setTtl(Duration ttl) {
+                this.ttl = ttl;
+            }
+
+            public boolean isOffHeap() {
+                return offHeap;
+            }
+
+            public void setOffHeap(boolean offHeap) {
+                this.offHeap = offHeap;
+            }
+
+            @Override
+            public String toString() {
+                return "Memory{" +
+                        "enabled=" + enabled +
+                        ", maxSize=" + maxSize +
+                        ", maxObjectSize=" + maxObjectSize +
+                        ", ttl=" + ttl +
+                        ", offHeap=" + offHeap +
+                        '}';
+            }
+        }
+
+        /**
+         * disk cache of object content, bound to {@code spring.minio.cache.disk}
+         */
+        public static class Disk {
+            private boolean enabled = false;
+            private String directory = System.getProperty("java.io.tmpdir") + "/minio-cache";
+            private DataSize maxSize = DataSize.ofGigabytes(1);
+            /**
+             * larger objects are read from minio without caching
+             */
+            private DataSize maxObjectSize = DataSize.ofMegabytes(64);
+            /**
+             * cached objects are revalidated with statObject after this time
+             */
+            private Duration ttl = Duration.ofMinutes(1);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public DataSize getMaxObjectSize() {
+                return maxObjectSize;
+            }
+
+            public void setMaxObjectSize(DataSize maxObjectSize) {
+                this.maxObjectSize = maxObjectSize;
+            }
+
+            public Duration getTtl() {
+                return ttl;
+            }
+
+            public void setTtl(Duration ttl) {
+                this.ttl = ttl;
+            }
+
+            @Override
+            public String toString() {
+                return "Disk{" +
+                        "enabled=" + enabled +
+                        ", directory='" + directory + '\'' +
+                        ", maxSize=" + maxSize +
+                        ", maxObjectSize=" + maxObjectSize +
+                        ", ttl=" + ttl +
+                        '}';
+            }
+        }
+    }
+
+    /**
+     * async executor settings, bound to {@code spring.minio.async}
+     */
+    public static class Async {
+        private int corePoolSize = 16;
+        /**
+         * platform threads of the executor, the pool grows to max(core-pool-size, max-pool-size) threads before tasks
+         * are queued
+         */
+        private int maxPoolSize = 64;
+        /**
+         * max queued tasks, tasks beyond it are rejected
+         */
+        private int queueCapacity = 10000;
+        /**
+         * max tasks running at the same time, caps the load on the minio cluster in virtual thread mode
+         */
+        private int maxConcurrency = 512;
+        /**
+         * time a prefetching stream of MinioAsyncTemplate waits for its consumer before it is taken as abandoned
+         */
+        private Duration prefetchIdleTimeout = PrefetchingInputStream.DEFAULT_IDLE_TIMEOUT;
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public Duration getPrefetchIdleTimeout() {
+            return prefetchIdleTimeout;
+        }
+
+        public void setPrefetchIdleTimeout(Duration prefetchIdleTimeout) {
+            this.prefetchIdleTimeout = prefetchIdleTimeout;
+        }
+
+        @Override
+        public String toString() {
+            return "Async{" +
+                    "corePoolSize=" + corePoolSize +
+                    ", maxPoolSize=" + maxPoolSize +
+                    ", queueCapacity=" + queueCapacity +
+                    ", maxConcurrency=" + maxConcurrency +
+                    ", prefetchIdleTimeout=" + prefetchIdleTimeout +
+                    '}';
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package win.hgfdodo.minio.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import win.hgfdodo.minio.executor.MinioExecutor;
+import win.hgfdodo.minio.reactive.ReactiveMinioTemplate;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+/**
+ * reactive minio template auto configuration, active when reactor is on the classpath
+ *
+ * @author Guangfu He
+ */
+@Configuration
+@ConditionalOnClass(Flux.class)
+@AutoConfigureAfter(MinioAutoConfiguration.class)
+public class MinioReactiveAutoConfiguration {
+
+    /**
+     * blocking minio calls run on the bounded minio executor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean({MinioTemplate.class, MinioExecutor.class})
+    public ReactiveMinioTemplate reactiveMinioTemplate(MinioTemplate minioTemplate, MinioExecutor minioExecutor) {
+        return new ReactiveMinioTemplate(minioTemplate, Schedulers.fromExecutor(minioExecutor));
+    }
+}
@@ -0,0 +1,43 @@
+package win.hgfdodo.minio.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * open pooled connections of every minio client when the application is ready
+ *
+ * @author Guangfu He
+ */
+public class MinioWarmup implements ApplicationListener<ApplicationReadyEvent> {
+    private final static Logger log = LoggerFactory.getLogger(MinioWarmup.class);
+
+    private final Map<String, MinioConnectionFactory> factories;
+    private final MinioProperties.Warmup warmup;
+
+    public MinioWarmup(Map<String, MinioConnectionFactory> factories, MinioProperties.Warmup warmup) {
+        this.factories = factories;
+        this.warmup = warmup;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("application ready after {} ms", ManagementFactory.getRuntimeMXBean().getUptime());
+        for (Map.Entry<String, MinioConnectionFactory> entry : factories.entrySet()) {
+            try {
+                int opened = entry.getValue().warmUp(warmup.getConnections(), warmup.getPath(), warmup.getTimeout());
+                log.debug("{} warmed up with {} connections, initialized in {} ms", entry.getKey(), opened, entry.getValue().getInitializationMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("warm-up of {} failed", entry.getKey(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package win.hgfdodo.minio.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * register a MinioConnectionFactory and a MinioTemplate for every client under {@code spring.minio.clients}.
+ * <p>
+ * For client {@code bulk}, beans {@code bulkMinioConnectionFactory} and {@code bulkMinioTemplate} are registered,
+ * both can be injected with {@code @Qualifier("bulk")}.
+ *
+ * @author Guangfu He
+ */
+class NamedMinioClientsRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware {
+    private final static Logger log = LoggerFactory.getLogger(NamedMinioClientsRegistrar.class);
+
+    private final static String CLIENTS_PREFIX = "spring.minio.clients";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        Map<String, MinioClientProperties> clients = Binder.get(environment)
+                .bind(CLIENTS_PREFIX, Bindable.mapOf(String.class, MinioClientProperties.class))
+                .orElse(Collections.emptyMap());
+        for (Map.Entry<String, MinioClientProperties> entry : clients.entrySet()) {
+            String name = entry.getKey();
+            MinioClientProperties properties = entry.getValue();
+            String factoryBeanName = name + "MinioConnectionFactory";
+            log.debug("register minio client {}: {}", name, properties.getUrl());
+
+            GenericBeanDefinition factoryDefinition = new GenericBeanDefinition();
+            factoryDefinition.setBeanClass(MinioConnectionFactory.class);
+            factoryDefinition.setInstanceSupplier(() -> MinioAutoConfiguration.createConnectionFactory(properties));
+            factoryDefinition.setDestroyMethodName("close");
+            factoryDefinition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, name));
+            registry.registerBeanDefinition(factoryBeanName, factoryDefinition);
+
+            GenericBeanDefinition templateDefinition = new GenericBeanDefinition();
+            templateDefinition.setBeanClass(MinioTemplate.class);
+            templateDefinition.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference(factoryBeanName));
+            templateDefinition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, name));
+            registry.registerBeanDefinition(name + "MinioTemplate", templateDefinition);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package win.hgfdodo.minio.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * choose a minio node for each request and passively eject unhealthy nodes.
+ * <p>
+ * A node is ejected after {@code failureThreshold} consecutive failures (5xx response or I/O error, including timeouts).
+ * It is re-admitted when the ejection time elapses; the ejection time grows with each consecutive ejection
+ * up to {@code maxEjectionTime}, and a re-admitted node that fails again before any success is ejected immediately.
+ *
+ * @author Guangfu He
+ */
+public class LoadBalancer {
+    private final static Logger log = LoggerFactory.getLogger(LoadBalancer.class);
+
+    public enum Strategy {
+        /**
+         * node with the fewest in-flight requests
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * the less loaded of two randomly picked nodes
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    private final Strategy strategy;
+    private final int failureThreshold;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+
+    public LoadBalancer(Strategy strategy, int failureThreshold, Duration baseEjectionTime, Duration maxEjectionTime) {
+        this.strategy = strategy;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseEjectionNanos = baseEjectionTime.toNanos();
+        this.maxEjectionNanos = Math.max(maxEjectionTime.toNanos(), baseEjectionNanos);
+    }
+
+    public LoadBalancer() {
+        this(Strategy.POWER_OF_TWO_CHOICES, 3, Duration.ofSeconds(30), Duration.ofMinutes(5));
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * choose a node among available ones, if every node is ejected all of them are considered
+     */
+    public MinioNode choose(List<MinioNode> nodes) {
+        return choose(nodes, node -> true);
+    }
+
+    /**
+     * choose a node accepted by the filter, the filter is ignored if it accepts no node
+     */
+    public MinioNode choose(List<MinioNode> nodes, Predicate<MinioNode> filter) {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        List<MinioNode> accepted = new ArrayList<>(nodes.size());
+        for (MinioNode node : nodes) {
+            if (filter.test(node)) {
+                accepted.add(node);
+            }
+        }
+        if (accepted.isEmpty()) {
+            accepted = nodes;
+        }
+        long now = System.nanoTime();
+        List<MinioNode> candidates = new ArrayList<>(accepted.size());
+        for (MinioNode node : accepted) {
+            if (node.isAvailable(now)) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            log.warn("all minio nodes are ejected, fall back to all nodes");
+            candidates = accepted;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (strategy == Strategy.POWER_OF_TWO_CHOICES) {
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            MinioNode a = candidates.get(first);
+            MinioNode b = candidates.get(second);
+            return b.getOutstanding() < a.getOutstanding() ? b : a;
+        }
+        // least outstanding, start from a random offset so ties are spread over nodes
+        int offset = random.nextInt(candidates.size());
+        MinioNode best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            MinioNode node = candidates.get((offset + i) % candidates.size());
+            if (best == null || node.getOutstanding() < best.getOutstanding()) {
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    void onSuccess(MinioNode node) {
+        node.resetFailures();
+    }
+
+    void onFailure(MinioNode node) {
+        int failures = node.incrementConsecutiveFailures();
+        if (failures >= failureThreshold || node.isOnProbation()) {
+            int ejections = node.getEjectionCount();
+            long ejectionNanos = Math.min(maxEjectionNanos, baseEjectionNanos << Math.min(ejections, 20));
+            node.eject(System.nanoTime() + ejectionNanos);
+            log.warn("eject minio node {} for {} ms after {} consecutive failures", node.getEndpoint(), ejectionNanos / 1_000_000, failures);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.MinioClient;
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * one minio sdk call on the client of the chosen node
+ *
+ * @param <T> call result
+ * @param <X> extra checked exception of the call, inferred as RuntimeException if there is none
+ * @author Guangfu He
+ */
+@FunctionalInterface
+public interface MinioCall<T, X extends Exception> {
+
+    T call(MinioClient client) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+}
@@ -0,0 +1,19 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.errors.*;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * intercept minio calls executed by {@link MinioConnectionFactory#execute(MinioOperation, MinioCall)},
+ * interceptors with lower order wrap those with higher order.
+ *
+ * @author Guangfu He
+ */
+public interface MinioCallInterceptor extends Ordered {
+
+    <T, X extends Exception> T intercept(MinioOperation operation, MinioInvocation<T, X> next) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+}
@@ -1,20 +1,363 @@
 package win.hgfdodo.minio.connection;
 
 import io.minio.MinioClient;
+import io.minio.errors.*;
+import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.OrderComparator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * minio connection factory
+ * <p>
+ * The factory owns long-lived, thread-safe {@link MinioClient}s backed by a single {@link OkHttpClient},
+ * so every caller shares the same connection pool and keep-alive connections.
+ * The pool is released when the factory is closed (on Spring context shutdown).
+ * <p>
+ * With several endpoints, each endpoint is a {@link MinioNode} and {@link #getConnection()}
+ * routes to a node chosen by the {@link LoadBalancer}.
+ * <p>
+ * Calls made with {@link #execute(MinioOperation, MinioCall)} pass through the registered
+ * {@link MinioCallInterceptor}s (retry etc.) and choose a node for every attempt,
+ * guarded by the registered {@link MinioNodeGuard}s (circuit breakers).
+ * <p>
+ * A lazy factory builds its http client and minio clients on first use, which keeps startup fast
+ * for applications that may not call minio at all.
  *
  * @author Guangfu He
  */
-public class MinioConnectionFactory {
-    private final MinioClient.Builder builder;
+public class MinioConnectionFactory implements Closeable {
+    private final static Logger log = LoggerFactory.getLogger(MinioConnectionFactory.class);
+
+    /**
+     * same as minio sdk default timeout
+     */
+    private final static long DEFAULT_TIMEOUT_MINUTES = 5;
+    private final static String DEFAULT_ENDPOINT = "default";
+
+    private final Supplier<OkHttpClient> httpClientSupplier;
+    private final List<EndpointBuilder> builders;
+    private final LoadBalancer loadBalancer;
+    private final List<MinioCallInterceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final List<MinioNodeGuard> guards = new CopyOnWriteArrayList<>();
+    private volatile OkHttpClient httpClient;
+    private volatile List<MinioNode> nodes;
+
+    private final long createdNanos = System.nanoTime();
+    private volatile long initializationNanos = -1;
+    private final AtomicLong firstSuccessNanos = new AtomicLong(-1);
 
     public MinioConnectionFactory(MinioClient.Builder builder) {
-        this.builder = builder;
+        this(builder, defaultHttpClient());
+    }
+
+    public MinioConnectionFactory(MinioClient.Builder builder, OkHttpClient httpClient) {
+        this(Collections.singletonList(new EndpointBuilder(DEFAULT_ENDPOINT, builder)), httpClient, new LoadBalancer());
+    }
+
+    /**
+     * @param builders     client builder of each endpoint, keyed by endpoint
+     * @param httpClient   http client shared by all endpoints
+     * @param loadBalancer node selection and ejection policy
+     */
+    public MinioConnectionFactory(List<EndpointBuilder> builders, OkHttpClient httpClient, LoadBalancer loadBalancer) {
+        this(builders, () -> httpClient, loadBalancer, false);
+    }
+
+    /**
+     * @param builders     client builder of each endpoint, keyed by endpoint
+     * @param httpClient   create the http client shared by all endpoints
+     * @param loadBalancer node selection and ejection policy
+     * @param lazy         build the http client and minio clients on first use instead of now
+     */
+    public MinioConnectionFactory(List<EndpointBuilder> builders, Supplier<OkHttpClient> httpClient, LoadBalancer loadBalancer, boolean lazy) {
+        if (builders.isEmpty()) {
+            throw new IllegalArgumentException("at least one minio endpoint is required");
+        }
+        this.builders = new ArrayList<>(builders);
+        this.httpClientSupplier = httpClient;
+        this.loadBalancer = loadBalancer;
+        if (!lazy) {
+            initialize();
+        }
+    }
+
+    /**
+     * build the http client and node clients, only once
+     */
+    private List<MinioNode> nodes() {
+        List<MinioNode> current = nodes;
+        return current != null ? current : initialize();
+    }
+
+    private synchronized List<MinioNode> initialize() {
+        if (nodes != null) {
+            return nodes;
+        }
+        long start = System.nanoTime();
+        OkHttpClient client = httpClientSupplier.get();
+        List<MinioNode> nodeList = new ArrayList<>(builders.size());
+        for (EndpointBuilder builder : builders) {
+            nodeList.add(new MinioNode(builder.getEndpoint(), builder.getBuilder(), client, loadBalancer));
+        }
+        this.httpClient = client;
+        this.nodes = Collections.unmodifiableList(nodeList);
+        initializationNanos = System.nanoTime() - start;
+        log.debug("minio connection factory with endpoints {}, strategy {}, initialized in {} ms", builders, loadBalancer.getStrategy(), TimeUnit.NANOSECONDS.toMillis(initializationNanos));
+        return nodes;
     }
 
+    /**
+     * @return a shared minio client, safe to be used by multiple threads
+     */
     public MinioClient getConnection() {
-        return builder.build();
+        return loadBalancer.choose(nodes()).getClient();
+    }
+
+    /**
+     * execute a minio call through the interceptor chain
+     *
+     * @param operation describe the call for interceptors
+     * @param call      the sdk call on the chosen node's client
+     */
+    public <T, X extends Exception> T execute(MinioOperation operation, MinioCall<T, X> call) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        MinioInvocation<T, X> invocation = op -> {
+            MinioNode node = select(op);
+            MinioNodeGuard[] nodeGuards = guards.toArray(new MinioNodeGuard[0]);
+            int acquired = 0;
+            MinioOperation previous = MinioOperation.enter(op);
+            long start = System.nanoTime();
+            try {
+                for (; acquired < nodeGuards.length; acquired++) {
+                    nodeGuards[acquired].acquire(node, op);
+                }
+                T result = call.call(node.getClient());
+                for (MinioNodeGuard guard : nodeGuards) {
+                    guard.onSuccess(node, op, System.nanoTime() - start);
+                }
+                if (firstSuccessNanos.get() < 0 && firstSuccessNanos.compareAndSet(-1, System.nanoTime() - createdNanos)) {
+                    log.info("first successful minio request {} after {} ms", op, TimeUnit.NANOSECONDS.toMillis(firstSuccessNanos.get()));
+                }
+                return result;
+            } catch (Exception e) {
+                for (int i = 0; i < acquired; i++) {
+                    nodeGuards[i].onError(node, op, System.nanoTime() - start, e);
+                }
+                throw e;
+            } finally {
+                MinioOperation.exit(previous);
+            }
+        };
+        MinioCallInterceptor[] chain = interceptors.toArray(new MinioCallInterceptor[0]);
+        for (int i = chain.length - 1; i >= 0; i--) {
+            MinioCallInterceptor interceptor = chain[i];
+            MinioInvocation<T, X> next = invocation;
+            invocation = op -> interceptor.intercept(op, next);
+        }
+        return invocation.invoke(operation);
+    }
+
+    private MinioNode select(MinioOperation operation) {
+        MinioNode node = loadBalancer.choose(nodes(), n -> !operation.getExcludedEndpoints().contains(n.getEndpoint()) && isAvailable(n, operation));
+        operation.setNode(node);
+        return node;
+    }
+
+    private boolean isAvailable(MinioNode node, MinioOperation operation) {
+        for (MinioNodeGuard guard : guards) {
+            if (!guard.isAvailable(node, operation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * register an interceptor, interceptors are ordered by {@link MinioCallInterceptor#getOrder()}
+     */
+    public void addInterceptor(MinioCallInterceptor interceptor) {
+        interceptors.add(interceptor);
+        interceptors.sort(OrderComparator.INSTANCE);
+    }
+
+    public List<MinioCallInterceptor> getInterceptors() {
+        return Collections.unmodifiableList(interceptors);
+    }
+
+    /**
+     * register a guard consulted when choosing a node and around each call to it
+     */
+    public void addNodeGuard(MinioNodeGuard guard) {
+        guards.add(guard);
+    }
+
+    public List<MinioNodeGuard> getNodeGuards() {
+        return Collections.unmodifiableList(guards);
+    }
+
+    /**
+     * open pooled connections to every endpoint ahead of traffic, with concurrent HEAD requests,
+     * so DNS lookup, TCP and TLS handshakes are not paid by the first requests.
+     * Any response counts, the path needs no authentication (e.g. {@code /minio/health/live}).
+     *
+     * @param connections concurrent requests, i.e. connections opened per endpoint
+     * @param path        path requested on each endpoint
+     * @param timeout     max time to wait for all endpoints
+     * @return number of responses received
+     */
+    public int warmUp(int connections, String path, Duration timeout) throws InterruptedException {
+        OkHttpClient client = getHttpClient();
+        List<MinioNode> targets = nodes();
+        CountDownLatch latch = new CountDownLatch(targets.size() * connections);
+        AtomicInteger opened = new AtomicInteger();
+        long start = System.nanoTime();
+        for (MinioNode node : targets) {
+            HttpUrl url = endpointUrl(node.getEndpoint());
+            if (url == null) {
+                log.warn("skip warm-up of minio endpoint {}, not an url", node.getEndpoint());
+                for (int i = 0; i < connections; i++) {
+                    latch.countDown();
+                }
+                continue;
+            }
+            Request request = new Request.Builder().head().url(url.resolve(path)).build();
+            for (int i = 0; i < connections; i++) {
+                client.newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        log.warn("warm-up request {} failed: {}", call.request().url(), e.toString());
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        response.close();
+                        opened.incrementAndGet();
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        boolean completed = latch.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        log.info("minio warm-up opened {} connections to {} endpoints in {} ms{}, idle connections: {}", opened.get(), targets.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), completed ? "" : " (timed out)", client.connectionPool().idleConnectionCount());
+        return opened.get();
+    }
+
+    private static HttpUrl endpointUrl(String endpoint) {
+        if (endpoint == null) {
+            return null;
+        }
+        return HttpUrl.parse(endpoint.contains("://") ? endpoint : "https://" + endpoint);
+    }
+
+    /**
+     * @return nodes of this factory with their latency and error counters
+     */
+    public List<MinioNode> getNodes() {
+        return nodes();
+    }
+
+    /**
+     * @return the http client shared by all connections of this factory
+     */
+    public OkHttpClient getHttpClient() {
+        nodes();
+        return httpClient;
+    }
+
+    /**
+     * @return false until the clients are built, for a lazy factory
+     */
+    public boolean isInitialized() {
+        return nodes != null;
+    }
+
+    /**
+     * @return time spent building the http client and node clients, -1 if not initialized yet
+     */
+    public long getInitializationMillis() {
+        return initializationNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(initializationNanos);
+    }
+
+    /**
+     * @return time from factory creation to the first successful call, -1 if no call succeeded yet
+     */
+    public long getTimeToFirstSuccessMillis() {
+        long nanos = firstSuccessNanos.get();
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * release pooled connections and dispatcher threads
+     */
+    @Override
+    public void close() {
+        for (MinioCallInterceptor interceptor : interceptors) {
+            if (interceptor instanceof Closeable) {
+                try {
+                    ((Closeable) interceptor).close();
+                } catch (IOException e) {
+                    log.warn("close minio call interceptor {} failed", interceptor, e);
+                }
+            }
+        }
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            return;
+        }
+        log.debug("close minio connection factory, idle connections: {}", client.connectionPool().idleConnectionCount());
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient defaultHttpClient() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(DEFAULT_TIMEOUT_MINUTES, TimeUnit.MINUTES)
+                .writeTimeout(DEFAULT_TIMEOUT_MINUTES, TimeUnit.MINUTES)
+                .readTimeout(DEFAULT_TIMEOUT_MINUTES, TimeUnit.MINUTES)
+                .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+                .build();
+    }
+
+    /**
+     * minio client builder of one endpoint
+     */
+    public static class EndpointBuilder {
+        private final String endpoint;
+        private final MinioClient.Builder builder;
+
+        public EndpointBuilder(String endpoint, MinioClient.Builder builder) {
+            this.endpoint = endpoint;
+            this.builder = builder;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public MinioClient.Builder getBuilder() {
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            return endpoint;
+        }
     }
 }
@@ -0,0 +1,18 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * the rest of the interceptor chain of a {@link MinioCall}
+ *
+ * @author Guangfu He
+ */
+@FunctionalInterface
+public interface MinioInvocation<T, X extends Exception> {
+
+    T invoke(MinioOperation operation) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException;
+}
@@ -0,0 +1,161 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.MinioClient;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * one minio server endpoint with its client, request counters and ejection state.
+ * <p>
+ * The node client shares the connection pool and dispatcher of the factory http client,
+ * every request passes the node interceptor to record latency and failures.
+ *
+ * @author Guangfu He
+ */
+public class MinioNode implements Interceptor {
+    private final String endpoint;
+    private final MinioClient client;
+    private final LoadBalancer loadBalancer;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long ejectedUntilNanos;
+    private volatile boolean ejected;
+    private volatile int ejectionCount;
+
+    public MinioNode(String endpoint, MinioClient.Builder builder, OkHttpClient httpClient, LoadBalancer loadBalancer) {
+        this.endpoint = endpoint;
+        this.loadBalancer = loadBalancer;
+        this.client = builder.httpClient(httpClient.newBuilder().addInterceptor(this).build()).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        MinioOperation operation = MinioOperation.current();
+        if (operation != null) {
+            operation.attach(chain.call());
+        }
+        outstanding.incrementAndGet();
+        requests.increment();
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(chain.request());
+            if (response.code() >= 500) {
+                failures.increment();
+                loadBalancer.onFailure(this);
+            } else {
+                loadBalancer.onSuccess(this);
+            }
+            return response;
+        } catch (IOException e) {
+            if (!chain.call().isCanceled()) {
+                // a cancelled call (e.g. the losing hedged request) says nothing about node health
+                failures.increment();
+                loadBalancer.onFailure(this);
+            }
+            throw e;
+        } finally {
+            latencyNanos.add(System.nanoTime() - start);
+            outstanding.decrementAndGet();
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public MinioClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return requests waiting for response headers on this node
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return responses with 5xx status and I/O errors, including timeouts
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return average time to response headers in milliseconds
+     */
+    public double getAverageLatencyMillis() {
+        long count = requests.sum();
+        return count == 0 ? 0 : latencyNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public boolean isEjected() {
+        return !isAvailable(System.nanoTime());
+    }
+
+    boolean isAvailable(long nowNanos) {
+        return !ejected || nowNanos - ejectedUntilNanos >= 0;
+    }
+
+    /**
+     * re-admitted after an ejection, but no success yet
+     */
+    boolean isOnProbation() {
+        return ejected && System.nanoTime() - ejectedUntilNanos >= 0;
+    }
+
+    int incrementConsecutiveFailures() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    int getEjectionCount() {
+        return ejectionCount;
+    }
+
+    synchronized void eject(long untilNanos) {
+        ejectedUntilNanos = untilNanos;
+        ejected = true;
+        ejectionCount++;
+        consecutiveFailures.set(0);
+    }
+
+    void resetFailures() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (ejected) {
+            synchronized (this) {
+                if (ejected && System.nanoTime() - ejectedUntilNanos >= 0) {
+                    ejected = false;
+                    ejectionCount = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MinioNode{" +
+                "endpoint='" + endpoint + '\'' +
+                ", outstanding=" + outstanding +
+                ", requests=" + requests +
+                ", failures=" + failures +
+                ", averageLatencyMillis=" + getAverageLatencyMillis() +
+                ", ejected=" + isEjected() +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package win.hgfdodo.minio.connection;
+
+/**
+ * guard calls to each node, e.g. circuit breakers.
+ * <p>
+ * Nodes not available for an operation are skipped when choosing a node; if no node is available
+ * {@link #acquire} rejects the call before it is sent.
+ *
+ * @author Guangfu He
+ */
+public interface MinioNodeGuard {
+
+    /**
+     * @return false to skip the node for the operation
+     */
+    boolean isAvailable(MinioNode node, MinioOperation operation);
+
+    /**
+     * acquire permission to call the chosen node
+     *
+     * @throws win.hgfdodo.minio.exception.MinioCallNotPermittedException if the call is rejected
+     */
+    void acquire(MinioNode node, MinioOperation operation);
+
+    void onSuccess(MinioNode node, MinioOperation operation, long durationNanos);
+
+    void onError(MinioNode node, MinioOperation operation, long durationNanos, Throwable error);
+}
@@ -0,0 +1,255 @@
+package win.hgfdodo.minio.connection;
+
+import okhttp3.Call;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * describe a minio call for interceptors: operation class, target and whether it is safe to repeat.
+ * <p>
+ * Read, list and delete operations are idempotent. A write is retried only when its request body can be replayed.
+ *
+ * @author Guangfu He
+ */
+public final class MinioOperation {
+    /**
+     * upload streams up to this size can be marked so the upload can be replayed
+     */
+    public final static long MAX_REPLAYABLE_SIZE = 16 * 1024 * 1024;
+
+    public enum Type {
+        READ,
+        WRITE,
+        LIST,
+        ADMIN
+    }
+
+    /**
+     * reset request body before the call is repeated
+     */
+    @FunctionalInterface
+    public interface Replay {
+        void reset() throws IOException;
+    }
+
+    private final static ThreadLocal<MinioOperation> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final Type type;
+    private final String bucket;
+    private final String object;
+    private boolean idempotent;
+    private boolean hedgeable;
+    private Replay replay;
+    private boolean upload;
+    private InputStream uploadStream;
+    private long uploadSize;
+    private Set<String> excludedEndpoints = Collections.emptySet();
+    private volatile MinioNode node;
+    private volatile Call call;
+    private volatile boolean cancelled;
+
+    private MinioOperation(String name, Type type, String bucket, String object, boolean idempotent) {
+        this.name = name;
+        this.type = type;
+        this.bucket = bucket;
+        this.object = object;
+        this.idempotent = idempotent;
+    }
+
+    public static MinioOperation read(String name, String bucket, String object) {
+        return new MinioOperation(name, Type.READ, bucket, object, true);
+    }
+
+    public static MinioOperation write(String name, String bucket, String object) {
+        return new MinioOperation(name, Type.WRITE, bucket, object, false);
+    }
+
+    public static MinioOperation list(String name, String bucket) {
+        return new MinioOperation(name, Type.LIST, bucket, null, true);
+    }
+
+    public static MinioOperation admin(String name, String bucket) {
+        return new MinioOperation(name, Type.ADMIN, bucket, null, false);
+    }
+
+    /**
+     * write of a request body, replayable if the stream supports mark and is small enough (or in memory). The stream
+     * is marked by {@link #prepareReplay()} only when an interceptor may repeat the call.
+     */
+    public static MinioOperation upload(String name, String bucket, String object, InputStream stream, long objectSize) {
+        MinioOperation operation = write(name, bucket, object);
+        operation.upload = true;
+        if (stream != null && stream.markSupported() && objectSize >= 0
+                && (stream instanceof ByteArrayInputStream || objectSize <= MAX_REPLAYABLE_SIZE)) {
+            operation.uploadStream = stream;
+            operation.uploadSize = objectSize;
+        }
+        return operation;
+    }
+
+    /**
+     * mark the upload stream so the request body can be replayed, called before the first attempt by interceptors
+     * repeating calls. A stream not in memory buffers up to the object size from then on.
+     */
+    public void prepareReplay() {
+        if (uploadStream != null && replay == null) {
+            uploadStream.mark((int) Math.min(Integer.MAX_VALUE, uploadSize + 1));
+            replay = uploadStream::reset;
+        }
+    }
+
+    public MinioOperation idempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    /**
+     * allow a duplicate request when the first one is slow, only for idempotent reads
+     */
+    public MinioOperation hedgeable(boolean hedgeable) {
+        this.hedgeable = hedgeable;
+        return this;
+    }
+
+    public MinioOperation replay(Replay replay) {
+        this.replay = replay;
+        return this;
+    }
+
+    /**
+     * @return copy of this operation which avoids the given endpoint when choosing a node
+     */
+    public MinioOperation excluding(String endpoint) {
+        MinioOperation copy = copy();
+        Set<String> excluded = new HashSet<>(excludedEndpoints);
+        excluded.add(endpoint);
+        copy.excludedEndpoints = excluded;
+        return copy;
+    }
+
+    /**
+     * @return copy of this operation, not yet executed
+     */
+    public MinioOperation copy() {
+        MinioOperation copy = new MinioOperation(name, type, bucket, object, idempotent);
+        copy.hedgeable = hedgeable;
+        copy.replay = replay;
+        copy.upload = upload;
+        copy.uploadStream = uploadStream;
+        copy.uploadSize = uploadSize;
+        copy.excludedEndpoints = excludedEndpoints;
+        return copy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getObject() {
+        return object;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public boolean isHedgeable() {
+        return hedgeable && idempotent;
+    }
+
+    /**
+     * @return true if the call sends object content, its latency grows with the content size
+     */
+    public boolean isUpload() {
+        return upload;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * @return true if the call can be safely repeated
+     */
+    public boolean isRepeatable() {
+        return idempotent || replay != null || uploadStream != null;
+    }
+
+    public Set<String> getExcludedEndpoints() {
+        return excludedEndpoints;
+    }
+
+    /**
+     * @return node chosen for the latest attempt, null before the first attempt
+     */
+    public MinioNode getNode() {
+        return node;
+    }
+
+    void setNode(MinioNode node) {
+        this.node = node;
+    }
+
+    /**
+     * cancel the http call in flight, the blocked sdk call fails with an IOException.
+     * Later http calls of this operation are cancelled as soon as they start.
+     */
+    public void cancel() {
+        cancelled = true;
+        Call current = call;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return operation executing on the current thread, null if none
+     */
+    static MinioOperation current() {
+        return CURRENT.get();
+    }
+
+    static MinioOperation enter(MinioOperation operation) {
+        MinioOperation previous = CURRENT.get();
+        CURRENT.set(operation);
+        return previous;
+    }
+
+    static void exit(MinioOperation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    void attach(Call call) {
+        this.call = call;
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + type + ", " + bucket + (object == null ? "" : "/" + object) + ")";
+    }
+}
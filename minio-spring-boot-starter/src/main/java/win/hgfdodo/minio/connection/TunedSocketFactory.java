@@ -0,0 +1,68 @@
+package win.hgfdodo.minio.connection;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * socket factory applying TCP_NODELAY and socket buffer sizes to every created socket
+ *
+ * @author Guangfu He
+ */
+public class TunedSocketFactory extends SocketFactory {
+    private final SocketFactory delegate;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    /**
+     * @param tcpNoDelay        disable Nagle's algorithm
+     * @param sendBufferSize    SO_SNDBUF in bytes, 0 or negative keeps system default
+     * @param receiveBufferSize SO_RCVBUF in bytes, 0 or negative keeps system default
+     */
+    public TunedSocketFactory(boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize) {
+        this.delegate = SocketFactory.getDefault();
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket configure(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        // receive buffer must be set before connecting to take effect on the TCP window
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        return socket;
+    }
+}
@@ -0,0 +1,12 @@
+package win.hgfdodo.minio.exception;
+
+/**
+ * a minio call is rejected before it is sent: circuit open, bulkhead or concurrency limit full
+ *
+ * @author Guangfu He
+ */
+public class MinioCallNotPermittedException extends RuntimeException {
+    public MinioCallNotPermittedException(String message) {
+        super(message);
+    }
+}
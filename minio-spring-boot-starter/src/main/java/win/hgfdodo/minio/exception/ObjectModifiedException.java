@@ -0,0 +1,14 @@
+package win.hgfdodo.minio.exception;
+
+import java.io.IOException;
+
+/**
+ * the object was overwritten while it was being read in several requests
+ *
+ * @author Guangfu He
+ */
+public class ObjectModifiedException extends IOException {
+    public ObjectModifiedException(String bucketName, String objectName, String etag) {
+        super("object " + bucketName + "/" + objectName + " changed during download, expected etag " + etag);
+    }
+}
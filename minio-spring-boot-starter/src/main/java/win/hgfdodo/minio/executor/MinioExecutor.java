@@ -0,0 +1,198 @@
+package win.hgfdodo.minio.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * bounded executor running minio I/O tasks.
+ * <p>
+ * In {@link Mode#PLATFORM} mode tasks run on a pool of {@code max(corePoolSize, maxPoolSize)} platform threads,
+ * a task is queued only when all of them are busy and idle threads exit after 60 seconds. In {@link Mode#VIRTUAL}
+ * mode (Java 21+) every task runs on its own virtual thread. In both modes at most {@code maxConcurrency} tasks
+ * run at the same time, the others wait for a permit; tasks beyond the queue capacity are rejected
+ * with {@link RejectedExecutionException}.
+ *
+ * @author Guangfu He
+ */
+public class MinioExecutor implements Executor, Closeable {
+    private final static Logger log = LoggerFactory.getLogger(MinioExecutor.class);
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private final Mode mode;
+    private final ExecutorService executor;
+    private final int queueCapacity;
+    private final Semaphore permits;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param corePoolSize  min threads of the pool
+     * @param maxPoolSize   max threads, started before tasks are queued
+     * @param queueCapacity max queued tasks
+     */
+    public MinioExecutor(int corePoolSize, int maxPoolSize, int queueCapacity) {
+        this(Mode.PLATFORM, corePoolSize, maxPoolSize, queueCapacity, 0);
+    }
+
+    /**
+     * @param mode           platform thread pool or virtual thread per task, falls back to platform if virtual threads are unavailable
+     * @param corePoolSize   min platform threads of the pool
+     * @param maxPoolSize    max platform threads, started before tasks are queued
+     * @param queueCapacity  max tasks waiting to run
+     * @param maxConcurrency max tasks running at the same time, 0 for no limit other than the pool size
+     */
+    public MinioExecutor(Mode mode, int corePoolSize, int maxPoolSize, int queueCapacity, int maxConcurrency) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+        ExecutorService virtualExecutor = mode == Mode.VIRTUAL ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualExecutor != null) {
+            this.mode = Mode.VIRTUAL;
+            this.executor = virtualExecutor;
+        } else {
+            this.mode = Mode.PLATFORM;
+            // a ThreadPoolExecutor only grows beyond its core size when the queue is full, core == max lets it grow
+            // to the max size first, idle threads time out instead
+            int poolSize = Math.max(1, Math.max(corePoolSize, maxPoolSize));
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity),
+                    new NamedThreadFactory("minio-io-"));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        log.debug("minio executor mode: {}, pool size: {}, max concurrency: {}", this.mode, getPoolSize(), maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (pending.get() >= queueCapacity) {
+            rejected.increment();
+            throw new RejectedExecutionException("minio executor queue is full, capacity: " + queueCapacity);
+        }
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> run(command));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private void run(Runnable command) {
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                pending.decrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        pending.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            command.run();
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return max platform threads, -1 in virtual thread mode
+     */
+    public int getPoolSize() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getMaximumPoolSize() : -1;
+    }
+
+    /**
+     * @return tasks waiting for a thread or a concurrency permit
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return tasks being executed
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return concurrency permits left, -1 if there is no concurrency limit
+     */
+    public int getAvailablePermits() {
+        return permits == null ? -1 : permits.availablePermits();
+    }
+
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        log.debug("shutdown minio executor, queued tasks: {}", getQueueDepth());
+        executor.shutdown();
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} is looked up reflectively to keep Java 8 compatibility
+     *
+     * @return null if virtual threads are not supported by the running JVM
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("virtual threads are not available on Java {}, use platform threads", System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
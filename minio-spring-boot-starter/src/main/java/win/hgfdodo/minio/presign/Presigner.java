@@ -0,0 +1,388 @@
+package win.hgfdodo.minio.presign;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.errors.InvalidExpiresRangeException;
+import io.minio.http.Method;
+import okhttp3.HttpUrl;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AWS signature V4 presigner for path style object urls, the same urls as {@code MinioClient.getPresignedObjectUrl}
+ * without extra headers and query parameters.
+ * <p>
+ * The signing key only depends on the date, region and service, so it is derived once a day instead of for every url.
+ * Signed urls are cached by method, object, version and expiry and handed out again while at least half of their
+ * lifetime is left, the least recently used ones are dropped once {@code maxCachedUrls} are cached.
+ * {@link #presignAll} signs many objects of a bucket with the same date and signing key.
+ *
+ * @author Guangfu He
+ */
+public class Presigner {
+    public final static String DEFAULT_REGION = "us-east-1";
+    public final static int DEFAULT_MAX_CACHED_URLS = 10000;
+    private final static int MAX_EXPIRY = 7 * 24 * 3600;
+    private final static String ALGORITHM = "AWS4-HMAC-SHA256";
+    private final static String SERVICE = "s3";
+    private final static String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private final static DateTimeFormatter AMZ_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private final static char[] HEX = "0123456789abcdef".toCharArray();
+    private final static char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    private final static ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private final static ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final String baseUrl;
+    private final String host;
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final int maxCachedUrls;
+    private final Clock clock;
+
+    /**
+     * date/region/service to signing key, keys of past dates are dropped when a new one is derived
+     */
+    private final ConcurrentMap<String, byte[]> signingKeys = new ConcurrentHashMap<>();
+    /**
+     * signed urls in access order, guarded by itself
+     */
+    private final LinkedHashMap<String, CachedUrl> urls;
+
+    private final LongAdder signed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder keyDerivations = new LongAdder();
+
+    public Presigner(String endpoint, String accessKey, String secretKey, String region) {
+        this(endpoint, accessKey, secretKey, region, DEFAULT_MAX_CACHED_URLS, Clock.systemUTC());
+    }
+
+    /**
+     * @param region        region of the signature, {@link #DEFAULT_REGION} if null
+     * @param maxCachedUrls max signed urls kept for reuse, 0 to disable the url cache
+     */
+    public Presigner(String endpoint, String accessKey, String secretKey, String region, int maxCachedUrls) {
+        this(endpoint, accessKey, secretKey, region, maxCachedUrls, Clock.systemUTC());
+    }
+
+    Presigner(String endpoint, String accessKey, String secretKey, String region, int maxCachedUrls, Clock clock) {
+        HttpUrl url = HttpUrl.parse(endpoint);
+        if (url == null) {
+            throw new IllegalArgumentException("invalid endpoint: " + endpoint);
+        }
+        String hostName = url.host().contains(":") ? "[" + url.host() + "]" : url.host();
+        this.host = url.port() == HttpUrl.defaultPort(url.scheme()) ? hostName : hostName + ":" + url.port();
+        this.baseUrl = url.scheme() + "://" + host;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region == null || region.isEmpty() ? DEFAULT_REGION : region;
+        this.maxCachedUrls = maxCachedUrls;
+        this.urls = new LinkedHashMap<String, CachedUrl>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUrl> eldest) {
+                return size() > maxCachedUrls;
+            }
+        };
+        this.clock = clock;
+    }
+
+    /**
+     * presigned GET url valid for {@link GetPresignedObjectUrlArgs#DEFAULT_EXPIRY_TIME} seconds
+     */
+    public String presign(String bucketName, String objectName) throws InvalidExpiresRangeException, NoSuchAlgorithmException, InvalidKeyException {
+        return presign(Method.GET, bucketName, objectName, null, GetPresignedObjectUrlArgs.DEFAULT_EXPIRY_TIME);
+    }
+
+    /**
+     * @param versionId     null for the latest version
+     * @param expirySeconds url lifetime, at most 7 days
+     */
+    public String presign(Method method, String bucketName, String objectName, String versionId, int expirySeconds) throws InvalidExpiresRangeException, NoSuchAlgorithmException, InvalidKeyException {
+        checkExpiry(expirySeconds);
+        String key = maxCachedUrls > 0 ? urlKey(method, bucketName, objectName, versionId, expirySeconds) : null;
+        long now = clock.millis();
+        String cached = key == null ? null : cached(key, now);
+        if (cached != null) {
+            return cached;
+        }
+        Signing signing = new Signing(method, now, expirySeconds);
+        String url = signing.sign(bucketName, objectName, versionId, new StringBuilder(256));
+        if (key != null) {
+            cache(key, url, now, expirySeconds);
+        }
+        return url;
+    }
+
+    /**
+     * presigned GET urls of objects of a bucket, all signed with the same date
+     *
+     * @return urls by object name, in the order of the given names
+     */
+    public Map<String, String> presignAll(String bucketName, Collection<String> objectNames, int expirySeconds) throws InvalidExpiresRangeException, NoSuchAlgorithmException, InvalidKeyException {
+        checkExpiry(expirySeconds);
+        long now = clock.millis();
+        Signing signing = new Signing(Method.GET, now, expirySeconds);
+        StringBuilder buffer = new StringBuilder(256);
+        Map<String, String> result = new LinkedHashMap<>(objectNames.size() * 4 / 3 + 1);
+        for (String objectName : objectNames) {
+            String key = maxCachedUrls > 0 ? urlKey(Method.GET, bucketName, objectName, null, expirySeconds) : null;
+            String cached = key == null ? null : cached(key, now);
+            if (cached != null) {
+                result.put(objectName, cached);
+                continue;
+            }
+            buffer.setLength(0);
+            String url = signing.sign(bucketName, objectName, null, buffer);
+            if (key != null) {
+                cache(key, url, now, expirySeconds);
+            }
+            result.put(objectName, url);
+        }
+        return result;
+    }
+
+    private static String urlKey(Method method, String bucketName, String objectName, String versionId, int expirySeconds) {
+        return method + " " + bucketName + "/" + objectName + "?" + versionId + "#" + expirySeconds;
+    }
+
+    private static void checkExpiry(int expirySeconds) throws InvalidExpiresRangeException {
+        if (expirySeconds < 1 || expirySeconds > MAX_EXPIRY) {
+            throw new InvalidExpiresRangeException(expirySeconds, "expiry must be between 1 and " + MAX_EXPIRY + " seconds");
+        }
+    }
+
+    /**
+     * @return the cached url if it can still be reused
+     */
+    private String cached(String key, long now) {
+        CachedUrl cached;
+        synchronized (urls) {
+            cached = urls.get(key);
+        }
+        if (cached != null && now < cached.reuseUntil) {
+            cacheHits.increment();
+            return cached.url;
+        }
+        return null;
+    }
+
+    /**
+     * cache the url, dropping the least recently used one when full
+     */
+    private void cache(String key, String url, long now, int expirySeconds) {
+        CachedUrl cached = new CachedUrl(url, now + expirySeconds * 1000L / 2);
+        synchronized (urls) {
+            urls.put(key, cached);
+        }
+    }
+
+    /**
+     * drop cached urls, e.g. after the credentials were rotated
+     */
+    public void clear() {
+        synchronized (urls) {
+            urls.clear();
+        }
+        signingKeys.clear();
+    }
+
+    private byte[] signingKey(String date) throws NoSuchAlgorithmException, InvalidKeyException {
+        String scope = date + "/" + region + "/" + SERVICE;
+        byte[] key = signingKeys.get(scope);
+        if (key == null) {
+            byte[] dateKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+            byte[] regionKey = hmac(dateKey, region);
+            byte[] serviceKey = hmac(regionKey, SERVICE);
+            key = hmac(serviceKey, "aws4_request");
+            keyDerivations.increment();
+            signingKeys.keySet().removeIf(other -> !other.startsWith(date));
+            signingKeys.put(scope, key);
+        }
+        return key;
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = HMAC.get();
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void hex(byte[] bytes, StringBuilder out) {
+        for (byte b : bytes) {
+            out.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+        }
+    }
+
+    /**
+     * uri encoding of AWS signature V4, everything but unreserved characters is percent encoded
+     */
+    static void encode(String value, StringBuilder out) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xff;
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '~') {
+                out.append((char) c);
+            } else {
+                out.append('%').append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0xf]);
+            }
+        }
+    }
+
+    /**
+     * encode the object name segment by segment like the minio sdk, empty segments are dropped
+     */
+    static void encodePath(String objectName, StringBuilder out) {
+        if (objectName.startsWith("/")) {
+            out.append('/');
+        }
+        boolean first = true;
+        for (String segment : objectName.split("/")) {
+            if (!segment.isEmpty()) {
+                if (!first) {
+                    out.append('/');
+                }
+                encode(segment, out);
+                first = false;
+            }
+        }
+        if (objectName.endsWith("/")) {
+            out.append('/');
+        }
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return urls signed, not counting urls served from the cache
+     */
+    public long getSignedCount() {
+        return signed.sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return times a signing key was derived, about once a day
+     */
+    public long getKeyDerivationCount() {
+        return keyDerivations.sum();
+    }
+
+    public int getCachedUrlCount() {
+        synchronized (urls) {
+            return urls.size();
+        }
+    }
+
+    /**
+     * parts of the signature shared by all urls with the same method, date and expiry
+     */
+    private class Signing {
+        private final String method;
+        private final String query;
+        private final String canonicalTail;
+        private final String stringToSignPrefix;
+        private final byte[] signingKey;
+
+        Signing(Method method, long now, int expirySeconds) throws NoSuchAlgorithmException, InvalidKeyException {
+            String amzDate = AMZ_DATE_FORMAT.format(Instant.ofEpochMilli(now));
+            String date = amzDate.substring(0, 8);
+            String scope = date + "/" + region + "/" + SERVICE + "/aws4_request";
+            StringBuilder query = new StringBuilder(200);
+            query.append("X-Amz-Algorithm=").append(ALGORITHM)
+                    .append("&X-Amz-Credential=");
+            encode(accessKey + "/" + scope, query);
+            query.append("&X-Amz-Date=").append(amzDate)
+                    .append("&X-Amz-Expires=").append(expirySeconds)
+                    .append("&X-Amz-SignedHeaders=host");
+            this.method = method.name();
+            this.query = query.toString();
+            this.canonicalTail = "\nhost:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+            this.stringToSignPrefix = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n";
+            this.signingKey = signingKey(date);
+        }
+
+        /**
+         * @param buffer reused between urls
+         */
+        String sign(String bucketName, String objectName, String versionId, StringBuilder buffer) throws InvalidKeyException {
+            int pathStart = buffer.length();
+            buffer.append('/');
+            encode(bucketName, buffer);
+            buffer.append('/');
+            encodePath(objectName, buffer);
+            String path = buffer.substring(pathStart);
+            String encodedVersion = null;
+            if (versionId != null) {
+                buffer.setLength(pathStart);
+                encode(versionId, buffer);
+                encodedVersion = buffer.substring(pathStart);
+            }
+
+            // canonical request, query parameters sorted by name
+            buffer.setLength(pathStart);
+            buffer.append(method).append('\n').append(path).append('\n').append(query);
+            if (encodedVersion != null) {
+                buffer.append("&versionId=").append(encodedVersion);
+            }
+            buffer.append(canonicalTail);
+            MessageDigest sha256 = SHA256.get();
+            byte[] canonicalHash = sha256.digest(buffer.substring(pathStart).getBytes(StandardCharsets.UTF_8));
+
+            buffer.setLength(pathStart);
+            buffer.append(stringToSignPrefix);
+            hex(canonicalHash, buffer);
+            Mac mac = HMAC.get();
+            mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            byte[] signature = mac.doFinal(buffer.substring(pathStart).getBytes(StandardCharsets.UTF_8));
+
+            buffer.setLength(pathStart);
+            buffer.append(baseUrl).append(path).append('?');
+            if (encodedVersion != null) {
+                buffer.append("versionId=").append(encodedVersion).append('&');
+            }
+            buffer.append(query).append("&X-Amz-Signature=");
+            hex(signature, buffer);
+            signed.increment();
+            return buffer.substring(pathStart);
+        }
+    }
+
+    private static class CachedUrl {
+        private final String url;
+        private final long reuseUntil;
+
+        CachedUrl(String url, long reuseUntil) {
+            this.url = url;
+            this.reuseUntil = reuseUntil;
+        }
+    }
+}
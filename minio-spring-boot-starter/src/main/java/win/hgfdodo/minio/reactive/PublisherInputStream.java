@@ -0,0 +1,155 @@
+package win.hgfdodo.minio.reactive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * blocking InputStream over a {@link DataBuffer} publisher.
+ * <p>
+ * At most {@code prefetch} buffers are requested ahead of the reader, one more is requested
+ * when a buffer is fully read, so a slow upload slows down the publisher instead of buffering it.
+ *
+ * @author Guangfu He
+ */
+class PublisherInputStream extends InputStream implements Subscriber<DataBuffer> {
+    private final static Object COMPLETE = new Object();
+
+    private final int prefetch;
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+
+    private volatile Subscription subscription;
+    private volatile boolean closed;
+    private DataBuffer current;
+    private boolean done;
+
+    PublisherInputStream(Publisher<DataBuffer> publisher, int prefetch) {
+        this.prefetch = Math.max(1, prefetch);
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        this.subscription = s;
+        s.request(prefetch);
+    }
+
+    @Override
+    public void onNext(DataBuffer buffer) {
+        if (closed) {
+            DataBufferUtils.release(buffer);
+            return;
+        }
+        signals.offer(buffer);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        signals.offer(new ErrorSignal(t));
+    }
+
+    @Override
+    public void onComplete() {
+        signals.offer(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+        int n = Math.min(len, current.readableByteCount());
+        current.read(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.readableByteCount();
+    }
+
+    /**
+     * @return false on end of stream
+     */
+    private boolean nextBuffer() throws IOException {
+        while (current == null || current.readableByteCount() == 0) {
+            if (current != null) {
+                DataBufferUtils.release(current);
+                current = null;
+                subscription.request(1);
+            }
+            if (done) {
+                return false;
+            }
+            Object signal;
+            try {
+                signal = signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for data");
+            }
+            if (signal == COMPLETE) {
+                done = true;
+                return false;
+            }
+            if (signal instanceof ErrorSignal) {
+                done = true;
+                throw new IOException("upstream publisher failed", ((ErrorSignal) signal).error);
+            }
+            current = (DataBuffer) signal;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        Object signal;
+        while ((signal = signals.poll()) != null) {
+            if (signal instanceof DataBuffer) {
+                DataBufferUtils.release((DataBuffer) signal);
+            }
+        }
+        // wake up a reader waiting for data, e.g. an upload whose subscriber cancelled, instead of leaving it blocked
+        signals.offer(new ErrorSignal(new IOException("stream closed")));
+    }
+
+    private static class ErrorSignal {
+        private final Throwable error;
+
+        ErrorSignal(Throwable error) {
+            this.error = error;
+        }
+    }
+}
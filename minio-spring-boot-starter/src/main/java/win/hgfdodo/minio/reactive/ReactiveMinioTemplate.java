@@ -0,0 +1,127 @@
+package win.hgfdodo.minio.reactive;
+
+import io.minio.ObjectStat;
+import io.minio.ObjectWriteResponse;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.util.Collection;
+
+/**
+ * Reactive minio operation template
+ * <p>
+ * Blocking minio calls run on the given scheduler, only when there is demand:
+ * listing fetches the next page when the subscriber requests more items, and object content is read
+ * from the network one buffer per request, so a slow consumer stops reading from the socket
+ * instead of buffering the whole object.
+ *
+ * @author Guangfu He
+ */
+public class ReactiveMinioTemplate {
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * multipart upload part size, minio minimum is 5MB
+     */
+    public final static long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+    private final static int UPLOAD_PREFETCH = 4;
+
+    private final MinioTemplate minioTemplate;
+    private final Scheduler scheduler;
+    private final DataBufferFactory bufferFactory;
+    private final int bufferSize;
+
+    public ReactiveMinioTemplate(MinioTemplate minioTemplate, Scheduler scheduler) {
+        this(minioTemplate, scheduler, new DefaultDataBufferFactory(), DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReactiveMinioTemplate(MinioTemplate minioTemplate, Scheduler scheduler, DataBufferFactory bufferFactory, int bufferSize) {
+        this.minioTemplate = minioTemplate;
+        this.scheduler = scheduler;
+        this.bufferFactory = bufferFactory;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * list objects, pages are fetched on demand
+     */
+    public Flux<Item> listObjects(String bucketName, String prefix, boolean recursive) {
+        return Flux.defer(() -> Flux.fromIterable(minioTemplate.listObjects(bucketName, prefix, recursive)))
+                .handle((Result<Item> result, SynchronousSink<Item> sink) -> {
+                    try {
+                        sink.next(result.get());
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                })
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * object content, buffers must be released by the consumer
+     */
+    public Flux<DataBuffer> getObject(String bucketName, String objectName) {
+        return DataBufferUtils.readInputStream(() -> minioTemplate.getObject(bucketName, objectName), bufferFactory, bufferSize)
+                .subscribeOn(scheduler);
+    }
+
+    public Flux<DataBuffer> getObjectByPart(String bucketName, String objectName, long offset, long length) {
+        return DataBufferUtils.readInputStream(() -> minioTemplate.getObjectByPart(bucketName, objectName, length, offset), bufferFactory, bufferSize)
+                .subscribeOn(scheduler);
+    }
+
+    public Mono<ObjectStat> getObjectInfo(String bucketName, String objectName) {
+        return Mono.fromCallable(() -> minioTemplate.getObjectInfo(bucketName, objectName))
+                .subscribeOn(scheduler);
+    }
+
+    public Mono<String> getObjectURL(String bucketName, String objectName, Integer expires) {
+        return Mono.fromCallable(() -> minioTemplate.getObjectURL(bucketName, objectName, expires))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * upload content of unknown size with multipart upload of {@link #DEFAULT_PART_SIZE} parts
+     */
+    public Mono<ObjectWriteResponse> saveObject(String bucketName, String objectName, Publisher<DataBuffer> content, String contentType) {
+        return saveObject(bucketName, objectName, content, -1, DEFAULT_PART_SIZE, contentType);
+    }
+
+    /**
+     * upload content, buffers are requested from the publisher only as fast as they are sent to minio
+     *
+     * @param objectSize object size, -1 if unknown
+     * @param partSize   multipart upload part size, required if objectSize is unknown
+     */
+    public Mono<ObjectWriteResponse> saveObject(String bucketName, String objectName, Publisher<DataBuffer> content, long objectSize, long partSize, String contentType) {
+        return Mono.using(() -> new PublisherInputStream(content, UPLOAD_PREFETCH),
+                in -> Mono.fromCallable(() -> minioTemplate.saveObject(bucketName, objectName, in, objectSize, partSize, contentType)),
+                PublisherInputStream::close)
+                .subscribeOn(scheduler);
+    }
+
+    public Mono<Void> removeObject(String bucketName, String objectName) {
+        return Mono.<Void>fromCallable(() -> {
+            minioTemplate.removeObject(bucketName, objectName);
+            return null;
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * @return names of objects failed to delete
+     */
+    public Flux<String> removeObjects(String bucketName, Collection<String> objectNames) {
+        return Mono.fromCallable(() -> minioTemplate.removeObjects(bucketName, objectNames))
+                .flatMapIterable(names -> names)
+                .subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,84 @@
+package win.hgfdodo.minio.resilience;
+
+import io.minio.errors.*;
+import win.hgfdodo.minio.connection.MinioCallInterceptor;
+import win.hgfdodo.minio.connection.MinioInvocation;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.exception.MinioCallNotPermittedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * limit in-flight calls with adaptive limits measured from call latency,
+ * reads (read, list) and writes (write, admin) have separate limiters.
+ * Calls beyond the limit wait briefly and are then rejected with {@link MinioCallNotPermittedException}.
+ * <p>
+ * Latency of getObject is measured until response headers. Uploads are not sampled when they complete, their latency
+ * includes the transfer of the request body and says more about its size than about the load of the server, a failed
+ * upload still lowers the limit.
+ *
+ * @author Guangfu He
+ */
+public class AdaptiveLimitInterceptor implements MinioCallInterceptor {
+    public final static int ORDER = 400;
+
+    private final VegasLimiter readLimiter;
+    private final VegasLimiter writeLimiter;
+
+    public AdaptiveLimitInterceptor(VegasLimiter readLimiter, VegasLimiter writeLimiter) {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+    }
+
+    @Override
+    public <T, X extends Exception> T intercept(MinioOperation operation, MinioInvocation<T, X> next) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        VegasLimiter limiter = limiter(operation.getType());
+        boolean acquired;
+        try {
+            acquired = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for minio concurrency limit");
+        }
+        if (!acquired) {
+            throw new MinioCallNotPermittedException("minio " + limiter.getName() + " concurrency limit " + limiter.getLimit() + " reached, reject " + operation);
+        }
+        long start = System.nanoTime();
+        try {
+            T result = next.invoke(operation);
+            if (operation.isUpload()) {
+                limiter.release();
+            } else {
+                limiter.onSample(System.nanoTime() - start, false);
+            }
+            return result;
+        } catch (Exception e) {
+            if (operation.isCancelled() || !RetryInterceptor.isRetryable(e)) {
+                limiter.release();
+            } else {
+                limiter.onSample(System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+    }
+
+    private VegasLimiter limiter(MinioOperation.Type type) {
+        return type == MinioOperation.Type.READ || type == MinioOperation.Type.LIST ? readLimiter : writeLimiter;
+    }
+
+    public VegasLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    public VegasLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,99 @@
+package win.hgfdodo.minio.resilience;
+
+import io.minio.errors.*;
+import win.hgfdodo.minio.connection.MinioCallInterceptor;
+import win.hgfdodo.minio.connection.MinioInvocation;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.exception.MinioCallNotPermittedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * cap concurrent calls per operation type, so slow writes cannot take every thread from reads.
+ * Calls wait at most {@code maxWait} for a slot, then fail with {@link MinioCallNotPermittedException}.
+ * <p>
+ * For getObject the slot is held until response headers arrive, not while the body is read.
+ *
+ * @author Guangfu He
+ */
+public class BulkheadInterceptor implements MinioCallInterceptor {
+    public final static int ORDER = 300;
+
+    private final Map<MinioOperation.Type, Semaphore> slots = new EnumMap<>(MinioOperation.Type.class);
+    private final Map<MinioOperation.Type, Integer> limits;
+    private final long maxWaitNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param limits  max concurrent calls of each operation type, types missing are not limited
+     * @param maxWait max time to wait for a slot
+     */
+    public BulkheadInterceptor(Map<MinioOperation.Type, Integer> limits, Duration maxWait) {
+        this.limits = new EnumMap<>(MinioOperation.Type.class);
+        for (Map.Entry<MinioOperation.Type, Integer> entry : limits.entrySet()) {
+            if (entry.getValue() != null && entry.getValue() > 0) {
+                this.limits.put(entry.getKey(), entry.getValue());
+                this.slots.put(entry.getKey(), new Semaphore(entry.getValue()));
+            }
+        }
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public <T, X extends Exception> T intercept(MinioOperation operation, MinioInvocation<T, X> next) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        Semaphore semaphore = slots.get(operation.getType());
+        if (semaphore == null) {
+            return next.invoke(operation);
+        }
+        boolean acquired;
+        try {
+            acquired = maxWaitNanos <= 0 ? semaphore.tryAcquire() : semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for minio bulkhead");
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new MinioCallNotPermittedException("bulkhead " + operation.getType() + " is full (" + limits.get(operation.getType()) + "), reject " + operation);
+        }
+        try {
+            return next.invoke(operation);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * @return max concurrent calls of the type, -1 if not limited
+     */
+    public int getLimit(MinioOperation.Type type) {
+        Integer limit = limits.get(type);
+        return limit == null ? -1 : limit;
+    }
+
+    /**
+     * @return free slots of the type, -1 if not limited
+     */
+    public int getAvailable(MinioOperation.Type type) {
+        Semaphore semaphore = slots.get(type);
+        return semaphore == null ? -1 : semaphore.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
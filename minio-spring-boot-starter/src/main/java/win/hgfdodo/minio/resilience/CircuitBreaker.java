@@ -0,0 +1,187 @@
+package win.hgfdodo.minio.resilience;
+
+import java.time.Duration;
+
+/**
+ * count based circuit breaker.
+ * <p>
+ * The breaker opens when the failure rate of the last {@code windowSize} calls reaches {@code failureRateThreshold}
+ * (after at least {@code minimumCalls} calls). While open, calls are rejected; after {@code openDuration}
+ * it lets {@code halfOpenCalls} probe calls through: the breaker closes if they all succeed and opens again on any failure.
+ *
+ * @author Guangfu He
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final int windowSize;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private int probesInFlight;
+    private int probesSucceeded;
+    private long openCount;
+    private long rejectedCount;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int minimumCalls, int windowSize, Duration openDuration, int halfOpenCalls) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /**
+     * @return true if a call would be permitted now, no permission is consumed
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (currentState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return probesInFlight < halfOpenCalls;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the call is permitted, it must be followed by {@link #onSuccess()}, {@link #onError()} or {@link #release()}
+     */
+    public synchronized boolean tryAcquire() {
+        State current = currentState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && probesInFlight < halfOpenCalls) {
+            probesInFlight++;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probesSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    /**
+     * release a permission without recording an outcome, e.g. the call was cancelled
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + openNanos;
+        openCount++;
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        probesInFlight = 0;
+        probesSucceeded = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return currentState();
+    }
+
+    /**
+     * @return failure rate of the current window, -1 if fewer than {@code minimumCalls} calls
+     */
+    public synchronized double getFailureRate() {
+        return recorded < minimumCalls ? -1 : (double) failures / recorded;
+    }
+
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "name='" + name + '\'' +
+                ", state=" + getState() +
+                ", failureRate=" + getFailureRate() +
+                '}';
+    }
+}
@@ -0,0 +1,85 @@
+package win.hgfdodo.minio.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.connection.MinioNode;
+import win.hgfdodo.minio.connection.MinioNodeGuard;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.exception.MinioCallNotPermittedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * circuit breakers keyed by endpoint and operation type.
+ * <p>
+ * Only transient failures (I/O errors, 5xx, SlowDown etc.) count as failures; error responses such as NoSuchKey
+ * show the node is healthy and count as successes. When the breakers of every endpoint are open for an operation type,
+ * calls fail fast with {@link MinioCallNotPermittedException}.
+ *
+ * @author Guangfu He
+ */
+public class CircuitBreakerRegistry implements MinioNodeGuard {
+    private final static Logger log = LoggerFactory.getLogger(CircuitBreakerRegistry.class);
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final int windowSize;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(double failureRateThreshold, int minimumCalls, int windowSize, Duration openDuration, int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.windowSize = windowSize;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public CircuitBreaker get(String endpoint, MinioOperation.Type type) {
+        return breakers.computeIfAbsent(endpoint + "/" + type.name().toLowerCase(),
+                name -> new CircuitBreaker(name, failureRateThreshold, minimumCalls, windowSize, openDuration, halfOpenCalls));
+    }
+
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return new ArrayList<>(breakers.values());
+    }
+
+    @Override
+    public boolean isAvailable(MinioNode node, MinioOperation operation) {
+        return get(node.getEndpoint(), operation.getType()).isCallPermitted();
+    }
+
+    @Override
+    public void acquire(MinioNode node, MinioOperation operation) {
+        CircuitBreaker breaker = get(node.getEndpoint(), operation.getType());
+        if (!breaker.tryAcquire()) {
+            throw new MinioCallNotPermittedException("circuit breaker " + breaker.getName() + " is " + breaker.getState() + ", reject " + operation);
+        }
+    }
+
+    @Override
+    public void onSuccess(MinioNode node, MinioOperation operation, long durationNanos) {
+        get(node.getEndpoint(), operation.getType()).onSuccess();
+    }
+
+    @Override
+    public void onError(MinioNode node, MinioOperation operation, long durationNanos, Throwable error) {
+        CircuitBreaker breaker = get(node.getEndpoint(), operation.getType());
+        if (operation.isCancelled() || error instanceof MinioCallNotPermittedException) {
+            breaker.release();
+        } else if (RetryInterceptor.isRetryable(error)) {
+            CircuitBreaker.State before = breaker.getState();
+            breaker.onError();
+            if (before != CircuitBreaker.State.OPEN && breaker.getState() == CircuitBreaker.State.OPEN) {
+                log.warn("open circuit breaker {} after {}", breaker.getName(), error.toString());
+            }
+        } else {
+            breaker.onSuccess();
+        }
+    }
+}
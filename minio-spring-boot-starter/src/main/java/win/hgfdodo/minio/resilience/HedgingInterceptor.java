@@ -0,0 +1,238 @@
+package win.hgfdodo.minio.resilience;
+
+import io.minio.errors.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.connection.MinioCallInterceptor;
+import win.hgfdodo.minio.connection.MinioInvocation;
+import win.hgfdodo.minio.connection.MinioNode;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * hedge slow reads: if a hedgeable operation has no response headers after the latency percentile,
+ * a duplicate request is sent, to another endpoint if there are several.
+ * The first response wins and the http call of the other one is cancelled.
+ * <p>
+ * Hedges are limited by a token bucket: each hedgeable request deposits {@code budgetRatio} token and each hedge
+ * withdraws one, so hedges add at most {@code budgetRatio} extra requests.
+ *
+ * @author Guangfu He
+ */
+public class HedgingInterceptor implements MinioCallInterceptor, Closeable {
+    private final static Logger log = LoggerFactory.getLogger(HedgingInterceptor.class);
+
+    public final static int ORDER = 200;
+    private final static int WINDOW_SIZE = 1024;
+
+    private final static int PENDING = 0;
+    private final static int PRIMARY = 1;
+    private final static int HEDGE = 2;
+
+    private final LatencyWindow latencies;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService hedgeExecutor;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param percentile   latency percentile after which a hedge is sent, e.g. 0.95
+     * @param initialDelay hedge delay until enough latencies are recorded
+     * @param minDelay     lower bound of the hedge delay
+     * @param budgetRatio  max extra requests per hedgeable request, e.g. 0.05
+     */
+    public HedgingInterceptor(double percentile, Duration initialDelay, Duration minDelay, double budgetRatio) {
+        this.latencies = new LatencyWindow(WINDOW_SIZE, percentile);
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.minDelayNanos = minDelay.toNanos();
+        this.budget = new RetryBudget(budgetRatio, 10);
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "minio-hedge-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.hedgeExecutor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    @Override
+    public <T, X extends Exception> T intercept(MinioOperation operation, MinioInvocation<T, X> next) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (!operation.isHedgeable()) {
+            return next.invoke(operation);
+        }
+        requests.increment();
+        budget.deposit();
+        Race<T> race = new Race<>(operation, next);
+        ScheduledFuture<?> hedgeTimer = timer.schedule(race::hedge, delayNanos(), TimeUnit.NANOSECONDS);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = next.invoke(operation);
+        } catch (Exception e) {
+            hedgeTimer.cancel(false);
+            if (race.hedgeStarted.compareAndSet(false, true)) {
+                throw e;
+            }
+            try {
+                return race.awaitHedge();
+            } catch (ExecutionException hedgeFailure) {
+                throw e;
+            }
+        }
+        hedgeTimer.cancel(false);
+        if (race.winner.compareAndSet(PENDING, PRIMARY)) {
+            race.hedgeStarted.set(true);
+            race.cancelHedge();
+            latencies.record(System.nanoTime() - start);
+            return result;
+        }
+        // the hedge won while the primary response arrived
+        closeQuietly(result);
+        try {
+            return race.awaitHedge();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("winning hedge has no result", e.getCause());
+        }
+    }
+
+    private long delayNanos() {
+        long percentile = latencies.getPercentileNanos();
+        return Math.max(minDelayNanos, percentile < 0 ? initialDelayNanos : percentile);
+    }
+
+    private static void closeQuietly(Object result) {
+        if (result instanceof Closeable) {
+            try {
+                ((Closeable) result).close();
+            } catch (IOException e) {
+                log.debug("close losing minio response failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return ratio of hedgeable requests which sent a hedge
+     */
+    public double getHedgeRate() {
+        long count = requests.sum();
+        return count == 0 ? 0 : (double) hedges.sum() / count;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return current hedge delay in milliseconds
+     */
+    public double getDelayMillis() {
+        return delayNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        hedgeExecutor.shutdownNow();
+    }
+
+    private class Race<T> {
+        private final MinioOperation primary;
+        private final MinioInvocation<T, ?> next;
+        private final AtomicInteger winner = new AtomicInteger(PENDING);
+        private final AtomicBoolean hedgeStarted = new AtomicBoolean();
+        private final CompletableFuture<T> hedgeResult = new CompletableFuture<>();
+        private volatile MinioOperation hedge;
+
+        Race(MinioOperation primary, MinioInvocation<T, ?> next) {
+            this.primary = primary;
+            this.next = next;
+        }
+
+        /**
+         * timer task, send the hedge unless the primary is done or the budget is exhausted
+         */
+        void hedge() {
+            if (!hedgeStarted.compareAndSet(false, true)) {
+                return;
+            }
+            if (winner.get() != PENDING || !budget.tryWithdraw()) {
+                hedgeResult.completeExceptionally(new CancellationException("hedge not sent"));
+                return;
+            }
+            MinioNode node = primary.getNode();
+            hedge = node == null ? primary.copy() : primary.excluding(node.getEndpoint());
+            hedges.increment();
+            try {
+                hedgeExecutor.execute(this::runHedge);
+            } catch (RejectedExecutionException e) {
+                hedgeResult.completeExceptionally(e);
+            }
+        }
+
+        private void runHedge() {
+            log.debug("hedge slow minio {}", primary);
+            try {
+                T result = next.invoke(hedge);
+                if (winner.compareAndSet(PENDING, HEDGE)) {
+                    hedgeWins.increment();
+                    hedgeResult.complete(result);
+                    primary.cancel();
+                } else {
+                    closeQuietly(result);
+                    hedgeResult.cancel(false);
+                }
+            } catch (Exception e) {
+                hedgeResult.completeExceptionally(e);
+            }
+        }
+
+        void cancelHedge() {
+            MinioOperation current = hedge;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        T awaitHedge() throws ExecutionException, InterruptedIOException {
+            try {
+                return hedgeResult.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelHedge();
+                throw new InterruptedIOException("interrupted while waiting for hedged request");
+            } catch (CancellationException e) {
+                throw new ExecutionException(e);
+            }
+        }
+    }
+}
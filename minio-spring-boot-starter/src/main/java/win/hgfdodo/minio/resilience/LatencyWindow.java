@@ -0,0 +1,57 @@
+package win.hgfdodo.minio.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * latency samples of the most recent requests, with a percentile refreshed every {@code refreshInterval} samples
+ *
+ * @author Guangfu He
+ */
+public class LatencyWindow {
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final int refreshInterval;
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param size       samples kept
+     * @param percentile percentile in (0, 1], e.g. 0.95
+     */
+    public LatencyWindow(int size, double percentile) {
+        this.samples = new AtomicLongArray(Math.max(16, size));
+        this.percentile = Math.min(1, Math.max(0.01, percentile));
+        this.refreshInterval = Math.max(1, samples.length() / 16);
+    }
+
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+        if ((n + 1) % refreshInterval == 0) {
+            refresh(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    private void refresh(long size) {
+        long[] sorted = new long[(int) size];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        percentileNanos = sorted[Math.max(0, index)];
+    }
+
+    /**
+     * @return latency percentile in nanoseconds, -1 if too few samples
+     */
+    public long getPercentileNanos() {
+        return percentileNanos;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,63 @@
+package win.hgfdodo.minio.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * token bucket limiting retries to a ratio of requests, so retries cannot multiply the load of a failing cluster.
+ * <p>
+ * Every request deposits {@code ratio} token, every retry withdraws one token.
+ * The bucket starts full with {@code minRetries} tokens, allowing a few retries when there is little traffic.
+ *
+ * @author Guangfu He
+ */
+public class RetryBudget {
+    private final static long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong tokens;
+
+    /**
+     * @param ratio      retries allowed per request, e.g. 0.1 for 10%
+     * @param minRetries tokens in a full bucket
+     */
+    public RetryBudget(double ratio, int minRetries) {
+        this.deposit = Math.max(0, (long) (ratio * SCALE));
+        this.capacity = Math.max(1, minRetries) * SCALE;
+        this.tokens = new AtomicLong(capacity);
+    }
+
+    /**
+     * record a request
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * @return true if a retry is allowed, the retry token is consumed
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * @return retries left in the budget
+     */
+    public double getAvailable() {
+        return (double) tokens.get() / SCALE;
+    }
+}
@@ -0,0 +1,170 @@
+package win.hgfdodo.minio.resilience;
+
+import io.minio.ErrorCode;
+import io.minio.errors.*;
+import io.minio.messages.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.connection.MinioCallInterceptor;
+import win.hgfdodo.minio.connection.MinioInvocation;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * retry transient minio failures with exponential backoff and full jitter.
+ * <p>
+ * Retried failures: I/O errors (connection reset, timeout), {@link ServerException}, {@link InvalidResponseException}
+ * and error responses such as SlowDown or ServiceUnavailable. Only repeatable operations are retried:
+ * reads, listing, presign and delete, or uploads whose stream can be reset.
+ * Each attempt chooses a node again, so an ejected node is avoided by the next attempt.
+ *
+ * @author Guangfu He
+ */
+public class RetryInterceptor implements MinioCallInterceptor {
+    private final static Logger log = LoggerFactory.getLogger(RetryInterceptor.class);
+
+    public final static int ORDER = 100;
+
+    private final static Set<ErrorCode> RETRYABLE_CODES = EnumSet.of(
+            ErrorCode.INTERNAL_ERROR,
+            ErrorCode.SLOW_DOWN,
+            ErrorCode.SERVICE_UNAVAILABLE,
+            ErrorCode.REQUEST_TIMEOUT);
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final RetryBudget budget;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param maxAttempts    max attempts including the first one
+     * @param initialBackoff upper bound of the first backoff, doubled on each retry
+     * @param maxBackoff     max backoff
+     * @param budget         shared retry budget
+     */
+    public RetryInterceptor(int maxAttempts, Duration initialBackoff, Duration maxBackoff, RetryBudget budget) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = Math.max(maxBackoff.toNanos(), initialBackoffNanos);
+        this.budget = budget;
+    }
+
+    public RetryInterceptor() {
+        this(3, Duration.ofMillis(100), Duration.ofSeconds(2), new RetryBudget(0.1, 10));
+    }
+
+    @Override
+    public <T, X extends Exception> T intercept(MinioOperation operation, MinioInvocation<T, X> next) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        budget.deposit();
+        operation.prepareReplay();
+        int attempt = 1;
+        while (true) {
+            try {
+                return next.invoke(operation);
+            } catch (Exception e) {
+                if (!shouldRetry(operation, e, attempt)) {
+                    throw e;
+                }
+                long backoff = backoffNanos(attempt);
+                log.debug("retry minio {} in {} ms after attempt {} failed: {}", operation, TimeUnit.NANOSECONDS.toMillis(backoff), attempt, e.toString());
+                if (!sleep(backoff) || !replay(operation)) {
+                    throw e;
+                }
+                retries.increment();
+                attempt++;
+            }
+        }
+    }
+
+    private boolean shouldRetry(MinioOperation operation, Exception e, int attempt) {
+        if (attempt >= maxAttempts || !operation.isRepeatable() || !isRetryable(e)) {
+            return false;
+        }
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.increment();
+            log.warn("minio retry budget exhausted, give up {} after attempt {}", operation, attempt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the failure is transient
+     */
+    public static boolean isRetryable(Throwable e) {
+        if (e instanceof ServerException || e instanceof InvalidResponseException) {
+            return true;
+        }
+        if (e instanceof ErrorResponseException) {
+            ErrorResponse response = ((ErrorResponseException) e).errorResponse();
+            return response != null && RETRYABLE_CODES.contains(response.errorCode());
+        }
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            // the calling thread is interrupted
+            return false;
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * full jitter: uniform in [0, min(max, initial * 2^(attempt-1))]
+     */
+    long backoffNanos(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean replay(MinioOperation operation) {
+        if (operation.getReplay() == null) {
+            return true;
+        }
+        try {
+            operation.getReplay().reset();
+            return true;
+        } catch (IOException e) {
+            log.warn("can not replay request body of {}: {}", operation, e.toString());
+            return false;
+        }
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,186 @@
+package win.hgfdodo.minio.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * adaptive concurrency limit based on TCP Vegas.
+ * <p>
+ * The limiter keeps the minimum round-trip time as the no-load latency and estimates the queue at the server as
+ * {@code limit * (1 - minRtt / rtt)}. The limit grows while the estimated queue is small and shrinks when it grows,
+ * and is cut by 10% on timeouts and overload errors. The minimum RTT is re-learned periodically
+ * so the limiter follows changes of the cluster, e.g. erasure code healing.
+ *
+ * @author Guangfu He
+ */
+public class VegasLimiter {
+    private final static double DROP_FACTOR = 0.9;
+    private final static int PROBE_INTERVAL = 1000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inflight;
+    private int queued;
+    private long minRttNanos;
+    private int samplesSinceProbe;
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param initialLimit initial concurrency limit
+     * @param maxQueue     max calls waiting for a slot
+     * @param maxWaitNanos max time a call waits for a slot, 0 to reject immediately
+     */
+    public VegasLimiter(String name, int initialLimit, int minLimit, int maxLimit, int maxQueue, long maxWaitNanos) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = Math.max(0, maxWaitNanos);
+    }
+
+    /**
+     * @return false if no slot is free within the max wait time or the wait queue is full
+     */
+    public boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inflight < (int) limit) {
+                inflight++;
+                return true;
+            }
+            if (maxWaitNanos == 0 || queued >= maxQueue) {
+                rejected.increment();
+                return false;
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inflight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inflight++;
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * release the slot and update the limit with the call round trip time
+     *
+     * @param dropped true on timeout or overload error
+     */
+    public void onSample(long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            int used = inflight;
+            inflight--;
+            if (dropped) {
+                limit = Math.max(minLimit, limit * DROP_FACTOR);
+            } else {
+                update(rttNanos, used);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * release the slot without a sample, e.g. the call failed for a client error
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inflight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rttNanos, int used) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (++samplesSinceProbe >= PROBE_INTERVAL) {
+            samplesSinceProbe = 0;
+            minRttNanos = rttNanos;
+            return;
+        }
+        if (minRttNanos == 0 || rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+        double log = Math.max(1, Math.log10(limit));
+        double queue = Math.ceil(limit * (1 - (double) minRttNanos / rttNanos));
+        if (queue <= 3 * log) {
+            // grow only when the limit is actually used
+            if (used * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + log);
+            }
+        } else if (queue > 6 * log) {
+            limit = Math.max(minLimit, limit - log);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getMinRttMillis() {
+        lock.lock();
+        try {
+            return minRttNanos / 1_000_000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
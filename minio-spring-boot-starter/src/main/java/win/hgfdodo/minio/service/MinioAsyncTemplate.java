@@ -0,0 +1,161 @@
+package win.hgfdodo.minio.service;
+
+import io.minio.ObjectStat;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Item;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.transfer.PrefetchingInputStream;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous minio operation template
+ * <p>
+ * Every call of {@link MinioTemplate} runs on the given bounded executor and returns a {@link CompletableFuture},
+ * which completes exceptionally with the minio exception of the call,
+ * or with {@link RejectedExecutionException} when the executor queue is full.
+ *
+ * @author Guangfu He
+ */
+public class MinioAsyncTemplate {
+    private final MinioTemplate minioTemplate;
+    private final Executor executor;
+    private final Duration prefetchIdleTimeout;
+
+    public MinioAsyncTemplate(MinioTemplate minioTemplate, Executor executor) {
+        this(minioTemplate, executor, PrefetchingInputStream.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param prefetchIdleTimeout default time a prefetching stream waits for its consumer, see {@link #getObjectPrefetched}
+     */
+    public MinioAsyncTemplate(MinioTemplate minioTemplate, Executor executor, Duration prefetchIdleTimeout) {
+        this.minioTemplate = minioTemplate;
+        this.executor = executor;
+        this.prefetchIdleTimeout = prefetchIdleTimeout;
+    }
+
+    public MinioTemplate getMinioTemplate() {
+        return minioTemplate;
+    }
+
+    /**
+     * Returned InputStream must be closed after use to release network resources.
+     */
+    public CompletableFuture<InputStream> getObject(String bucketName, String objectName) {
+        return supply(() -> minioTemplate.getObject(bucketName, objectName));
+    }
+
+    /**
+     * object content read ahead on the executor while the consumer processes it, see {@link PrefetchingInputStream}.
+     * Ranges are read on condition of the etag, reading fails with {@link ObjectModifiedException}
+     * if the object is overwritten. Returned InputStream must be closed after use to stop the background reader.
+     * A stream not read for the prefetch idle timeout is taken as abandoned, its reader stops and later reads fail.
+     */
+    public CompletableFuture<InputStream> getObjectPrefetched(String bucketName, String objectName) {
+        return getObjectPrefetched(bucketName, objectName, PrefetchingInputStream.DEFAULT_RANGE_SIZE, PrefetchingInputStream.DEFAULT_BUFFER_SIZE, PrefetchingInputStream.DEFAULT_BUFFERS);
+    }
+
+    /**
+     * @param rangeSize  bytes of each ranged request
+     * @param bufferSize bytes of each read-ahead buffer
+     * @param buffers    buffers filled ahead of the consumer
+     */
+    public CompletableFuture<InputStream> getObjectPrefetched(String bucketName, String objectName, long rangeSize, int bufferSize, int buffers) {
+        return getObjectPrefetched(bucketName, objectName, rangeSize, bufferSize, buffers, prefetchIdleTimeout);
+    }
+
+    /**
+     * @param idleTimeout time the background reader waits for the consumer to take a buffer, e.g. longer for consumers
+     *                    that pause between records
+     */
+    public CompletableFuture<InputStream> getObjectPrefetched(String bucketName, String objectName, long rangeSize, int bufferSize, int buffers, Duration idleTimeout) {
+        return supply(() -> {
+            ObjectStat stat = minioTemplate.getObjectInfo(bucketName, objectName);
+            return new PrefetchingInputStream((offset, length) -> minioTemplate.getObjectByPart(bucketName, objectName, stat.etag(), length, offset),
+                    stat.length(), executor, rangeSize, bufferSize, buffers, idleTimeout);
+        });
+    }
+
+    public CompletableFuture<InputStream> getObjectVersioned(String bucketName, String objectName, String versionId) {
+        return supply(() -> minioTemplate.getObjectVersioned(bucketName, objectName, versionId));
+    }
+
+    public CompletableFuture<InputStream> getObjectByPart(String bucketName, String objectName, long length, Long offset) {
+        return supply(() -> minioTemplate.getObjectByPart(bucketName, objectName, length, offset));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> saveObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) {
+        return supply(() -> minioTemplate.saveObject(bucketName, objectName, stream, objectSize, partSize, contentType));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> saveKnownSizeObject(String bucketName, String objectName, InputStream stream, long objectSize, String contentType) {
+        return supply(() -> minioTemplate.saveKnownSizeObject(bucketName, objectName, stream, objectSize, contentType));
+    }
+
+    public CompletableFuture<ObjectStat> getObjectInfo(String bucketName, String objectName) {
+        return supply(() -> minioTemplate.getObjectInfo(bucketName, objectName));
+    }
+
+    public CompletableFuture<ObjectStat> getVersionedObjectInfo(String bucketName, String objectName, String versionId) {
+        return supply(() -> minioTemplate.getVersionedObjectInfo(bucketName, objectName, versionId));
+    }
+
+    public CompletableFuture<Void> removeObject(String bucketName, String objectName) {
+        return supply(() -> {
+            minioTemplate.removeObject(bucketName, objectName);
+            return null;
+        });
+    }
+
+    /**
+     * @return list of deleting error object name
+     */
+    public CompletableFuture<List<String>> removeObjects(String bucketName, Collection<String> objectNames) {
+        return supply(() -> minioTemplate.removeObjects(bucketName, objectNames));
+    }
+
+    public CompletableFuture<List<Item>> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) {
+        return supply(() -> minioTemplate.getAllObjectsByPrefix(bucketName, prefix, recursive));
+    }
+
+    public CompletableFuture<String> getObjectURL(String bucketName, String objectName) {
+        return supply(() -> minioTemplate.getObjectURL(bucketName, objectName));
+    }
+
+    public CompletableFuture<String> getObjectURL(String bucketName, String objectName, Integer expires) {
+        return supply(() -> minioTemplate.getObjectURL(bucketName, objectName, expires));
+    }
+
+    private <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // cancelled before started
+                    return;
+                }
+                try {
+                    T result = task.call();
+                    if (!future.complete(result) && result instanceof Closeable) {
+                        // cancelled while running, nobody will close the stream
+                        ((Closeable) result).close();
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -9,10 +9,17 @@ import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.cache.ObjectCache;
+import win.hgfdodo.minio.cache.StatCache;
+import win.hgfdodo.minio.coalesce.SingleFlight;
 import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.connection.MinioOperation;
 import win.hgfdodo.minio.exception.MinioBadRequestException;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.presign.Presigner;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidKeyException;
@@ -22,84 +29,304 @@ import java.util.stream.Collectors;
 
 /**
  * Minio operation template
+ * <p>
+ * Calls are executed by {@link MinioConnectionFactory#execute}, so transient failures of repeatable
+ * operations are retried according to the configured retry policy.
  *
  * @author Guangfu He
  */
 public class MinioTemplate {
     private final static Logger log = LoggerFactory.getLogger(MinioTemplate.class);
+    private final static int MAX_READ_ATTEMPTS = 3;
     private final MinioConnectionFactory minioConnectionFactory;
+    private StatCache statCache;
+    private SingleFlight singleFlight;
+    private Presigner presigner;
+    private ObjectCache objectCache;
 
     public MinioTemplate(MinioConnectionFactory minioConnectionFactory) {
         this.minioConnectionFactory = minioConnectionFactory;
     }
 
+    /**
+     * cache results of {@link #getObjectInfo} and {@link #getVersionedObjectInfo}, entries are dropped on writes through this template
+     */
+    public void setStatCache(StatCache statCache) {
+        this.statCache = statCache;
+    }
+
+    public StatCache getStatCache() {
+        return statCache;
+    }
+
+    /**
+     * share one request between identical concurrent stat, presign and get calls, see {@link #getObject} and
+     * {@link #getObjectShared}
+     */
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * sign {@link #getObjectURL} urls locally with cached signing keys and urls instead of through the sdk
+     */
+    public void setPresigner(Presigner presigner) {
+        this.presigner = presigner;
+    }
+
+    public Presigner getPresigner() {
+        return presigner;
+    }
+
+    /**
+     * serve {@link #getObject} from the cache, entries are dropped on writes through this template. The cache fetches
+     * missing objects with {@link #getObjectIfMatch}, which does not go through it.
+     */
+    public void setObjectCache(ObjectCache objectCache) {
+        this.objectCache = objectCache;
+    }
+
+    public ObjectCache getObjectCache() {
+        return objectCache;
+    }
+
+    private void invalidate(String bucketName, String objectName) {
+        if (statCache != null) {
+            statCache.invalidate(bucketName, objectName);
+        }
+        if (objectCache != null) {
+            objectCache.invalidate(bucketName, objectName);
+        }
+        if (singleFlight != null) {
+            singleFlight.forget(bucketName, objectName);
+        }
+    }
+
+    private <V, X extends Exception> V coalesce(String bucketName, String objectName, String variant, SingleFlight.Call<V, X> call) throws X, IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return singleFlight == null ? call.call() : singleFlight.execute(bucketName, objectName, variant, call);
+    }
+
     /**
      * Bucket Operations
      */
 
     public void createBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException, RegionConflictException {
-        MinioClient client = minioConnectionFactory.getConnection();
-        if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
-            client.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
-        }
+        minioConnectionFactory.execute(MinioOperation.admin("createBucket", bucketName).idempotent(true), client -> {
+            if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
+                client.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+            }
+            return null;
+        });
     }
 
     public List<Bucket> getAllBuckets() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().listBuckets();
+        return minioConnectionFactory.execute(MinioOperation.admin("listBuckets", null).idempotent(true), MinioClient::listBuckets);
     }
 
     public Optional<Bucket> getBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().listBuckets().stream().filter(b -> b.name().equals(bucketName)).findFirst();
+        return getAllBuckets().stream().filter(b -> b.name().equals(bucketName)).findFirst();
     }
 
     public void removeBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        minioConnectionFactory.getConnection().removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+        minioConnectionFactory.execute(MinioOperation.admin("removeBucket", bucketName), client -> {
+            client.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+            return null;
+        });
     }
 
     public List<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        List<Item> objectList = new ArrayList();
-        Iterable<Result<Item>> objectsIterator = minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(recursive).prefix(prefix).build());
-        for (Result<Item> itemResult : objectsIterator) {
-            objectList.add(itemResult.get());
-        }
-        return objectList;
+        return minioConnectionFactory.execute(MinioOperation.list("listObjects", bucketName), client -> {
+            List<Item> objectList = new ArrayList<>();
+            Iterable<Result<Item>> objectsIterator = client.listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(recursive).prefix(prefix).build());
+            for (Result<Item> itemResult : objectsIterator) {
+                objectList.add(itemResult.get());
+            }
+            return objectList;
+        });
+    }
+
+    /**
+     * lazy object listing, next page is fetched when the iterator reaches the end of current page
+     */
+    public Iterable<Result<Item>> listObjects(String bucketName, String prefix, boolean recursive) {
+        return minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(recursive).prefix(prefix).build());
     }
 
     /**
      * Object operations
+     * <p>
+     * With a {@link SingleFlight}, identical concurrent reads of objects up to {@link SingleFlight#getMaxObjectSize()}
+     * are served by one request read into memory, larger objects are read by a request of their own.
      */
     public InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException, InvalidResponseException {
-        return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        if (objectCache != null) {
+            return objectCache.getObject(bucketName, objectName);
+        }
+        if (singleFlight == null) {
+            return openObject(bucketName, objectName);
+        }
+        for (int attempt = 1; ; attempt++) {
+            ObjectStat stat = getObjectInfo(bucketName, objectName);
+            if (stat.length() > singleFlight.getMaxObjectSize()) {
+                return openObject(bucketName, objectName);
+            }
+            try {
+                return new ByteArrayInputStream(singleFlight.execute(bucketName, objectName, "getObject:" + stat.etag(),
+                        () -> readFully(getObjectIfMatch(bucketName, objectName, stat.etag()), stat.length())));
+            } catch (ObjectModifiedException e) {
+                if (attempt >= MAX_READ_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * get the object through one request shared by the identical concurrent calls, each of them reads the response
+     * as fast as the slowest one, e.g. for large objects streamed to many clients at once. Without a
+     * {@link SingleFlight} the object is read by a request of its own.
+     * <p>
+     * Every returned stream must be closed.
+     */
+    public InputStream getObjectShared(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (singleFlight == null) {
+            return openObject(bucketName, objectName);
+        }
+        return singleFlight.share(bucketName, objectName, "getObject", () -> openObject(bucketName, objectName));
+    }
+
+    private InputStream openObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucketName, objectName).hedgeable(true),
+                client -> client.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build()));
     }
 
     public InputStream getObjectVersioned(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        if (singleFlight == null) {
+            return openObjectVersion(bucketName, objectName, versionId);
+        }
+        ObjectStat stat = getVersionedObjectInfo(bucketName, objectName, versionId);
+        if (stat.length() > singleFlight.getMaxObjectSize()) {
+            return openObjectVersion(bucketName, objectName, versionId);
+        }
+        // a version is never overwritten
+        return new ByteArrayInputStream(singleFlight.execute(bucketName, objectName, "getObjectVersion:" + versionId,
+                () -> readFully(openObjectVersion(bucketName, objectName, versionId), stat.length())));
+    }
+
+    private InputStream openObjectVersion(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucketName, objectName),
+                client -> client.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()));
+    }
+
+    private static byte[] readFully(InputStream stream, long length) throws IOException {
+        byte[] content = new byte[(int) length];
+        try (InputStream in = stream) {
+            int read = 0;
+            while (read < content.length) {
+                int n = in.read(content, read, content.length - read);
+                if (n == -1) {
+                    throw new EOFException("expected " + content.length + " bytes, got " + read);
+                }
+                read += n;
+            }
+        }
+        return content;
     }
 
     public InputStream getObjectByPart(String bucketName, String objectName, long length, Long offset) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).length(length).offset(offset).build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObjectPart", bucketName, objectName).hedgeable(true),
+                client -> client.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).length(length).offset(offset).build()));
+    }
+
+    /**
+     * get a range of the object only if it still has the etag, e.g. to combine ranges read in several requests
+     *
+     * @throws ObjectModifiedException the object was overwritten and has another etag
+     */
+    public InputStream getObjectByPart(String bucketName, String objectName, String etag, long length, long offset) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return getObjectMatching(bucketName, objectName, etag, "getObjectPart", GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .length(length)
+                .offset(offset));
+    }
+
+    /**
+     * get the object only if it still has the etag, not served from the object cache
+     *
+     * @throws ObjectModifiedException the object was overwritten and has another etag
+     */
+    public InputStream getObjectIfMatch(String bucketName, String objectName, String etag) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return getObjectMatching(bucketName, objectName, etag, "getObject", GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName));
+    }
+
+    private InputStream getObjectMatching(String bucketName, String objectName, String etag, String name, GetObjectArgs.Builder args) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        // GetObjectArgs.matchETag is not sent by this sdk version
+        GetObjectArgs getObjectArgs = args.extraHeaders(Collections.singletonMap("If-Match", "\"" + etag + "\"")).build();
+        try {
+            return minioConnectionFactory.execute(MinioOperation.read(name, bucketName, objectName).hedgeable(true),
+                    client -> client.getObject(getObjectArgs));
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.PRECONDITION_FAILED) {
+                invalidate(bucketName, objectName);
+                throw new ObjectModifiedException(bucketName, objectName, etag);
+            }
+            throw e;
+        }
     }
 
     public InputStream getObjectWithEncryption(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucketName, objectName),
+                client -> client.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build()));
     }
 
     /**
      * Object operations
      */
     public String getObjectURL(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, InvalidExpiresRangeException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).object(objectName).method(Method.GET).build());
+        if (presigner != null) {
+            return presigner.presign(bucketName, objectName);
+        }
+        return coalesce(bucketName, objectName, "presign", () -> minioConnectionFactory.execute(MinioOperation.read("presign", bucketName, objectName),
+                client -> client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).object(objectName).method(Method.GET).build())));
     }
 
     /**
      * Object operations
      */
     public String getObjectURL(String bucketName, String objectName, Integer expires) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, InvalidExpiresRangeException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).method(Method.GET).object(objectName).expiry(expires).build());
+        if (presigner != null) {
+            return presigner.presign(Method.GET, bucketName, objectName, null, expires == null ? GetPresignedObjectUrlArgs.DEFAULT_EXPIRY_TIME : expires);
+        }
+        return coalesce(bucketName, objectName, "presign:" + expires, () -> minioConnectionFactory.execute(MinioOperation.read("presign", bucketName, objectName),
+                client -> client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).method(Method.GET).object(objectName).expiry(expires).build())));
+    }
+
+    /**
+     * presigned GET urls of many objects, e.g. of a listing page
+     *
+     * @return urls by object name, in the order of the given names
+     */
+    public Map<String, String> getObjectURLs(String bucketName, Collection<String> objectNames, int expires) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, InvalidExpiresRangeException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        if (presigner != null) {
+            return presigner.presignAll(bucketName, objectNames, expires);
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String objectName : objectNames) {
+            urls.put(objectName, getObjectURL(bucketName, objectName, expires));
+        }
+        return urls;
     }
 
     public ObjectWriteResponse composeObject(List<ComposeSource> composeSources) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().composeObject(ComposeObjectArgs.builder().sources(composeSources).build());
+        return minioConnectionFactory.execute(MinioOperation.write("composeObject", null, null),
+                client -> client.composeObject(ComposeObjectArgs.builder().sources(composeSources).build()));
     }
 
     /**
@@ -157,7 +384,12 @@ public class MinioTemplate {
                 .stream(stream, objectSize, partSize)
                 .contentType(contentType)
                 .build();
-        return minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        try {
+            return minioConnectionFactory.execute(MinioOperation.upload("putObject", bucketName, objectName, stream, objectSize),
+                    client -> client.putObject(putObjectArgs));
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -180,7 +412,12 @@ public class MinioTemplate {
                 .headers(headers)
                 .userMetadata(userMetadata)
                 .build();
-        minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        try {
+            minioConnectionFactory.execute(MinioOperation.upload("putObject", bucketName, objectName, stream, objectSize),
+                    client -> client.putObject(putObjectArgs));
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -205,7 +442,12 @@ public class MinioTemplate {
                 .userMetadata(userMetadata)
                 .sse(serverSideEncryption)
                 .build();
-        minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        try {
+            minioConnectionFactory.execute(MinioOperation.upload("putObject", bucketName, objectName, stream, objectSize),
+                    client -> client.putObject(putObjectArgs));
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -216,7 +458,15 @@ public class MinioTemplate {
      * @return
      */
     public ObjectStat getObjectInfo(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        if (statCache != null) {
+            return statCache.get(bucketName, objectName, null, () -> statObject(bucketName, objectName));
+        }
+        return statObject(bucketName, objectName);
+    }
+
+    private ObjectStat statObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return coalesce(bucketName, objectName, "statObject", () -> minioConnectionFactory.execute(MinioOperation.read("statObject", bucketName, objectName).hedgeable(true),
+                client -> client.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build())));
     }
 
     /**
@@ -227,15 +477,37 @@ public class MinioTemplate {
      * @return
      */
     public ObjectStat getVersionedObjectInfo(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        if (statCache != null) {
+            return statCache.get(bucketName, objectName, versionId, () -> statVersionedObject(bucketName, objectName, versionId));
+        }
+        return statVersionedObject(bucketName, objectName, versionId);
+    }
+
+    private ObjectStat statVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return coalesce(bucketName, objectName, "statObject:" + versionId, () -> minioConnectionFactory.execute(MinioOperation.read("statObject", bucketName, objectName),
+                client -> client.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build())));
     }
 
     public void removeObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        minioConnectionFactory.getConnection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("removeObject", bucketName, objectName).idempotent(true), client -> {
+                client.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+                return null;
+            });
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     public void removeVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        minioConnectionFactory.getConnection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("removeObject", bucketName, objectName).idempotent(true), client -> {
+                client.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+                return null;
+            });
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -247,13 +519,20 @@ public class MinioTemplate {
      */
     public List<String> removeObjects(String bucketName, Collection<String> objectNames) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
         List<DeleteObject> objects = objectNames.stream().map(DeleteObject::new).collect(Collectors.toList());
-        Iterable<Result<DeleteError>> results = minioConnectionFactory.getConnection().removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
-        List<String> errorDeleteObjects = new ArrayList<>();
-        for (Result<DeleteError> result : results) {
-            errorDeleteObjects.add(result.get().objectName());
-            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().errorCode(), result.get().message());
+        try {
+            return minioConnectionFactory.execute(MinioOperation.write("removeObjects", bucketName, null).idempotent(true), client -> {
+                // results are lazy, deletion happens while iterating
+                Iterable<Result<DeleteError>> results = client.removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
+                List<String> errorDeleteObjects = new ArrayList<>();
+                for (Result<DeleteError> result : results) {
+                    errorDeleteObjects.add(result.get().objectName());
+                    log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().errorCode(), result.get().message());
+                }
+                return errorDeleteObjects;
+            });
+        } finally {
+            objectNames.forEach(objectName -> invalidate(bucketName, objectName));
         }
-        return errorDeleteObjects;
     }
 
 }
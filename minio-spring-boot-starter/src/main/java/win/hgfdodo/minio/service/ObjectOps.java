@@ -6,16 +6,25 @@ import io.minio.http.Method;
 import io.minio.messages.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.cache.ObjectCache;
+import win.hgfdodo.minio.cache.StatCache;
 import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.connection.MinioOperation;
 import win.hgfdodo.minio.exception.MinioBadRequestException;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.presign.Presigner;
+import win.hgfdodo.minio.transfer.ChannelTransfer;
+import win.hgfdodo.minio.transfer.FsyncPolicy;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -40,6 +49,9 @@ public class ObjectOps {
     private ServerSideEncryption serverSideEncryption;
     private Tags tags;
     private ServerSideEncryptionCustomerKey ssec;
+    private Presigner presigner;
+    private ObjectCache objectCache;
+    private StatCache statCache;
 
     /**
      * Set bucket server side encryption to operate
@@ -83,6 +95,41 @@ public class ObjectOps {
         return this;
     }
 
+    /**
+     * Set presigner used for presigned urls without extra headers and query parameters
+     *
+     * @param presigner
+     * @return
+     */
+    public ObjectOps presigner(Presigner presigner) {
+        this.presigner = presigner;
+        return this;
+    }
+
+    /**
+     * Set object cache serving {@link #getObject(String, String)} without extra headers, query parameters and ssec,
+     * cached objects are dropped on writes through these operations
+     *
+     * @param objectCache
+     * @return
+     */
+    public ObjectOps objectCache(ObjectCache objectCache) {
+        this.objectCache = objectCache;
+        return this;
+    }
+
+    /**
+     * Set stat cache serving {@link #statObject} without extra headers, query parameters and ssec, e.g. the cache of
+     * {@link MinioTemplate#getStatCache()}, entries are dropped on writes through these operations
+     *
+     * @param statCache
+     * @return
+     */
+    public ObjectOps statCache(StatCache statCache) {
+        this.statCache = statCache;
+        return this;
+    }
+
     public ObjectOps(MinioConnectionFactory minioConnectionFactory) {
         this.minioConnectionFactory = minioConnectionFactory;
     }
@@ -91,23 +138,37 @@ public class ObjectOps {
         return minioConnectionFactory.getConnection();
     }
 
+    private void invalidate(String bucketName, String objectName) {
+        if (statCache != null) {
+            statCache.invalidate(bucketName, objectName);
+        }
+        if (objectCache != null) {
+            objectCache.invalidate(bucketName, objectName);
+        }
+    }
+
     /**
      * Creates an object by combining data from different source objects using server-side copy.
      */
     public ObjectWriteResponse composeObject(String bucketName, String mergedObjectName, List<ComposeSource> composeSources) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().composeObject(
-                ComposeObjectArgs.builder()
-                        .bucket(bucketName)
-                        .region(region)
-                        .headers(headers)
-                        .extraHeaders(extraHeaders)
-                        .extraQueryParams(extraQueryParams)
-                        .tags(tags)
-                        .sse(serverSideEncryption)
-                        .userMetadata(userMetadata)
-                        .sources(composeSources)
-                        .object(mergedObjectName)
-                        .build());
+        try {
+            return minioConnectionFactory.execute(MinioOperation.write("composeObject", bucketName, mergedObjectName),
+                    client -> client.composeObject(
+                            ComposeObjectArgs.builder()
+                                    .bucket(bucketName)
+                                    .region(region)
+                                    .headers(headers)
+                                    .extraHeaders(extraHeaders)
+                                    .extraQueryParams(extraQueryParams)
+                                    .tags(tags)
+                                    .sse(serverSideEncryption)
+                                    .userMetadata(userMetadata)
+                                    .sources(composeSources)
+                                    .object(mergedObjectName)
+                                    .build()));
+        } finally {
+            invalidate(bucketName, mergedObjectName);
+        }
     }
 
     public void copyObject(String destBucket, String destObjectName, String srcBucket, String srcObjectName, Directive taggingDirective, Directive metadataDirective) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
@@ -116,93 +177,163 @@ public class ObjectOps {
     }
 
     public void copyObject(String destBucket, String destObjectName, CopySource copySource, Directive taggingDirective, Directive metadataDirective) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().copyObject(
-                CopyObjectArgs.builder()
-                        .bucket(destBucket)
-                        .object(destObjectName)
-                        .region(region)
-                        .headers(headers)
-                        .extraHeaders(extraHeaders)
-                        .extraQueryParams(extraQueryParams)
-                        .tags(tags)
-                        .sse(serverSideEncryption)
-                        .userMetadata(userMetadata)
-                        .source(copySource)
-                        .taggingDirective(taggingDirective)
-                        .metadataDirective(metadataDirective)
-                        .build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("copyObject", destBucket, destObjectName), client -> {
+                client.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(destBucket)
+                                .object(destObjectName)
+                                .region(region)
+                                .headers(headers)
+                                .extraHeaders(extraHeaders)
+                                .extraQueryParams(extraQueryParams)
+                                .tags(tags)
+                                .sse(serverSideEncryption)
+                                .userMetadata(userMetadata)
+                                .source(copySource)
+                                .taggingDirective(taggingDirective)
+                                .metadataDirective(metadataDirective)
+                                .build());
+                return null;
+            });
+        } finally {
+            invalidate(destBucket, destObjectName);
+        }
     }
 
     /**
      * Deletes tags of an object.
      */
     public void deleteObjectTags(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().deleteObjectTags(DeleteObjectTagsArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .object(objectName)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("deleteObjectTags", bucket, objectName).idempotent(true), client -> {
+            client.deleteObjectTags(DeleteObjectTagsArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .object(objectName)
+                    .build());
+            return null;
+        });
     }
 
     /**
      * Disables legal hold on an object.
      */
     public void disableObjectLegalHold(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().disableObjectLegalHold(DisableObjectLegalHoldArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .object(objectName)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("disableObjectLegalHold", bucket, objectName).idempotent(true), client -> {
+            client.disableObjectLegalHold(DisableObjectLegalHoldArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .object(objectName)
+                    .build());
+            return null;
+        });
     }
 
     public void downloadObject(String bucket, String objectName, String filename) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().downloadObject(DownloadObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .filename(filename)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.read("downloadObject", bucket, objectName), client -> {
+            client.downloadObject(DownloadObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .ssec(ssec)
+                    .filename(filename)
+                    .build());
+            return null;
+        });
     }
 
     public void downloadVersionedObject(String bucket, String objectName, String filename, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().downloadObject(DownloadObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .versionId(versionId)
-                .filename(filename)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.read("downloadObject", bucket, objectName), client -> {
+            client.downloadObject(DownloadObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .ssec(ssec)
+                    .versionId(versionId)
+                    .filename(filename)
+                    .build());
+            return null;
+        });
+    }
+
+    /**
+     * download the object into the file through a {@link java.nio.channels.FileChannel}.
+     * The file is sized to the object up front and replaced only when the download completes.
+     * Only the stat and the request count against the connection, the content is copied after they returned.
+     *
+     * @param fsync when to force the content to the device
+     * @return bytes written
+     * @throws ObjectModifiedException the object was overwritten between the stat and the request
+     */
+    public long downloadObject(String bucket, String objectName, Path file, FsyncPolicy fsync) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        ObjectStat stat = minioConnectionFactory.execute(MinioOperation.read("statObject", bucket, objectName), client ->
+                client.statObject(StatObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .build()));
+        // the content must belong to the stat the file is sized by
+        Map<String, String> matchHeaders = extraHeaders == null ? new HashMap<>() : new HashMap<>(extraHeaders);
+        matchHeaders.put("If-Match", "\"" + stat.etag() + "\"");
+        InputStream in;
+        try {
+            in = minioConnectionFactory.execute(MinioOperation.read("downloadObject", bucket, objectName), client ->
+                    client.getObject(GetObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectName)
+                            .region(region)
+                            .extraHeaders(matchHeaders)
+                            .extraQueryParams(extraQueryParams)
+                            .ssec(ssec)
+                            .build()));
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.PRECONDITION_FAILED) {
+                invalidate(bucket, objectName);
+                throw new ObjectModifiedException(bucket, objectName, stat.etag());
+            }
+            throw e;
+        }
+        try (InputStream content = in) {
+            return ChannelTransfer.download(content, file, stat.length(), fsync);
+        }
     }
 
     public void enableVersionedObjectLegalHold(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .versionId(versionId)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("enableObjectLegalHold", bucket, objectName).idempotent(true), client -> {
+            client.enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .versionId(versionId)
+                    .build());
+            return null;
+        });
     }
 
     public void enableObjectLegalHold(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("enableObjectLegalHold", bucket, objectName).idempotent(true), client -> {
+            client.enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .build());
+            return null;
+        });
     }
 
     /**
@@ -210,14 +341,18 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .build());
+        if (objectCache != null && extraHeaders == null && extraQueryParams == null && ssec == null) {
+            return objectCache.getObject(bucket, objectName);
+        }
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucket, objectName),
+                client -> client.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .build()));
     }
 
 
@@ -226,15 +361,16 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucket, objectName),
+                client -> client.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .versionId(versionId)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .build()));
     }
 
     /**
@@ -242,15 +378,16 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName, long offset) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .offset(offset)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucket, objectName),
+                client -> client.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .offset(offset)
+                        .build()));
     }
 
 
@@ -259,16 +396,17 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObjectPart(String bucket, String objectName, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .offset(offset)
-                .length(length)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucket, objectName),
+                client -> client.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .offset(offset)
+                        .length(length)
+                        .build()));
     }
 
     /**
@@ -276,59 +414,64 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getVersionedObjectPart(String bucket, String objectName, String versionId, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .versionId(versionId)
-                .offset(offset)
-                .length(length)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObject", bucket, objectName),
+                client -> client.getObject(GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .versionId(versionId)
+                        .offset(offset)
+                        .length(length)
+                        .build()));
     }
 
     public Retention getObjectRetention(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObjectRetention(GetObjectRetentionArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObjectRetention", bucket, objectName),
+                client -> client.getObjectRetention(GetObjectRetentionArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     public Retention getVersionedObjectRetention(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObjectRetention(GetObjectRetentionArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObjectRetention", bucket, objectName),
+                client -> client.getObjectRetention(GetObjectRetentionArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .versionId(versionId)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     public Tags getObjectTags(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObjectTags(GetObjectTagsArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObjectTags", bucket, objectName),
+                client -> client.getObjectTags(GetObjectTagsArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     public Tags getObjectTags(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getObjectTags(GetObjectTagsArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("getObjectTags", bucket, objectName),
+                client -> client.getObjectTags(GetObjectTagsArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .versionId(versionId)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     /**
@@ -345,15 +488,19 @@ public class ObjectOps {
      * @return
      */
     public String getPresignedObjectUrl(String bucket, String objectName, Method method, int expirySeconds) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, InvalidExpiresRangeException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .method(method)
-                .expiry(expirySeconds)
-                .build());
+        if (canPresignLocally()) {
+            return presigner.presign(method, bucket, objectName, null, expirySeconds);
+        }
+        return minioConnectionFactory.execute(MinioOperation.read("getPresignedObjectUrl", bucket, objectName),
+                client -> client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .method(method)
+                        .expiry(expirySeconds)
+                        .build()));
     }
 
     /**
@@ -362,103 +509,130 @@ public class ObjectOps {
      * @return
      */
     public String getVersionedPresignedObjectUrl(String bucket, String objectName, String versionId, Method method, int expirySeconds) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, InvalidExpiresRangeException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .versionId(versionId)
-                .method(method)
-                .expiry(expirySeconds)
-                .build());
+        if (canPresignLocally()) {
+            return presigner.presign(method, bucket, objectName, versionId, expirySeconds);
+        }
+        return minioConnectionFactory.execute(MinioOperation.read("getPresignedObjectUrl", bucket, objectName),
+                client -> client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .versionId(versionId)
+                        .method(method)
+                        .expiry(expirySeconds)
+                        .build()));
+    }
+
+    /**
+     * extra headers and query parameters are signed by the sdk
+     */
+    private boolean canPresignLocally() {
+        return presigner != null
+                && (extraHeaders == null || extraHeaders.isEmpty())
+                && (extraQueryParams == null || extraQueryParams.isEmpty())
+                && (region == null || region.equals(presigner.getRegion()));
     }
 
     public boolean isObjectLegalHoldEnabled(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("isObjectLegalHoldEnabled", bucket, objectName),
+                client -> client.isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     public boolean isVersionedObjectLegalHoldEnabled(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
-                .bucket(bucket)
-                .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("isObjectLegalHoldEnabled", bucket, objectName),
+                client -> client.isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .versionId(versionId)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
     }
 
     public List<Item> listAllObjects(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
-        for (Result<Item> itemResult : iterable) {
-            items.add(itemResult.get());
-        }
-        return items;
+        return minioConnectionFactory.execute(MinioOperation.list("listObjects", bucket), client -> {
+            List<Item> items = new ArrayList<>();
+            Iterable<Result<Item>> iterable = client.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .build());
+            for (Result<Item> itemResult : iterable) {
+                items.add(itemResult.get());
+            }
+            return items;
+        });
     }
 
     public List<Item> listAllObjectsExtra(String bucket, boolean fetchOwner, boolean includeUserMetadata, boolean includeVersions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .fetchOwner(fetchOwner)
-                .includeUserMetadata(includeUserMetadata)
-                .includeVersions(includeVersions)
-                .build());
-        for (Result<Item> itemResult : iterable) {
-            items.add(itemResult.get());
-        }
-        return items;
+        return minioConnectionFactory.execute(MinioOperation.list("listObjects", bucket), client -> {
+            List<Item> items = new ArrayList<>();
+            Iterable<Result<Item>> iterable = client.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .fetchOwner(fetchOwner)
+                    .includeUserMetadata(includeUserMetadata)
+                    .includeVersions(includeVersions)
+                    .build());
+            for (Result<Item> itemResult : iterable) {
+                items.add(itemResult.get());
+            }
+            return items;
+        });
     }
 
     public List<Item> listAllObjectsRecursive(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .fetchOwner(true)
-                .includeUserMetadata(true)
-                .includeVersions(true)
-                .build());
-        for (Result<Item> itemResult : iterable) {
-            items.add(itemResult.get());
-        }
-        return items;
+        return minioConnectionFactory.execute(MinioOperation.list("listObjects", bucket), client -> {
+            List<Item> items = new ArrayList<>();
+            Iterable<Result<Item>> iterable = client.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .fetchOwner(true)
+                    .includeUserMetadata(true)
+                    .includeVersions(true)
+                    .build());
+            for (Result<Item> itemResult : iterable) {
+                items.add(itemResult.get());
+            }
+            return items;
+        });
     }
 
     public void presignedPostPolicy() {
     }
 
     public ObjectWriteResponse putObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().putObject(PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .sse(serverSideEncryption)
-                .userMetadata(userMetadata)
-                .headers(headers)
-                .contentType(contentType)
-                .stream(stream, objectSize, partSize)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        try {
+            return minioConnectionFactory.execute(MinioOperation.upload("putObject", bucketName, objectName, stream, objectSize),
+                    client -> client.putObject(PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .sse(serverSideEncryption)
+                            .userMetadata(userMetadata)
+                            .headers(headers)
+                            .contentType(contentType)
+                            .stream(stream, objectSize, partSize)
+                            .region(region)
+                            .extraHeaders(extraHeaders)
+                            .extraQueryParams(extraQueryParams)
+                            .build()));
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     public ObjectWriteResponse mkdir(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException, MinioBadRequestException {
@@ -480,35 +654,56 @@ public class ObjectOps {
     }
 
     public void removeObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("removeObject", bucketName, objectName).idempotent(true), client -> {
+                client.removeObject(RemoveObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .build());
+                return null;
+            });
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     public void removeVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .versionId(versionId)
-                .build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("removeObject", bucketName, objectName).idempotent(true), client -> {
+                client.removeObject(RemoveObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .versionId(versionId)
+                        .build());
+                return null;
+            });
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     public void removeObject(String bucketName, String objectName, boolean bypassGovernanceMode) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .bypassGovernanceMode(bypassGovernanceMode)
-                .build());
+        try {
+            minioConnectionFactory.execute(MinioOperation.write("removeObject", bucketName, objectName).idempotent(true), client -> {
+                client.removeObject(RemoveObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .bypassGovernanceMode(bypassGovernanceMode)
+                        .build());
+                return null;
+            });
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -520,94 +715,127 @@ public class ObjectOps {
      */
     public List<String> removeObjects(String bucketName, List<String> objectNames) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
         List<DeleteObject> objects = objectNames.stream().map(DeleteObject::new).collect(Collectors.toList());
-        Iterable<Result<DeleteError>> results = minioConnectionFactory.getConnection().removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
-        List<String> errorDeleteObjects = new ArrayList<>();
-        for (Result<DeleteError> result : results) {
-            errorDeleteObjects.add(result.get().objectName());
-            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().errorCode(), result.get().message());
+        try {
+            return minioConnectionFactory.execute(MinioOperation.write("removeObjects", bucketName, null).idempotent(true), client -> {
+                // results are lazy, deletion happens while iterating
+                Iterable<Result<DeleteError>> results = client.removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
+                List<String> errorDeleteObjects = new ArrayList<>();
+                for (Result<DeleteError> result : results) {
+                    errorDeleteObjects.add(result.get().objectName());
+                    log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().errorCode(), result.get().message());
+                }
+                return errorDeleteObjects;
+            });
+        } finally {
+            for (String objectName : objectNames) {
+                invalidate(bucketName, objectName);
+            }
         }
-        return errorDeleteObjects;
     }
 
     /**
      * Selects content of a object by SQL expression.
      */
     public SelectResponseStream selectObjectContent(String bucketName, String objectName, String sql, InputSerialization is, OutputSerialization os) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().selectObjectContent(
-                SelectObjectContentArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectName)
-                        .sqlExpression(sql)
-                        .inputSerialization(is)
-                        .outputSerialization(os)
-                        .requestProgress(true)
-                        .build());
+        return minioConnectionFactory.execute(MinioOperation.read("selectObjectContent", bucketName, objectName),
+                client -> client.selectObjectContent(
+                        SelectObjectContentArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .sqlExpression(sql)
+                                .inputSerialization(is)
+                                .outputSerialization(os)
+                                .requestProgress(true)
+                                .build()));
     }
 
     public void setObjectRetention(String bucketName, String objectName, RetentionMode retentionMode, ZonedDateTime retainUntilDate) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
         Retention retention = new Retention(retentionMode, retainUntilDate);
-        connection().setObjectRetention(SetObjectRetentionArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .config(retention)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("setObjectRetention", bucketName, objectName).idempotent(true), client -> {
+            client.setObjectRetention(SetObjectRetentionArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .config(retention)
+                    .build());
+            return null;
+        });
     }
 
     public void setObjectTags(String bucketName, String objectName, Tags tags) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().setObjectTags(SetObjectTagsArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .tags(tags)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("setObjectTags", bucketName, objectName).idempotent(true), client -> {
+            client.setObjectTags(SetObjectTagsArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .tags(tags)
+                    .build());
+            return null;
+        });
     }
 
     public void setObjectTags(String bucketName, String objectName, Map<String, String> tags) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        connection().setObjectTags(SetObjectTagsArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .tags(tags)
-                .build());
+        minioConnectionFactory.execute(MinioOperation.write("setObjectTags", bucketName, objectName).idempotent(true), client -> {
+            client.setObjectTags(SetObjectTagsArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .region(region)
+                    .extraHeaders(extraHeaders)
+                    .extraQueryParams(extraQueryParams)
+                    .tags(tags)
+                    .build());
+            return null;
+        });
     }
 
     public ObjectStat statObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().statObject(StatObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .build());
+        if (statCache != null && extraHeaders == null && extraQueryParams == null && ssec == null) {
+            return statCache.get(bucketName, objectName, null, () -> loadStat(bucketName, objectName));
+        }
+        return loadStat(bucketName, objectName);
+    }
+
+    private ObjectStat loadStat(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
+        return minioConnectionFactory.execute(MinioOperation.read("statObject", bucketName, objectName),
+                client -> client.statObject(StatObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .build()));
     }
 
     public ObjectStat statVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().statObject(StatObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .versionId(versionId)
-                .build());
+        return minioConnectionFactory.execute(MinioOperation.read("statObject", bucketName, objectName),
+                client -> client.statObject(StatObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .region(region)
+                        .extraHeaders(extraHeaders)
+                        .extraQueryParams(extraQueryParams)
+                        .ssec(ssec)
+                        .versionId(versionId)
+                        .build()));
     }
 
     public ObjectWriteResponse uploadObject(String bucketName, String objectName, String filename, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, InvalidBucketNameException, ErrorResponseException {
-        return connection().uploadObject(UploadObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .sse(serverSideEncryption)
-                .contentType(contentType)
-                .filename(filename)
-                .build());
+        try {
+            return minioConnectionFactory.execute(MinioOperation.upload("uploadObject", bucketName, objectName, null, -1).idempotent(true),
+                    client -> client.uploadObject(UploadObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .region(region)
+                            .extraHeaders(extraHeaders)
+                            .extraQueryParams(extraQueryParams)
+                            .sse(serverSideEncryption)
+                            .contentType(contentType)
+                            .filename(filename)
+                            .build()));
+        } finally {
+            invalidate(bucketName, objectName);
+        }
     }
 }
@@ -0,0 +1,106 @@
+package win.hgfdodo.minio.transfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+
+/**
+ * copy response content into files through {@link FileChannel#transferFrom}.
+ * <p>
+ * The channel copies through its own cached direct buffer, so a download does not allocate a buffer per read.
+ * Content is written to a temporary file next to the target, sized to the object up front,
+ * and moved to the target name once complete, so readers never see a partial file.
+ *
+ * @author Guangfu He
+ */
+public final class ChannelTransfer {
+    private final static Logger log = LoggerFactory.getLogger(ChannelTransfer.class);
+
+    /**
+     * bytes requested from the channel per transferFrom call
+     */
+    private final static long CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private ChannelTransfer() {
+    }
+
+    /**
+     * write the stream into the file
+     *
+     * @param size  expected bytes, -1 if unknown
+     * @param fsync when to force content to the device
+     * @return bytes written
+     * @throws EOFException if the stream ends before {@code size} bytes
+     */
+    public static long download(InputStream in, Path file, long size, FsyncPolicy fsync) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path part = (parent == null ? Paths.get(".") : parent).resolve(file.getFileName() + ".part.minio");
+        boolean completed = false;
+        try {
+            long written;
+            try (RandomAccessFile raf = new RandomAccessFile(part.toFile(), "rw")) {
+                FileChannel channel = raf.getChannel();
+                if (size >= 0) {
+                    // only sets the file size, the file stays sparse until the content is written
+                    raf.setLength(size);
+                }
+                written = transfer(in, channel, 0, size);
+                if (size < 0) {
+                    raf.setLength(written);
+                } else if (written < size) {
+                    throw new EOFException("expected " + size + " bytes, got " + written + " for " + file);
+                }
+                if (fsync != FsyncPolicy.NONE) {
+                    channel.force(fsync == FsyncPolicy.ALL);
+                }
+            }
+            try {
+                Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            completed = true;
+            return written;
+        } finally {
+            if (!completed) {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    log.warn("failed to delete partial download {}", part, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * write the stream into the channel at the position
+     *
+     * @param count bytes to write, -1 to write until the end of the stream
+     * @return bytes written
+     */
+    public static long transfer(InputStream in, FileChannel channel, long position, long count) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(in);
+        long written = 0;
+        while (count < 0 || written < count) {
+            long chunk = count < 0 ? CHUNK_SIZE : Math.min(CHUNK_SIZE, count - written);
+            long n = channel.transferFrom(source, position + written, chunk);
+            if (n <= 0) {
+                // a blocking source only transfers nothing at the end of the stream
+                break;
+            }
+            written += n;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,149 @@
+package win.hgfdodo.minio.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * sidecar of a resumable download, records the object version and the ranges already written to the part file
+ *
+ * @author Guangfu He
+ */
+class DownloadCheckpoint {
+    private final Path path;
+    private final String etag;
+    private final String versionId;
+    private final long length;
+    private final long partSize;
+    private final BitSet completed;
+
+    DownloadCheckpoint(Path path, String etag, String versionId, long length, long partSize) {
+        this(path, etag, versionId, length, partSize, new BitSet());
+    }
+
+    private DownloadCheckpoint(Path path, String etag, String versionId, long length, long partSize, BitSet completed) {
+        this.path = path;
+        this.etag = etag;
+        this.versionId = versionId;
+        this.length = length;
+        this.partSize = partSize;
+        this.completed = completed;
+    }
+
+    /**
+     * @return null if there is no readable checkpoint
+     */
+    static DownloadCheckpoint load(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+            return new DownloadCheckpoint(path,
+                    properties.getProperty("etag"),
+                    properties.getProperty("versionId"),
+                    Long.parseLong(properties.getProperty("length")),
+                    Long.parseLong(properties.getProperty("partSize")),
+                    parse(properties.getProperty("completed", "")));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the checkpoint was written for the same object content and range layout, never without an etag
+     * since the content can't be told apart then
+     */
+    boolean matches(String etag, String versionId, long length, long partSize) {
+        return this.etag != null && this.etag.equals(etag) && Objects.equals(this.versionId, versionId)
+                && this.length == length && this.partSize == partSize;
+    }
+
+    synchronized boolean isCompleted(int range) {
+        return completed.get(range);
+    }
+
+    synchronized BitSet completed() {
+        return (BitSet) completed.clone();
+    }
+
+    synchronized int getCompletedCount() {
+        return completed.cardinality();
+    }
+
+    /**
+     * mark the range as written and persist the checkpoint, the range content must already be on disk
+     */
+    synchronized void complete(int range) throws IOException {
+        completed.set(range);
+        save();
+    }
+
+    synchronized void save() throws IOException {
+        Properties properties = new Properties();
+        if (etag != null) {
+            properties.setProperty("etag", etag);
+        }
+        if (versionId != null) {
+            properties.setProperty("versionId", versionId);
+        }
+        properties.setProperty("length", String.valueOf(length));
+        properties.setProperty("partSize", String.valueOf(partSize));
+        properties.setProperty("completed", format(completed));
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, null);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * @return range indexes as "0-5,7,9-10"
+     */
+    static String format(BitSet bits) {
+        StringBuilder builder = new StringBuilder();
+        int from = bits.nextSetBit(0);
+        while (from >= 0) {
+            int to = bits.nextClearBit(from) - 1;
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(from);
+            if (to > from) {
+                builder.append('-').append(to);
+            }
+            from = bits.nextSetBit(to + 1);
+        }
+        return builder.toString();
+    }
+
+    static BitSet parse(String value) {
+        BitSet bits = new BitSet();
+        for (String item : value.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int dash = item.indexOf('-');
+            if (dash < 0) {
+                bits.set(Integer.parseInt(item));
+            } else {
+                bits.set(Integer.parseInt(item.substring(0, dash)), Integer.parseInt(item.substring(dash + 1)) + 1);
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,21 @@
+package win.hgfdodo.minio.transfer;
+
+/**
+ * when downloaded file content is forced to the storage device
+ *
+ * @author Guangfu He
+ */
+public enum FsyncPolicy {
+    /**
+     * leave it to the operating system, fastest for bulk exports that can be repeated
+     */
+    NONE,
+    /**
+     * force file content before the file is moved to its name
+     */
+    DATA,
+    /**
+     * force file content and metadata before the file is moved to its name
+     */
+    ALL
+}
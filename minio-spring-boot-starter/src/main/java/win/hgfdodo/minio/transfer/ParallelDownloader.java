@@ -0,0 +1,443 @@
+package win.hgfdodo.minio.transfer;
+
+import io.minio.ErrorCode;
+import io.minio.GetObjectArgs;
+import io.minio.ObjectStat;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.MinioException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.resilience.RetryInterceptor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * download large objects over several connections.
+ * <p>
+ * The object is split into byte ranges of {@code partSize}, fetched concurrently with ranged GET requests.
+ * Every range request carries {@code If-Match} with the etag read before the download, if the object has one, so an
+ * object overwritten during the download fails with {@link ObjectModifiedException} instead of mixing two versions.
+ * A range interrupted by a network error is fetched again from where it stopped, up to {@code maxRangeAttempts}.
+ *
+ * @author Guangfu He
+ */
+public class ParallelDownloader {
+    private final static Logger log = LoggerFactory.getLogger(ParallelDownloader.class);
+
+    public final static long DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final Executor executor;
+    private final long partSize;
+    private final int parallelism;
+    private final int window;
+    private final int maxRangeAttempts;
+
+    public ParallelDownloader(MinioConnectionFactory minioConnectionFactory, Executor executor) {
+        this(minioConnectionFactory, executor, DEFAULT_PART_SIZE, 4, 8, 3);
+    }
+
+    /**
+     * @param partSize         bytes of each range
+     * @param parallelism      ranges downloaded at the same time to a file
+     * @param window           ranges fetched ahead or buffered by a stream, memory used is {@code window * partSize}
+     * @param maxRangeAttempts attempts of each range
+     */
+    public ParallelDownloader(MinioConnectionFactory minioConnectionFactory, Executor executor, long partSize, int parallelism, int window, int maxRangeAttempts) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.executor = executor;
+        this.partSize = Math.max(64 * 1024, Math.min(partSize, Integer.MAX_VALUE - 8));
+        this.parallelism = Math.max(1, parallelism);
+        this.window = Math.max(1, window);
+        this.maxRangeAttempts = Math.max(1, maxRangeAttempts);
+    }
+
+    /**
+     * download the object into the file. Ranges are written at their positions to a temporary file next to the target,
+     * sized to the object up front, which replaces the target once all ranges are written. An existing file is
+     * left untouched when the download fails.
+     *
+     * @return stat of the downloaded object
+     */
+    public ObjectStat download(String bucketName, String objectName, Path file) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        ObjectStat stat = stat(bucketName, objectName, null);
+        List<long[]> ranges = split(stat.length());
+        long start = System.nanoTime();
+        Path target = file.toAbsolutePath();
+        Path part = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        boolean completed = false;
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(part.toFile(), "rw")) {
+                raf.setLength(stat.length());
+                FileChannel channel = raf.getChannel();
+                runAll(ranges, (index, range) -> fetchRange(bucketName, objectName, null, stat.etag(), range[0], range[1], writer(channel)));
+            }
+            move(part, file);
+            completed = true;
+        } finally {
+            if (!completed) {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    log.warn("failed to delete partial download {}", part, e);
+                }
+            }
+        }
+        log.debug("downloaded {}/{} ({} bytes, {} ranges) in {} ms", bucketName, objectName, stat.length(), ranges.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return stat;
+    }
+
+    /**
+     * download the object into the file, resuming an interrupted download of the same object.
+     * <p>
+     * Ranges are written to {@code <file>.part}, each completed range is recorded in the {@code <file>.part.checkpoint}
+     * sidecar after its content is forced to disk. A later call, also after a restart, fetches only the missing ranges.
+     * If the object etag, version or size changed since the checkpoint, the part file is discarded and the download
+     * starts over. On failure the part file and the checkpoint are kept.
+     *
+     * @param versionId object version, null for the latest version
+     * @return stat of the downloaded object
+     */
+    public ObjectStat downloadResumable(String bucketName, String objectName, String versionId, Path file) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        ObjectStat stat = stat(bucketName, objectName, versionId);
+        List<long[]> ranges = split(stat.length());
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(file.resolveSibling(file.getFileName() + ".part.checkpoint"));
+        if (checkpoint != null && !(checkpoint.matches(stat.etag(), versionId, stat.length(), partSize) && Files.isRegularFile(part) && Files.size(part) == stat.length())) {
+            log.info("object {}/{} changed since the interrupted download, download it again", bucketName, objectName);
+            checkpoint = null;
+        }
+        if (checkpoint == null) {
+            Files.deleteIfExists(part);
+            checkpoint = new DownloadCheckpoint(file.resolveSibling(file.getFileName() + ".part.checkpoint"), stat.etag(), versionId, stat.length(), partSize);
+            checkpoint.save();
+        } else {
+            log.debug("resume download of {}/{}, {} of {} ranges done", bucketName, objectName, checkpoint.getCompletedCount(), ranges.size());
+        }
+        DownloadCheckpoint progress = checkpoint;
+        try (RandomAccessFile raf = new RandomAccessFile(part.toFile(), "rw")) {
+            raf.setLength(stat.length());
+            FileChannel channel = raf.getChannel();
+            runAll(ranges, (index, range) -> {
+                if (progress.isCompleted(index)) {
+                    return;
+                }
+                fetchRange(bucketName, objectName, versionId, stat.etag(), range[0], range[1], writer(channel));
+                try {
+                    channel.force(false);
+                    progress.complete(index);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        move(part, file);
+        progress.delete();
+        return stat;
+    }
+
+    private static void move(Path part, Path file) throws IOException {
+        try {
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static RangeSink writer(FileChannel channel) {
+        return (position, buffer, length) -> {
+            ByteBuffer source = ByteBuffer.wrap(buffer, 0, length);
+            long offset = position;
+            while (source.hasRemaining()) {
+                offset += channel.write(source, offset);
+            }
+        };
+    }
+
+    /**
+     * stream the object, ranges are fetched ahead concurrently and returned in order.
+     * At most {@code window} ranges are in flight or buffered. The stream must be closed.
+     */
+    public InputStream openStream(String bucketName, String objectName) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        ObjectStat stat = stat(bucketName, objectName, null);
+        return new RangeInputStream(bucketName, objectName, stat.etag(), split(stat.length()));
+    }
+
+    public ObjectStat stat(String bucketName, String objectName, String versionId) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        return minioConnectionFactory.execute(MinioOperation.read("statObject", bucketName, objectName).hedgeable(true),
+                client -> client.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()));
+    }
+
+    /**
+     * @return {offset, length} of each range
+     */
+    List<long[]> split(long length) {
+        List<long[]> ranges = new ArrayList<>();
+        for (long offset = 0; offset < length; offset += partSize) {
+            ranges.add(new long[]{offset, Math.min(partSize, length - offset)});
+        }
+        return ranges;
+    }
+
+    /**
+     * run range tasks on {@code parallelism} workers, stop at the first failure
+     */
+    private void runAll(List<long[]> ranges, RangeTask task) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int workers = Math.min(parallelism, ranges.size());
+        CountDownLatch done = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            Runnable worker = () -> {
+                try {
+                    int index;
+                    while (failure.get() == null && (index = next.getAndIncrement()) < ranges.size()) {
+                        task.run(index, ranges.get(index));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            };
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                failure.compareAndSet(null, e);
+                done.countDown();
+            }
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while downloading");
+        }
+        if (failure.get() != null) {
+            rethrow(failure.get());
+        }
+    }
+
+    private void fetchRange(String bucketName, String objectName, String versionId, String etag, long offset, long length, RangeSink sink) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        long done = 0;
+        int attempt = 0;
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+        while (true) {
+            try (InputStream in = openRange(bucketName, objectName, versionId, etag, offset + done, length - done)) {
+                int n;
+                while (done < length && (n = in.read(buffer, 0, (int) Math.min(buffer.length, length - done))) != -1) {
+                    try {
+                        sink.write(offset + done, buffer, n);
+                    } catch (IOException e) {
+                        // local write failures are not retried
+                        throw new UncheckedIOException(e);
+                    }
+                    done += n;
+                }
+                if (done < length) {
+                    throw new EOFException("range " + offset + "+" + length + " of " + objectName + " ended at " + done);
+                }
+                return;
+            } catch (IOException e) {
+                if (e instanceof ObjectModifiedException || ++attempt >= maxRangeAttempts || !RetryInterceptor.isRetryable(e)) {
+                    throw e;
+                }
+                log.debug("fetch range {}+{} of {}/{} again from {} after {}", offset, length, bucketName, objectName, done, e.toString());
+            }
+        }
+    }
+
+    private InputStream openRange(String bucketName, String objectName, String versionId, String etag, long offset, long length) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        try {
+            return minioConnectionFactory.execute(MinioOperation.read("getObjectPart", bucketName, objectName).hedgeable(true),
+                    client -> client.getObject(GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .versionId(versionId)
+                            .offset(offset)
+                            .length(length)
+                            // GetObjectArgs.matchETag is not sent by this sdk version
+                            .extraHeaders(etag == null ? Collections.emptyMap() : Collections.singletonMap("If-Match", "\"" + etag + "\""))
+                            .build()));
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse() != null && e.errorResponse().errorCode() == ErrorCode.PRECONDITION_FAILED) {
+                throw new ObjectModifiedException(bucketName, objectName, etag);
+            }
+            throw e;
+        }
+    }
+
+    private byte[] fetchBytes(String bucketName, String objectName, String etag, long offset, long length) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        byte[] bytes = new byte[(int) length];
+        fetchRange(bucketName, objectName, null, etag, offset, length, (position, buffer, n) -> System.arraycopy(buffer, 0, bytes, (int) (position - offset), n));
+        return bytes;
+    }
+
+    private static void rethrow(Throwable e) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException {
+        if (e instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) e).getCause();
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof MinioException) {
+            throw (MinioException) e;
+        }
+        if (e instanceof InvalidKeyException) {
+            throw (InvalidKeyException) e;
+        }
+        if (e instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException(e);
+    }
+
+    @FunctionalInterface
+    interface RangeTask {
+        void run(int index, long[] range) throws IOException, MinioException, InvalidKeyException, NoSuchAlgorithmException;
+    }
+
+    @FunctionalInterface
+    interface RangeSink {
+        void write(long position, byte[] buffer, int length) throws IOException;
+    }
+
+    /**
+     * in-order stream over ranges fetched ahead
+     */
+    private class RangeInputStream extends InputStream {
+        private final String bucketName;
+        private final String objectName;
+        private final String etag;
+        private final List<long[]> ranges;
+        private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        private int scheduled;
+        private byte[] current;
+        private int position;
+        private boolean closed;
+
+        RangeInputStream(String bucketName, String objectName, String etag, List<long[]> ranges) {
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.etag = etag;
+            this.ranges = ranges;
+            while (scheduled < ranges.size() && pending.size() < window) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            long[] range = ranges.get(scheduled++);
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            pending.add(future);
+            try {
+                executor.execute(() -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.complete(fetchBytes(bucketName, objectName, etag, range[0], range[1]));
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || position == current.length) {
+                CompletableFuture<byte[]> next = pending.poll();
+                if (next == null) {
+                    return -1;
+                }
+                current = await(next);
+                position = 0;
+                if (scheduled < ranges.size()) {
+                    schedule();
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private byte[] await(CompletableFuture<byte[]> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for range");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("fetch range of " + bucketName + "/" + objectName + " failed", cause);
+            }
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            current = null;
+            CompletableFuture<byte[]> future;
+            while ((future = pending.poll()) != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package win.hgfdodo.minio.transfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.resilience.RetryInterceptor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputStream reading an object ahead of its consumer.
+ * <p>
+ * A background task reads the object range by range into a fixed ring of buffers, so the network keeps
+ * receiving while the consumer is busy parsing. When a range is read to its end, the next ranged request is
+ * issued right away. The reader stops when all buffers are filled and continues when the consumer returns one,
+ * memory is bounded to {@code buffers * bufferSize}. The task occupies an executor thread until the stream ends
+ * or is closed, or until the consumer has not taken a buffer for {@code idleTimeout}: the stream is then taken as
+ * abandoned, the reader logs a warning and stops, later reads fail.
+ *
+ * @author Guangfu He
+ */
+public class PrefetchingInputStream extends InputStream {
+    private final static Logger log = LoggerFactory.getLogger(PrefetchingInputStream.class);
+
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public final static int DEFAULT_BUFFERS = 16;
+    public final static long DEFAULT_RANGE_SIZE = 16 * 1024 * 1024;
+    public final static Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+    private final static int MAX_RANGE_ATTEMPTS = 3;
+    private final static Chunk END = new Chunk(new byte[0]);
+
+    /**
+     * open the object content from the offset
+     */
+    @FunctionalInterface
+    public interface RangeSource {
+        InputStream open(long offset, long length) throws Exception;
+    }
+
+    private final RangeSource source;
+    private final long length;
+    private final long rangeSize;
+    private final long idleTimeoutNanos;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+
+    private volatile boolean closed;
+    private volatile InputStream range;
+    private Chunk current;
+    private boolean done;
+
+    /**
+     * @param length object length
+     */
+    public PrefetchingInputStream(RangeSource source, long length, Executor executor) {
+        this(source, length, executor, DEFAULT_RANGE_SIZE, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * @param length     object length
+     * @param rangeSize  bytes of each ranged request
+     * @param bufferSize bytes of each buffer
+     * @param buffers    buffers filled ahead of the consumer
+     */
+    public PrefetchingInputStream(RangeSource source, long length, Executor executor, long rangeSize, int bufferSize, int buffers) {
+        this(source, length, executor, rangeSize, bufferSize, buffers, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param length      object length
+     * @param rangeSize   bytes of each ranged request
+     * @param bufferSize  bytes of each buffer
+     * @param buffers     buffers filled ahead of the consumer
+     * @param idleTimeout max time the reader waits for the consumer to return a buffer
+     */
+    public PrefetchingInputStream(RangeSource source, long length, Executor executor, long rangeSize, int bufferSize, int buffers, Duration idleTimeout) {
+        this.source = source;
+        this.length = length;
+        this.rangeSize = Math.max(bufferSize, rangeSize);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        int count = Math.max(2, buffers);
+        this.free = new ArrayBlockingQueue<>(count);
+        // one more slot for the end or error signal
+        this.filled = new ArrayBlockingQueue<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            free.add(new Chunk(new byte[Math.max(1, bufferSize)]));
+        }
+        executor.execute(this::readAhead);
+    }
+
+    private void readAhead() {
+        try {
+            long offset = 0;
+            int attempt = 0;
+            long lastTaken = System.nanoTime();
+            while (offset < length && !closed) {
+                long count = Math.min(rangeSize, length - offset);
+                long read = 0;
+                try (InputStream in = source.open(offset, count)) {
+                    range = in;
+                    while (read < count && !closed) {
+                        Chunk chunk = free.poll(100, TimeUnit.MILLISECONDS);
+                        if (chunk == null) {
+                            // consumer is slow, check whether it closed or abandoned the stream
+                            if (System.nanoTime() - lastTaken > idleTimeoutNanos) {
+                                log.warn("prefetching stream not read for {} ms, stop reading ahead at {} of {}, the stream may not be closed",
+                                        TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos), offset + read, length);
+                                throw new InterruptedIOException("prefetching stream not read for " + TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) + " ms");
+                            }
+                            continue;
+                        }
+                        lastTaken = System.nanoTime();
+                        chunk.length = fill(in, chunk.data, (int) Math.min(chunk.data.length, count - read));
+                        if (chunk.length <= 0) {
+                            free.add(chunk);
+                            throw new EOFException("range " + offset + "+" + count + " ended at " + read);
+                        }
+                        read += chunk.length;
+                        filled.put(chunk);
+                    }
+                    attempt = 0;
+                } catch (IOException e) {
+                    if (closed || e instanceof ObjectModifiedException || ++attempt >= MAX_RANGE_ATTEMPTS || !RetryInterceptor.isRetryable(e)) {
+                        throw e;
+                    }
+                    log.debug("read ahead again from {} after {}", offset + read, e.toString());
+                } finally {
+                    range = null;
+                    offset += read;
+                }
+            }
+            filled.put(END);
+        } catch (InterruptedException e) {
+            filled.offer(END);
+        } catch (Throwable e) {
+            filled.offer(new Chunk(e));
+        }
+    }
+
+    /**
+     * @return bytes read into the buffer, 0 at the end of the stream
+     */
+    private static int fill(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n == -1) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - current.position);
+        System.arraycopy(current.data, current.position, b, off, n);
+        current.position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - current.position;
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        while (current == null || current.position == current.length) {
+            if (current != null) {
+                current.position = 0;
+                free.add(current);
+                current = null;
+            }
+            if (done) {
+                return false;
+            }
+            Chunk chunk;
+            try {
+                chunk = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for data");
+            }
+            if (chunk == END) {
+                done = true;
+                return false;
+            }
+            if (chunk.error != null) {
+                done = true;
+                if (chunk.error instanceof IOException) {
+                    throw (IOException) chunk.error;
+                }
+                throw new IOException("read ahead failed", chunk.error);
+            }
+            current = chunk;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        InputStream in = range;
+        if (in != null) {
+            try {
+                // unblocks the reader waiting on the network
+                in.close();
+            } catch (IOException e) {
+                log.debug("failed to close range stream", e);
+            }
+        }
+        filled.clear();
+    }
+
+    private static class Chunk {
+        private final byte[] data;
+        private final Throwable error;
+        private int length;
+        private int position;
+
+        Chunk(byte[] data) {
+            this.data = data;
+            this.error = null;
+        }
+
+        Chunk(Throwable error) {
+            this.data = null;
+            this.error = error;
+        }
+    }
+}
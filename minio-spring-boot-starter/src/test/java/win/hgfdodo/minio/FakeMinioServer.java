@@ -0,0 +1,160 @@
+package win.hgfdodo.minio;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import win.hgfdodo.minio.connection.LoadBalancer;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * minio stub on a local port for tests, with a connection factory to it and helpers to answer like minio
+ *
+ * @author Guangfu He
+ */
+public class FakeMinioServer implements AutoCloseable {
+    public final static String LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MinioConnectionFactory factory;
+
+    private FakeMinioServer(String context, HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(context, handler);
+        server.setExecutor(executor);
+        server.start();
+        String endpoint = "http://127.0.0.1:" + server.getAddress().getPort();
+        factory = new MinioConnectionFactory(Collections.singletonList(new MinioConnectionFactory.EndpointBuilder(endpoint,
+                MinioClient.builder().endpoint(endpoint).region("us-east-1").credentials("access", "secret"))), new OkHttpClient(), new LoadBalancer());
+    }
+
+    /**
+     * @param context path the handler answers, e.g. {@code /bucket/}
+     */
+    public static FakeMinioServer start(String context, HttpHandler handler) throws IOException {
+        return new FakeMinioServer(context, handler);
+    }
+
+    public MinioConnectionFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public void close() {
+        factory.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * answer a stat request
+     *
+     * @return false if the request is not a HEAD request
+     */
+    public static boolean answerHead(HttpExchange exchange, long length) throws IOException {
+        if (!"HEAD".equals(exchange.getRequestMethod())) {
+            return false;
+        }
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(length));
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+        return true;
+    }
+
+    /**
+     * answer 412 PreconditionFailed if the request has an If-Match header with another etag
+     *
+     * @return true if the request was answered
+     */
+    public static boolean rejectIfNotMatch(HttpExchange exchange, String etag) throws IOException {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null || ifMatch.replace("\"", "").equals(etag)) {
+            return false;
+        }
+        sendError(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+        return true;
+    }
+
+    /**
+     * answer with a minio error response for the requested object
+     */
+    public static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        int slash = path.indexOf('/', 1);
+        String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+        String key = slash < 0 ? "" : path.substring(slash + 1);
+        byte[] error = ("<Error><Code>" + code + "</Code><Message>" + message + "</Message><BucketName>" + bucket + "</BucketName>"
+                + "<Key>" + key + "</Key><Resource>" + path + "</Resource><RequestId>1</RequestId><HostId>1</HostId></Error>")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, error.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(error);
+        }
+    }
+
+    /**
+     * @return first and last byte of the requested range, the whole content without a Range header
+     */
+    public static int[] range(HttpExchange exchange, int length) {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int from = 0;
+        int to = length - 1;
+        if (range != null) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            from = Integer.parseInt(bounds[0]);
+            to = bounds.length > 1 ? Math.min(to, Integer.parseInt(bounds[1])) : to;
+        }
+        return new int[]{from, to};
+    }
+
+    /**
+     * answer with the requested range of the content
+     */
+    public static void sendContent(HttpExchange exchange, byte[] content) throws IOException {
+        sendContent(exchange, content, range(exchange, content.length));
+    }
+
+    /**
+     * answer with the range of the content, 206 if a range was requested
+     */
+    public static void sendContent(HttpExchange exchange, byte[] content, int[] range) throws IOException {
+        boolean partial = exchange.getRequestHeaders().getFirst("Range") != null;
+        int length = range[1] - range[0] + 1;
+        exchange.sendResponseHeaders(partial ? 206 : 200, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, range[0], length);
+        }
+    }
+
+    /**
+     * read the stream to its end and close it
+     */
+    public static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[300];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        return new String(readAll(in), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package win.hgfdodo.minio.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import win.hgfdodo.minio.FakeMinioServer;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.FakeMinioServer.readAll;
+
+class BlockCacheTest {
+    private final static int BLOCK = 1024;
+
+    private final byte[] content = new byte[10 * BLOCK + 100];
+    private final AtomicInteger gets = new AtomicInteger();
+    private volatile String etag = "abc";
+
+    private FakeMinioServer server;
+    private ExecutorService executor;
+    private MinioTemplate template;
+
+    @BeforeEach
+    void start() throws IOException {
+        new Random(7).nextBytes(content);
+        server = FakeMinioServer.start("/bucket/video", this::handle);
+        template = new MinioTemplate(server.getFactory());
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    /**
+     * wait for blocks read ahead in the background
+     */
+    private static void awaitBlocks(BlockCache cache, long count) throws InterruptedException {
+        for (int i = 0; i < 200 && cache.getSize() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, cache.getSize());
+    }
+
+    @Test
+    void assemblesOverlappingRangesFromCachedBlocks() throws Exception {
+        BlockCache cache = new BlockCache(template, executor, BLOCK, 64 * BLOCK, null, 0, 4, 1);
+        assertArrayEquals(Arrays.copyOfRange(content, 1500, 4500), readAll(cache.getRange("bucket", "video", "abc", content.length, 1500, 3000)));
+        // blocks 1 to 4 and block 5 read ahead
+        awaitBlocks(cache, 5);
+        assertEquals(5, gets.get());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(1, cache.getReadAheadCount());
+
+        assertArrayEquals(Arrays.copyOfRange(content, 2000, 5500), readAll(cache.getRange("bucket", "video", "abc", content.length, 2000, 3500)));
+        // block 5 was read ahead, only block 6 is read ahead now
+        awaitBlocks(cache, 6);
+        assertEquals(6, gets.get());
+        assertEquals(5, cache.getHitCount());
+        assertEquals(6 * BLOCK, cache.getMemorySizeBytes());
+    }
+
+    @Test
+    void readsWholeObjectEndingInPartialBlock() throws Exception {
+        BlockCache cache = new BlockCache(template, executor, BLOCK, 64 * BLOCK);
+        assertArrayEquals(content, readAll(cache.getObject("bucket", "video")));
+        assertArrayEquals(Arrays.copyOfRange(content, content.length - 50, content.length),
+                readAll(cache.getRange("bucket", "video", content.length - 50, 1000)));
+        assertEquals(11, gets.get());
+        assertEquals(11, cache.getSize());
+    }
+
+    @Test
+    void servesBlocksEvictedFromMemoryFromDisk(@TempDir Path dir) throws Exception {
+        BlockCache cache = new BlockCache(template, executor, BLOCK, 2 * BLOCK, dir, 64 * BLOCK, 4, 0);
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 6 * BLOCK), readAll(cache.getRange("bucket", "video", "abc", content.length, 0, 6 * BLOCK)));
+        assertEquals(6, gets.get());
+        assertEquals(2 * BLOCK, cache.getMemorySizeBytes());
+        // blocks are written to disk after they were served
+        for (int i = 0; i < 200 && cache.getDiskSizeBytes() < 6 * BLOCK; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(6 * BLOCK, cache.getDiskSizeBytes());
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), readAll(cache.getRange("bucket", "video", "abc", content.length, 100, 100)));
+        assertEquals(6, gets.get());
+        assertEquals(1, cache.getDiskHitCount());
+
+        cache.invalidate("bucket", "video");
+        assertEquals(0, cache.getDiskSizeBytes());
+        assertEquals(0, cache.getMemorySizeBytes());
+    }
+
+    @Test
+    void readsOnThreadOfSaturatedExecutor() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            BlockCache cache = new BlockCache(template, single, BLOCK, 64 * BLOCK, null, 0, 4, 1);
+            // the block fetches are queued behind the reading task
+            Future<byte[]> result = single.submit(() -> readAll(cache.getRange("bucket", "video", "abc", content.length, 0, 6 * BLOCK)));
+            assertArrayEquals(Arrays.copyOfRange(content, 0, 6 * BLOCK), result.get(10, TimeUnit.SECONDS));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void failsOnOverwrittenObject() throws Exception {
+        BlockCache cache = new BlockCache(template, executor, BLOCK, 64 * BLOCK, null, 0, 4, 0);
+        readAll(cache.getRange("bucket", "video", "abc", content.length, 0, BLOCK));
+        etag = "changed";
+        assertThrows(ObjectModifiedException.class, () -> cache.getRange("bucket", "video", "abc", content.length, BLOCK, BLOCK));
+        assertEquals(0, cache.getSize());
+        assertArrayEquals(Arrays.copyOfRange(content, 0, BLOCK), readAll(cache.getRange("bucket", "video", 0, BLOCK)));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Last-Modified", FakeMinioServer.LAST_MODIFIED);
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+        if (FakeMinioServer.answerHead(exchange, content.length) || FakeMinioServer.rejectIfNotMatch(exchange, etag)) {
+            return;
+        }
+        gets.incrementAndGet();
+        FakeMinioServer.sendContent(exchange, content);
+    }
+}
@@ -0,0 +1,58 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ObjectStat;
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.FakeMinioServer;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketNotificationListenerTest {
+
+    @Test
+    void decodesEventKeys() {
+        assertEquals("path/a b+c.txt", BucketNotificationListener.decode("path%2Fa+b%2Bc.txt"));
+    }
+
+    @Test
+    void notificationInvalidatesCachedStat() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        FakeMinioServer server = FakeMinioServer.start("/bucket", exchange -> {
+            byte[] event = ("{\"Records\":[{\"eventName\":\"s3:ObjectCreated:Put\",\"s3\":{\"bucket\":{\"name\":\"bucket\"},"
+                    + "\"object\":{\"key\":\"a+b.txt\",\"size\":1,\"eTag\":\"new\"}}}]}\n").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write(event);
+            out.flush();
+            try {
+                closed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        BucketNotificationListener listener = new BucketNotificationListener(server.getFactory(), Collections.singletonList("bucket"), Duration.ofSeconds(1),
+                cache, Collections.emptyList());
+        try {
+            listener.start();
+            // cached after the subscription reset the bucket
+            for (int i = 0; i < 100 && cache.getInvalidationCount() == 0; i++) {
+                cache.get("bucket", "a b.txt", null, () -> new ObjectStat("bucket", "a b.txt", ZonedDateTime.now(), 1, "old", "text/plain"));
+                Thread.sleep(50);
+            }
+            assertTrue(cache.getInvalidationCount() > 0);
+        } finally {
+            listener.close();
+            closed.countDown();
+            server.close();
+        }
+    }
+}
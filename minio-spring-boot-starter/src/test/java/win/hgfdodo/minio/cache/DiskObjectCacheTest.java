@@ -0,0 +1,144 @@
+package win.hgfdodo.minio.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import win.hgfdodo.minio.FakeMinioServer;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.FakeMinioServer.readString;
+
+class DiskObjectCacheTest {
+    private final Map<String, String> objects = new ConcurrentHashMap<>();
+    private final AtomicInteger gets = new AtomicInteger();
+    /**
+     * content of a stored after the next stat of a, to overwrite it between stat and get
+     */
+    private volatile String overwriteAfterStat;
+
+    private FakeMinioServer server;
+    private MinioTemplate template;
+
+    @BeforeEach
+    void start() throws IOException {
+        objects.put("a", "content of a");
+        objects.put("b", "content of b");
+        server = FakeMinioServer.start("/bucket/", this::handle);
+        template = new MinioTemplate(server.getFactory());
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void servesCachedObjectFromDisk(@TempDir Path dir) throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(template, dir, 1024, 1024, Duration.ofMinutes(1));
+        assertEquals("content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals("content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(12, cache.getBytesSaved());
+    }
+
+    @Test
+    void revalidatesExpiredObject(@TempDir Path dir) throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(template, dir, 1024, 1024, Duration.ZERO);
+        readString(cache.getObject("bucket", "a"));
+        Thread.sleep(5);
+        assertEquals("content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, cache.getRevalidationCount());
+
+        objects.put("a", "new content of a");
+        Thread.sleep(5);
+        assertEquals("new content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals(2, gets.get());
+        assertEquals(16, cache.getSizeBytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed(@TempDir Path dir) throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(template, dir, 20, 20, Duration.ofMinutes(1));
+        readString(cache.getObject("bucket", "a"));
+        readString(cache.getObject("bucket", "b"));
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        readString(cache.getObject("bucket", "b"));
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    void rebuildsIndexAfterRestart(@TempDir Path dir) throws Exception {
+        readString(new DiskObjectCache(template, dir, 1024, 1024, Duration.ofMinutes(1)).getObject("bucket", "a"));
+        DiskObjectCache restarted = new DiskObjectCache(template, dir, 1024, 1024, Duration.ofMinutes(1));
+        assertEquals(1, restarted.getSize());
+        assertEquals("content of a", readString(restarted.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+    }
+
+    @Test
+    void fetchesAgainWhenOverwrittenBetweenStatAndGet(@TempDir Path dir) throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(template, dir, 1024, 1024, Duration.ofMinutes(1));
+        overwriteAfterStat = "new content of a";
+        assertEquals("new content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(16, cache.getSizeBytes());
+        assertEquals("new content of a", readString(cache.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+    }
+
+    @Test
+    void servesTemplateReadsFromCache(@TempDir Path dir) throws Exception {
+        DiskObjectCache cache = new DiskObjectCache(template, dir, 1024, 1024, Duration.ofMinutes(1));
+        template.setObjectCache(cache);
+        assertEquals("content of a", readString(template.getObject("bucket", "a")));
+        assertEquals("content of a", readString(template.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, cache.getHitCount());
+
+        template.removeObject("bucket", "a");
+        assertEquals(0, cache.getSize());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestURI().getPath().substring("/bucket/".length());
+        if ("DELETE".equals(exchange.getRequestMethod())) {
+            objects.remove(name);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+        String content = objects.get(name);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String etag = Integer.toHexString(content.hashCode());
+        exchange.getResponseHeaders().add("Last-Modified", FakeMinioServer.LAST_MODIFIED);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+        if (FakeMinioServer.answerHead(exchange, bytes.length)) {
+            if (overwriteAfterStat != null) {
+                objects.put(name, overwriteAfterStat);
+                overwriteAfterStat = null;
+            }
+            return;
+        }
+        if (FakeMinioServer.rejectIfNotMatch(exchange, etag)) {
+            return;
+        }
+        gets.incrementAndGet();
+        FakeMinioServer.sendContent(exchange, bytes);
+    }
+}
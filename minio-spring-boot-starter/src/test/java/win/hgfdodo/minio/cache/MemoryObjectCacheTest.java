@@ -0,0 +1,209 @@
+package win.hgfdodo.minio.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import win.hgfdodo.minio.FakeMinioServer;
+import win.hgfdodo.minio.coalesce.SingleFlight;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.FakeMinioServer.readString;
+
+class MemoryObjectCacheTest {
+    private final Map<String, String> versions = new ConcurrentHashMap<>();
+    private final AtomicInteger gets = new AtomicInteger();
+    /**
+     * holds GETs back while set
+     */
+    private volatile CountDownLatch gate;
+
+    private FakeMinioServer server;
+    private MinioTemplate template;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = FakeMinioServer.start("/bucket/", this::handle);
+        template = new MinioTemplate(server.getFactory());
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private static String content(String name, String version) {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 1000) {
+            builder.append(name).append(version).append(';');
+        }
+        return builder.substring(0, 1000);
+    }
+
+    @Test
+    void roundsSlotsToPowersOfTwo() {
+        assertEquals(512, MemoryObjectCache.slotSize(1));
+        assertEquals(1024, MemoryObjectCache.slotSize(1000));
+        assertEquals(1024, MemoryObjectCache.slotSize(1024));
+        assertEquals(2048, MemoryObjectCache.slotSize(1025));
+    }
+
+    @Test
+    void servesCachedObjectFromMemory() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), true);
+        assertEquals(content("a", ""), readString(cache.getObject("bucket", "a")));
+        assertEquals(content("a", ""), readString(cache.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1024, cache.getSizeBytes());
+    }
+
+    @Test
+    void scanDoesNotFlushHotObjects() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), false);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                readString(cache.getObject("bucket", "hot" + i));
+            }
+        }
+        assertEquals(10, gets.get());
+        for (int i = 0; i < 200; i++) {
+            readString(cache.getObject("bucket", "scan" + i));
+        }
+        assertTrue(cache.getSizeBytes() <= 64 * 1024);
+        gets.set(0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(content("hot" + i, ""), readString(cache.getObject("bucket", "hot" + i)));
+        }
+        assertEquals(0, gets.get());
+        assertTrue(cache.getRejectionCount() > 0);
+    }
+
+    @Test
+    void dropsObjectWithChangedEtag() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ZERO, true);
+        readString(cache.getObject("bucket", "a"));
+        versions.put("a", "2");
+        Thread.sleep(5);
+        assertEquals(content("a", "2"), readString(cache.getObject("bucket", "a")));
+        assertEquals(2, gets.get());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void keepsSlotUntilReaderIsClosed() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), true);
+        readString(cache.getObject("bucket", "a"));
+        InputStream reader = cache.getObject("bucket", "a");
+        assertEquals('a', reader.read());
+        cache.invalidate("bucket", "a");
+        versions.put("a", "2");
+        // the replacement must not reuse the slot still being read
+        assertEquals(content("a", "2"), readString(cache.getObject("bucket", "a")));
+        assertEquals(content("a", "").substring(1), readString(reader));
+        assertThrows(IOException.class, reader::read);
+        assertEquals(content("a", "2"), readString(cache.getObject("bucket", "a")));
+    }
+
+    @Test
+    void servesTemplateReadsFromCache() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), false);
+        template.setObjectCache(cache);
+        assertEquals(content("a", ""), readString(template.getObject("bucket", "a")));
+        assertEquals(content("a", ""), readString(template.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, cache.getHitCount());
+
+        template.saveKnownSizeObject("bucket", "a", new ByteArrayInputStream(new byte[]{1}), 1, "text/plain");
+        assertEquals(0, cache.getSize());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestURI().getPath().substring("/bucket/".length());
+        String version = versions.getOrDefault(name, "");
+        byte[] bytes = content(name, version).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Last-Modified", FakeMinioServer.LAST_MODIFIED);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.getResponseHeaders().add("ETag", "\"" + name + "-" + version + "\"");
+        if (FakeMinioServer.answerHead(exchange, bytes.length)) {
+            return;
+        }
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            versions.put(name, "2");
+            exchange.getResponseHeaders().set("ETag", "\"" + name + "-2\"");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        gets.incrementAndGet();
+        CountDownLatch gate = this.gate;
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        FakeMinioServer.sendContent(exchange, bytes);
+    }
+
+    @Test
+    void readsMissesThroughDiskCache(@TempDir Path dir) throws Exception {
+        DiskObjectCache disk = new DiskObjectCache(template, dir, 64 * 1024, 64 * 1024, Duration.ofMinutes(1));
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), false);
+        cache.setSource(disk);
+        template.setObjectCache(cache);
+        assertEquals(content("a", ""), readString(template.getObject("bucket", "a")));
+        assertEquals(1, disk.getSize());
+
+        MemoryObjectCache restarted = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), false);
+        restarted.setSource(disk);
+        assertEquals(content("a", ""), readString(restarted.getObject("bucket", "a")));
+        assertEquals(1, gets.get());
+        assertEquals(1, disk.getHitCount());
+
+        template.saveKnownSizeObject("bucket", "a", new ByteArrayInputStream(new byte[]{1}), 1, "text/plain");
+        assertEquals(0, cache.getSize());
+        assertEquals(0, disk.getSize());
+    }
+
+    @Test
+    void coalescesConcurrentMisses() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        template.setSingleFlight(singleFlight);
+        MemoryObjectCache cache = new MemoryObjectCache(template, 64 * 1024, 1024, Duration.ofMinutes(1), false);
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> readString(cache.getObject("bucket", "a"))));
+            }
+            // 4 stat and 4 fetch calls, the fetches wait for the one in flight
+            for (int i = 0; i < 500 && singleFlight.getExecutionCount() + singleFlight.getSharedCount() < 8; i++) {
+                Thread.sleep(10);
+            }
+            gate.countDown();
+            for (Future<String> result : results) {
+                assertEquals(content("a", ""), result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, gets.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
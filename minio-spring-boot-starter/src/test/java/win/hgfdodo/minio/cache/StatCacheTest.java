@@ -0,0 +1,111 @@
+package win.hgfdodo.minio.cache;
+
+import io.minio.ErrorCode;
+import io.minio.ObjectStat;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private StatCache.Loader loader(String objectName) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ObjectStat("bucket", objectName, ZonedDateTime.now(), 1, "etag", "text/plain");
+        };
+    }
+
+    private StatCache.Loader missing(String objectName) {
+        return () -> {
+            loads.incrementAndGet();
+            throw new ErrorResponseException(new ErrorResponse(ErrorCode.NO_SUCH_KEY, "bucket", objectName, "/bucket/" + objectName, "1", "1"), null);
+        };
+    }
+
+    @Test
+    void cachesStatUntilInvalidated() throws Exception {
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        ObjectStat stat = cache.get("bucket", "a", null, loader("a"));
+        assertSame(stat, cache.get("bucket", "a", null, loader("a")));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+
+        cache.get("bucket", "a", "v1", loader("a"));
+        assertEquals(2, loads.get());
+        cache.invalidate("bucket", "a");
+        cache.get("bucket", "a", "v1", loader("a"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void expiresAfterTtl() throws Exception {
+        StatCache cache = new StatCache(Duration.ofMillis(1), Duration.ofMillis(1), 100);
+        cache.get("bucket", "a", null, loader("a"));
+        Thread.sleep(5);
+        cache.get("bucket", "a", null, loader("a"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void remembersMissingObjects() {
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        ErrorResponseException first = assertThrows(ErrorResponseException.class, () -> cache.get("bucket", "none", null, missing("none")));
+        ErrorResponseException second = assertThrows(ErrorResponseException.class, () -> cache.get("bucket", "none", null, missing("none")));
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void boundsNumberOfObjects() throws Exception {
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 10);
+        for (int i = 0; i < 50; i++) {
+            cache.get("bucket", "object" + i, null, loader("object" + i));
+        }
+        assertTrue(cache.getSize() <= 10);
+        assertTrue(cache.getEvictionCount() >= 40);
+    }
+
+    @Test
+    void invalidatesBucket() throws Exception {
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        cache.get("bucket", "a", null, loader("a"));
+        cache.get("other", "a", null, loader("a"));
+        cache.invalidateBucket("bucket");
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void doesNotCacheStatLoadedDuringInvalidation() throws Exception {
+        StatCache cache = new StatCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+        cache.get("bucket", "a", null, () -> {
+            // the object is overwritten while the old stat is on its way
+            cache.invalidate("bucket", "a");
+            return loader("a").load();
+        });
+        assertEquals(0, cache.getSize());
+        cache.get("bucket", "a", null, loader("a"));
+        cache.get("bucket", "a", null, loader("a"));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getSize());
+
+        cache.get("bucket", "b", null, () -> {
+            cache.invalidateBucket("bucket");
+            return loader("b").load();
+        });
+        assertEquals(0, cache.getSize());
+
+        // invalidating another bucket keeps the stat loaded meanwhile
+        cache.get("bucket", "c", null, () -> {
+            cache.invalidateBucket("other");
+            return loader("c").load();
+        });
+        assertEquals(1, cache.getSize());
+    }
+}
\ No newline at end of file
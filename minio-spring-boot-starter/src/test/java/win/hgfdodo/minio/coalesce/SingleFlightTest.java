@@ -0,0 +1,264 @@
+package win.hgfdodo.minio.coalesce;
+
+import io.minio.ErrorCode;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.FakeMinioServer;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.FakeMinioServer.readAll;
+
+class SingleFlightTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final byte[] content = new byte[300_000];
+
+    {
+        new Random(7).nextBytes(content);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private static void awaitShared(SingleFlight singleFlight, long count) throws InterruptedException {
+        for (int i = 0; i < 200 && singleFlight.getSharedCount() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, singleFlight.getSharedCount());
+    }
+
+    @Test
+    void concurrentCallsShareResult() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("bucket", "a", "statObject", () -> {
+                calls.incrementAndGet();
+                release.await();
+                return "stat";
+            })));
+        }
+        awaitShared(singleFlight, 4);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("stat", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getExecutionCount());
+
+        singleFlight.execute("bucket", "a", "statObject", () -> calls.incrementAndGet());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void concurrentCallsShareFailure() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ErrorResponseException missing = new ErrorResponseException(new ErrorResponse(ErrorCode.NO_SUCH_KEY, "bucket", "a", "/bucket/a", "1", "1"), null);
+        List<Future<Exception>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> {
+                try {
+                    singleFlight.execute("bucket", "a", "statObject", () -> {
+                        release.await();
+                        throw missing;
+                    });
+                    return null;
+                } catch (ErrorResponseException e) {
+                    return e;
+                }
+            }));
+        }
+        awaitShared(singleFlight, 2);
+        release.countDown();
+        for (Future<Exception> result : results) {
+            assertSame(missing, result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void concurrentReadersShareOneResponse() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(4096, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger opens = new AtomicInteger();
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> {
+                try (InputStream in = singleFlight.share("bucket", "a", "getObject", () -> {
+                    opens.incrementAndGet();
+                    release.await();
+                    return new ByteArrayInputStream(content);
+                })) {
+                    return readAll(in);
+                }
+            }));
+        }
+        awaitShared(singleFlight, 3);
+        release.countDown();
+        for (Future<byte[]> result : results) {
+            assertArrayEquals(content, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    void slowReaderHoldsBackUpstreamUntilClosed() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(1024, 2);
+        AtomicLong upstreamRead = new AtomicLong();
+        AtomicBoolean upstreamClosed = new AtomicBoolean();
+        InputStream upstream = new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                upstreamRead.addAndGet(Math.max(0, n));
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                upstreamClosed.set(true);
+                super.close();
+            }
+        };
+        InputStream fast = singleFlight.share("bucket", "a", "getObject", () -> upstream);
+        InputStream slow = singleFlight.share("bucket", "a", "getObject", () -> {
+            throw new AssertionError("second caller must join the response in flight");
+        });
+        Future<byte[]> fastResult = executor.submit(() -> readAll(fast));
+
+        Thread.sleep(200);
+        assertFalse(fastResult.isDone());
+        assertTrue(upstreamRead.get() <= 3 * 1024, "read ahead of the slow reader: " + upstreamRead.get());
+
+        slow.close();
+        assertArrayEquals(content, fastResult.get(5, TimeUnit.SECONDS));
+        fast.close();
+        assertTrue(upstreamClosed.get());
+    }
+
+    @Test
+    void closingAllReadersClosesUpstream() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(1024, 2);
+        AtomicBoolean upstreamClosed = new AtomicBoolean();
+        InputStream upstream = new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public void close() throws IOException {
+                upstreamClosed.set(true);
+                super.close();
+            }
+        };
+        InputStream first = singleFlight.share("bucket", "a", "getObject", () -> upstream);
+        InputStream second = singleFlight.share("bucket", "a", "getObject", () -> upstream);
+        assertEquals(content[0] & 0xff, first.read());
+        first.close();
+        assertFalse(upstreamClosed.get());
+        second.close();
+        assertTrue(upstreamClosed.get());
+
+        AtomicInteger opens = new AtomicInteger();
+        try (InputStream third = singleFlight.share("bucket", "a", "getObject", () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(content);
+        })) {
+            assertArrayEquals(content, readAll(third));
+        }
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    void forgetStartsNewResponse() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger opens = new AtomicInteger();
+        SingleFlight.Call<InputStream, RuntimeException> open = () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(content);
+        };
+        try (InputStream first = singleFlight.share("bucket", "a", "getObject", open)) {
+            singleFlight.forget("bucket", "a");
+            try (InputStream second = singleFlight.share("bucket", "a", "getObject", open)) {
+                assertArrayEquals(content, readAll(second));
+            }
+            assertArrayEquals(content, readAll(first));
+        }
+        assertEquals(2, opens.get());
+    }
+
+    @Test
+    void detachesReaderHoldingBackTheOthers() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(1024, 2, 0, Duration.ofMillis(100));
+        InputStream first = singleFlight.share("bucket", "a", "getObject", () -> new ByteArrayInputStream(content));
+        InputStream second = singleFlight.share("bucket", "a", "getObject", () -> {
+            throw new AssertionError("second caller must join the response in flight");
+        });
+        // both streams read one after the other on the same thread
+        assertArrayEquals(content, readAll(first));
+        assertThrows(IOException.class, second::read);
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void templateCoalescesReadsOfSmallObjects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger gets = new AtomicInteger();
+        FakeMinioServer server = FakeMinioServer.start("/bucket/", exchange -> {
+            exchange.getResponseHeaders().add("Last-Modified", FakeMinioServer.LAST_MODIFIED);
+            exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().add("ETag", "\"abc\"");
+            if (FakeMinioServer.answerHead(exchange, content.length)) {
+                return;
+            }
+            gets.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            FakeMinioServer.sendContent(exchange, content);
+        });
+        try {
+            MinioTemplate template = new MinioTemplate(server.getFactory());
+            SingleFlight singleFlight = new SingleFlight(64 * 1024, 16, content.length, SingleFlight.DEFAULT_MAX_WAIT);
+            template.setSingleFlight(singleFlight);
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> readAll(template.getObject("bucket", "a"))));
+            }
+            // 4 stat and 4 get calls, the gets wait for the one in flight
+            for (int i = 0; i < 500 && singleFlight.getExecutionCount() + singleFlight.getSharedCount() < 8; i++) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(content, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, gets.get());
+
+            // larger objects are read by a request of their own
+            template.setSingleFlight(new SingleFlight(1024, 2, 1024, SingleFlight.DEFAULT_MAX_WAIT));
+            assertArrayEquals(content, readAll(template.getObject("bucket", "a")));
+            assertEquals(2, gets.get());
+        } finally {
+            server.close();
+        }
+    }
+}
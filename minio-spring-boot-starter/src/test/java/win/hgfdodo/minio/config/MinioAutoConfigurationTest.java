@@ -0,0 +1,60 @@
+package win.hgfdodo.minio.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MinioAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(MinioAutoConfiguration.class))
+            .withPropertyValues(
+                    "spring.minio.url=http://localhost:9000",
+                    "spring.minio.accessKey=access",
+                    "spring.minio.secretKey=secret");
+
+    @Test
+    void namedClients() {
+        contextRunner
+                .withPropertyValues(
+                        "spring.minio.clients.bulk.url=http://localhost:9001",
+                        "spring.minio.clients.bulk.accessKey=access",
+                        "spring.minio.clients.bulk.secretKey=secret",
+                        "spring.minio.clients.bulk.http.max-idle-connections=2")
+                .withUserConfiguration(BulkConsumerConfiguration.class)
+                .run(context -> {
+                    assertEquals(2, context.getBeansOfType(MinioConnectionFactory.class).size());
+                    assertEquals(2, context.getBeansOfType(MinioTemplate.class).size());
+                    MinioConnectionFactory primary = context.getBean(MinioConnectionFactory.class);
+                    MinioConnectionFactory bulk = context.getBean("bulkMinioConnectionFactory", MinioConnectionFactory.class);
+                    assertNotSame(primary.getHttpClient().connectionPool(), bulk.getHttpClient().connectionPool());
+                    assertNotSame(context.getBean(MinioTemplate.class), context.getBean("bulkMinioTemplate"));
+                    assertSame(context.getBean("bulkMinioTemplate"), context.getBean(BulkConsumer.class).template);
+                });
+    }
+
+    @Configuration
+    static class BulkConsumerConfiguration {
+        @Bean
+        BulkConsumer bulkConsumer(@Qualifier("bulk") MinioTemplate template) {
+            return new BulkConsumer(template);
+        }
+    }
+
+    static class BulkConsumer {
+        final MinioTemplate template;
+
+        BulkConsumer(MinioTemplate template) {
+            this.template = template;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerTest {
+
+    private final OkHttpClient httpClient = new OkHttpClient();
+
+    private MinioNode node(String endpoint, LoadBalancer loadBalancer) {
+        return new MinioNode(endpoint, MinioClient.builder().endpoint(endpoint).credentials("access", "secret"), httpClient, loadBalancer);
+    }
+
+    @Test
+    void ejectAfterConsecutiveFailures() {
+        LoadBalancer loadBalancer = new LoadBalancer(LoadBalancer.Strategy.LEAST_OUTSTANDING, 2, Duration.ofMinutes(1), Duration.ofMinutes(2));
+        MinioNode bad = node("http://node1:9000", loadBalancer);
+        MinioNode good = node("http://node2:9000", loadBalancer);
+        List<MinioNode> nodes = Arrays.asList(bad, good);
+
+        loadBalancer.onFailure(bad);
+        assertFalse(bad.isEjected());
+        loadBalancer.onFailure(bad);
+        assertTrue(bad.isEjected());
+        for (int i = 0; i < 10; i++) {
+            assertSame(good, loadBalancer.choose(nodes));
+        }
+    }
+
+    @Test
+    void readmitAfterEjectionTime() throws InterruptedException {
+        LoadBalancer loadBalancer = new LoadBalancer(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES, 1, Duration.ofMillis(10), Duration.ofMillis(10));
+        MinioNode node = node("http://node1:9000", loadBalancer);
+        loadBalancer.onFailure(node);
+        assertTrue(node.isEjected());
+        Thread.sleep(20);
+        assertFalse(node.isEjected());
+        loadBalancer.onSuccess(node);
+        assertFalse(node.isOnProbation());
+    }
+}
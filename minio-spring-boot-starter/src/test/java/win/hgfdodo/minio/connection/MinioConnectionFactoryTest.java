@@ -0,0 +1,46 @@
+package win.hgfdodo.minio.connection;
+
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.FakeMinioServer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinioConnectionFactoryTest {
+
+    @Test
+    void lazyFactoryBuildsClientsOnFirstUse() {
+        AtomicInteger created = new AtomicInteger();
+        MinioConnectionFactory factory = new MinioConnectionFactory(
+                Collections.singletonList(new MinioConnectionFactory.EndpointBuilder("http://localhost:9000",
+                        MinioClient.builder().endpoint("http://localhost:9000").credentials("access", "secret"))),
+                () -> {
+                    created.incrementAndGet();
+                    return new OkHttpClient();
+                }, new LoadBalancer(), true);
+        assertFalse(factory.isInitialized());
+        assertEquals(0, created.get());
+        assertNotNull(factory.getConnection());
+        assertNotNull(factory.getConnection());
+        assertTrue(factory.isInitialized());
+        assertEquals(1, created.get());
+        factory.close();
+    }
+
+    @Test
+    void warmUpOpensPooledConnections() throws Exception {
+        try (FakeMinioServer server = FakeMinioServer.start("/minio/health/live", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        })) {
+            MinioConnectionFactory factory = server.getFactory();
+            assertEquals(3, factory.warmUp(3, "/minio/health/live", Duration.ofSeconds(5)));
+            assertTrue(factory.getHttpClient().connectionPool().connectionCount() > 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package win.hgfdodo.minio.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinioExecutorTest {
+
+    @Test
+    void capConcurrency() throws InterruptedException {
+        MinioExecutor executor = new MinioExecutor(MinioExecutor.Mode.VIRTUAL, 8, 8, 100, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+        executor.close();
+    }
+
+    @Test
+    void growToMaxPoolSizeBeforeQueueing() throws InterruptedException {
+        MinioExecutor executor = new MinioExecutor(MinioExecutor.Mode.PLATFORM, 1, 4, 100, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(4, executor.getPoolSize());
+        assertEquals(4, executor.getActiveCount());
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    void rejectWhenQueueFull() throws InterruptedException {
+        MinioExecutor executor = new MinioExecutor(MinioExecutor.Mode.PLATFORM, 1, 1, 1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        executor.execute(() -> {
+        });
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+        executor.close();
+    }
+}
@@ -0,0 +1,148 @@
+package win.hgfdodo.minio.presign;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.errors.InvalidExpiresRangeException;
+import io.minio.http.Method;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresignerTest {
+    private final static String ENDPOINT = "http://127.0.0.1:9000";
+
+    private final MinioClient client = MinioClient.builder().endpoint(ENDPOINT).region("us-east-1").credentials("access", "secret").build();
+
+    private static String amzDate(String url) {
+        int start = url.indexOf("X-Amz-Date=") + "X-Amz-Date=".length();
+        return url.substring(start, url.indexOf('&', start));
+    }
+
+    private void assertSameAsSdk(Method method, String objectName, String versionId) throws Exception {
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", "us-east-1", 0);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            String expected = client.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method).bucket("bucket").object(objectName).versionId(versionId).expiry(3600).build());
+            String actual = presigner.presign(method, "bucket", objectName, versionId, 3600);
+            if (amzDate(expected).equals(amzDate(actual))) {
+                assertEquals(expected, actual);
+                return;
+            }
+        }
+        fail("signing time kept changing");
+    }
+
+    @Test
+    void signsLikeSdk() throws Exception {
+        assertSameAsSdk(Method.GET, "a.txt", null);
+        assertSameAsSdk(Method.GET, "dir/a b+c~*(1).txt", null);
+        assertSameAsSdk(Method.GET, "中文/图片.jpg", null);
+        assertSameAsSdk(Method.GET, "/leading//double/", null);
+        assertSameAsSdk(Method.PUT, "upload.bin", null);
+        assertSameAsSdk(Method.GET, "a.txt", "3f2b-1a/v=1");
+    }
+
+    @Test
+    void reusesUrlWhileHalfOfLifetimeIsLeft() throws Exception {
+        MutableClock clock = new MutableClock();
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", null, 100, clock);
+        String url = presigner.presign(Method.GET, "bucket", "a.txt", null, 3600);
+        clock.advance(1799_000);
+        assertSame(url, presigner.presign(Method.GET, "bucket", "a.txt", null, 3600));
+        assertNotEquals(url, presigner.presign(Method.GET, "bucket", "a.txt", null, 600));
+        assertEquals(1, presigner.getCacheHitCount());
+
+        clock.advance(1000);
+        assertNotEquals(url, presigner.presign(Method.GET, "bucket", "a.txt", null, 3600));
+        assertEquals(3, presigner.getSignedCount());
+    }
+
+    @Test
+    void derivesSigningKeyOncePerDay() throws Exception {
+        MutableClock clock = new MutableClock();
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", null, 0, clock);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("images/" + i + ".jpg");
+        }
+        Map<String, String> urls = presigner.presignAll("bucket", names, 3600);
+        assertEquals(names, new ArrayList<>(urls.keySet()));
+        assertEquals(urls.get("images/7.jpg"), presigner.presign(Method.GET, "bucket", "images/7.jpg", null, 3600));
+        assertEquals(1, presigner.getKeyDerivationCount());
+
+        clock.advance(24 * 3600 * 1000L);
+        presigner.presign(Method.GET, "bucket", "images/7.jpg", null, 3600);
+        assertEquals(2, presigner.getKeyDerivationCount());
+    }
+
+    @Test
+    void bulkSigningUsesUrlCache() throws Exception {
+        MutableClock clock = new MutableClock();
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", null, 100, clock);
+        String url = presigner.presign(Method.GET, "bucket", "b.txt", null, 3600);
+        clock.advance(1000);
+        Map<String, String> urls = presigner.presignAll("bucket", Arrays.asList("a.txt", "b.txt"), 3600);
+        assertSame(url, urls.get("b.txt"));
+        assertEquals(2, presigner.getSignedCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUrl() throws Exception {
+        MutableClock clock = new MutableClock();
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", null, 2, clock);
+        String a = presigner.presign(Method.GET, "bucket", "a.txt", null, 3600);
+        presigner.presign(Method.GET, "bucket", "b.txt", null, 3600);
+        assertSame(a, presigner.presign(Method.GET, "bucket", "a.txt", null, 3600));
+        presigner.presign(Method.GET, "bucket", "c.txt", null, 3600);
+        assertEquals(2, presigner.getCachedUrlCount());
+
+        assertSame(a, presigner.presign(Method.GET, "bucket", "a.txt", null, 3600));
+        presigner.presign(Method.GET, "bucket", "b.txt", null, 3600);
+        assertEquals(4, presigner.getSignedCount());
+        assertEquals(2, presigner.getCacheHitCount());
+    }
+
+    @Test
+    void rejectsInvalidExpiry() {
+        Presigner presigner = new Presigner(ENDPOINT, "access", "secret", null);
+        assertThrows(InvalidExpiresRangeException.class, () -> presigner.presign(Method.GET, "bucket", "a", null, 0));
+        assertThrows(InvalidExpiresRangeException.class, () -> presigner.presignAll("bucket", Arrays.asList("a"), 8 * 24 * 3600));
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis = Instant.parse("2024-01-01T10:00:00Z").toEpochMilli();
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
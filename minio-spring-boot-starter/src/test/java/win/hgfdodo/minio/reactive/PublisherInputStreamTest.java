@@ -0,0 +1,39 @@
+package win.hgfdodo.minio.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PublisherInputStreamTest {
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private DataBuffer buffer(String s) {
+        return bufferFactory.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readAllBuffers() throws IOException {
+        Flux<DataBuffer> content = Flux.range(0, 100).map(i -> buffer(i + ","));
+        try (PublisherInputStream in = new PublisherInputStream(content, 2)) {
+            String text = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+            assertEquals(100, text.split(",").length);
+            assertEquals("0,1,2,", text.substring(0, 6));
+        }
+    }
+
+    @Test
+    void propagateUpstreamError() {
+        Flux<DataBuffer> content = Flux.concat(Flux.just(buffer("abc")), Flux.error(new IllegalStateException("broken")));
+        PublisherInputStream in = new PublisherInputStream(content, 1);
+        assertThrows(IOException.class, () -> StreamUtils.copyToByteArray(in));
+    }
+}
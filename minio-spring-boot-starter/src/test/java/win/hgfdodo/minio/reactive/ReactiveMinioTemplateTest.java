@@ -0,0 +1,151 @@
+package win.hgfdodo.minio.reactive;
+
+import io.minio.ObjectWriteResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.StreamUtils;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import win.hgfdodo.minio.executor.MinioExecutor;
+import win.hgfdodo.minio.service.MinioTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static reactor.core.scheduler.Schedulers.fromExecutor;
+
+class ReactiveMinioTemplateTest {
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private final MinioExecutor executor = new MinioExecutor(2, 2, 10);
+    private final byte[] content = new byte[1000];
+    private final AtomicReference<String> thread = new AtomicReference<>();
+    private final AtomicInteger read = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final CountDownLatch uploadStarted = new CountDownLatch(1);
+    private final CountDownLatch uploadFailed = new CountDownLatch(1);
+
+    private final MinioTemplate minioTemplate = new MinioTemplate(null) {
+        @Override
+        public InputStream getObject(String bucketName, String objectName) {
+            thread.set(Thread.currentThread().getName());
+            return new ByteArrayInputStream(content) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    int n = super.read(b, off, len);
+                    read.addAndGet(Math.max(n, 0));
+                    return n;
+                }
+
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+        }
+
+        @Override
+        public ObjectWriteResponse saveObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException {
+            thread.set(Thread.currentThread().getName());
+            uploadStarted.countDown();
+            try {
+                String text = StreamUtils.copyToString(stream, StandardCharsets.UTF_8);
+                return new ObjectWriteResponse(null, bucketName, null, objectName, text, null);
+            } catch (IOException e) {
+                uploadFailed.countDown();
+                throw e;
+            }
+        }
+    };
+
+    private final ReactiveMinioTemplate template = new ReactiveMinioTemplate(minioTemplate, fromExecutor(executor), bufferFactory, 10);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private DataBuffer buffer(String s) {
+        return bufferFactory.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void downloadsOnExecutor() {
+        new Random(7).nextBytes(content);
+        byte[] downloaded = DataBufferUtils.join(template.getObject("bucket", "a")).map(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            return bytes;
+        }).block();
+        assertArrayEquals(content, downloaded);
+        assertTrue(thread.get().startsWith("minio-io-"));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void downloadsOnlyRequestedBuffers() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(1);
+        BaseSubscriber<DataBuffer> subscriber = new BaseSubscriber<DataBuffer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(DataBuffer buffer) {
+                DataBufferUtils.release(buffer);
+                received.countDown();
+            }
+        };
+        template.getObject("bucket", "a").subscribe(subscriber);
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(10, read.get());
+        subscriber.dispose();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void uploadsOnExecutor() {
+        Flux<DataBuffer> upload = Flux.range(0, 100).map(i -> buffer(i + ","));
+        ObjectWriteResponse response = template.saveObject("bucket", "a", upload, "text/plain").block();
+        assertEquals(100, response.etag().split(",").length);
+        assertTrue(thread.get().startsWith("minio-io-"));
+    }
+
+    @Test
+    void failsUploadWhenContentFails() {
+        Flux<DataBuffer> upload = Flux.concat(Flux.just(buffer("abc")), Flux.error(new IllegalStateException("broken")));
+        Mono<ObjectWriteResponse> response = template.saveObject("bucket", "a", upload, "text/plain");
+        Throwable e = Exceptions.unwrap(assertThrows(RuntimeException.class, response::block));
+        assertTrue(e instanceof IOException);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void cancelsContentWhenUploadIsCancelled() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Flux<DataBuffer> upload = Flux.<DataBuffer>never().doOnCancel(cancelled::countDown);
+        Disposable disposable = template.saveObject("bucket", "a", upload, "text/plain").subscribe();
+        assertTrue(uploadStarted.await(5, TimeUnit.SECONDS));
+        disposable.dispose();
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        // the upload waiting for content fails instead of blocking its executor thread
+        assertTrue(uploadFailed.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,28 @@
+package win.hgfdodo.minio.resilience;
+
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.connection.MinioOperation;
+import win.hgfdodo.minio.exception.MinioCallNotPermittedException;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadInterceptorTest {
+
+    @Test
+    void rejectWhenTypeIsFull() throws Exception {
+        BulkheadInterceptor bulkhead = new BulkheadInterceptor(Collections.singletonMap(MinioOperation.Type.WRITE, 1), Duration.ZERO);
+        MinioOperation write = MinioOperation.write("putObject", "bucket", "object");
+        String result = bulkhead.intercept(write, outer -> {
+            assertThrows(MinioCallNotPermittedException.class, () -> bulkhead.intercept(write, inner -> "nested"));
+            // reads are not limited by the write bulkhead
+            return bulkhead.intercept(MinioOperation.read("getObject", "bucket", "object"), inner -> "ok");
+        });
+        assertEquals("ok", result);
+        assertEquals(1, bulkhead.getAvailable(MinioOperation.Type.WRITE));
+        assertEquals(1, bulkhead.getRejectedCount());
+    }
+}
@@ -0,0 +1,45 @@
+package win.hgfdodo.minio.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void openOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("node/read", 0.5, 4, 10, Duration.ofMinutes(1), 1);
+        breaker.onSuccess();
+        breaker.onError();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    void halfOpenProbes() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("node/read", 0.5, 1, 10, Duration.ofMillis(10), 2);
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(20);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(20);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,58 @@
+package win.hgfdodo.minio.resilience;
+
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HedgingInterceptorTest {
+
+    @Test
+    void hedgeWinsOverSlowPrimary() throws Exception {
+        try (HedgingInterceptor hedging = new HedgingInterceptor(0.95, Duration.ofMillis(20), Duration.ofMillis(1), 0.05)) {
+            MinioOperation primary = MinioOperation.read("getObject", "bucket", "object").hedgeable(true);
+            String result = hedging.intercept(primary, op -> {
+                if (op != primary) {
+                    return "hedge";
+                }
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!op.isCancelled() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                throw new IOException("Canceled");
+            });
+            assertEquals("hedge", result);
+            assertEquals(1, hedging.getHedgeCount());
+            assertEquals(1, hedging.getHedgeWinCount());
+        }
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() throws Exception {
+        try (HedgingInterceptor hedging = new HedgingInterceptor(0.95, Duration.ofMillis(200), Duration.ofMillis(1), 0.05)) {
+            AtomicInteger calls = new AtomicInteger();
+            for (int i = 0; i < 10; i++) {
+                hedging.intercept(MinioOperation.read("statObject", "bucket", "object").hedgeable(true), op -> calls.incrementAndGet());
+            }
+            assertEquals(10, calls.get());
+            assertEquals(0, hedging.getHedgeCount());
+            assertEquals(0, hedging.getHedgeRate());
+        }
+    }
+
+    @Test
+    void writesAreNotHedged() throws Exception {
+        try (HedgingInterceptor hedging = new HedgingInterceptor(0.95, Duration.ofMillis(1), Duration.ofMillis(1), 1)) {
+            String result = hedging.intercept(MinioOperation.write("putObject", "bucket", "object").hedgeable(true), op -> {
+                Thread.sleep(50);
+                return "primary";
+            });
+            assertEquals("primary", result);
+            assertEquals(0, hedging.getRequestCount());
+        }
+    }
+}
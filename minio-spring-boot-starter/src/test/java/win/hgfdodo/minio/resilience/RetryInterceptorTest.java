@@ -0,0 +1,97 @@
+package win.hgfdodo.minio.resilience;
+
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryInterceptorTest {
+
+    private RetryInterceptor retry(int maxAttempts, RetryBudget budget) {
+        return new RetryInterceptor(maxAttempts, Duration.ofMillis(1), Duration.ofMillis(2), budget);
+    }
+
+    @Test
+    void retryIdempotentRead() throws Exception {
+        RetryInterceptor retry = retry(3, new RetryBudget(0.1, 10));
+        AtomicInteger attempts = new AtomicInteger();
+        String result = retry.intercept(MinioOperation.read("getObject", "bucket", "object"), op -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new SocketException("Connection reset");
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, retry.getRetryCount());
+    }
+
+    @Test
+    void doNotRetryNonReplayableWrite() {
+        RetryInterceptor retry = retry(3, new RetryBudget(0.1, 10));
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(SocketException.class, () -> retry.intercept(MinioOperation.write("composeObject", "bucket", "object"), op -> {
+            attempts.incrementAndGet();
+            throw new SocketException("Connection reset");
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void replayUploadStream() throws Exception {
+        RetryInterceptor retry = retry(2, new RetryBudget(0.1, 10));
+        ByteArrayInputStream stream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        MinioOperation upload = MinioOperation.upload("putObject", "bucket", "object", stream, 3);
+        assertTrue(upload.isRepeatable());
+        AtomicInteger attempts = new AtomicInteger();
+        int first = retry.intercept(upload, op -> {
+            int b = stream.read();
+            stream.read();
+            if (attempts.incrementAndGet() == 1) {
+                throw new SocketException("Broken pipe");
+            }
+            return b;
+        });
+        assertEquals(1, first);
+    }
+
+    @Test
+    void markUploadStreamOnlyWhenReplayIsPrepared() throws Exception {
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        MinioOperation upload = MinioOperation.upload("putObject", "bucket", "object", stream, 3);
+        assertNull(upload.getReplay());
+        stream.read();
+        assertThrows(IOException.class, stream::reset);
+
+        upload.prepareReplay();
+        stream.read();
+        upload.getReplay().reset();
+        assertEquals(2, stream.read());
+    }
+
+    @Test
+    void stopWhenBudgetExhausted() {
+        RetryInterceptor retry = retry(5, new RetryBudget(0, 1));
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(SocketException.class, () -> retry.intercept(MinioOperation.read("statObject", "bucket", "object"), op -> {
+            attempts.incrementAndGet();
+            throw new SocketException("Connection refused");
+        }));
+        assertEquals(2, attempts.get());
+        assertEquals(1, retry.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void doNotRetryInterruption() {
+        assertFalse(RetryInterceptor.isRetryable(new InterruptedIOException()));
+        assertTrue(RetryInterceptor.isRetryable(new java.net.SocketTimeoutException()));
+    }
+}
@@ -0,0 +1,74 @@
+package win.hgfdodo.minio.resilience;
+
+import org.junit.jupiter.api.Test;
+import win.hgfdodo.minio.connection.MinioOperation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VegasLimiterTest {
+
+    private void callsWithLatency(VegasLimiter limiter, int concurrency, long rttNanos, int rounds) throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            for (int i = 0; i < concurrency && limiter.acquire(); i++) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.onSample(rttNanos, false);
+            }
+        }
+    }
+
+    @Test
+    void growWhileLatencyIsStable() throws InterruptedException {
+        VegasLimiter limiter = new VegasLimiter("read", 10, 1, 100, 0, 0);
+        callsWithLatency(limiter, 100, 1_000_000, 50);
+        assertTrue(limiter.getLimit() > 10, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void shrinkWhenLatencyGrows() throws InterruptedException {
+        VegasLimiter limiter = new VegasLimiter("read", 50, 1, 100, 0, 0);
+        callsWithLatency(limiter, 50, 1_000_000, 1);
+        int before = limiter.getLimit();
+        callsWithLatency(limiter, 50, 10_000_000, 20);
+        assertTrue(limiter.getLimit() < before, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void rejectWhenLimitReachedAndCutOnDrop() throws InterruptedException {
+        VegasLimiter limiter = new VegasLimiter("write", 2, 1, 10, 0, 0);
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+        assertEquals(1, limiter.getRejectedCount());
+        limiter.onSample(1_000_000, true);
+        limiter.release();
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    void uploadsDoNotSampleLatency() throws Exception {
+        VegasLimiter limiter = new VegasLimiter("write", 10, 1, 100, 0, 0);
+        AdaptiveLimitInterceptor interceptor = new AdaptiveLimitInterceptor(new VegasLimiter("read", 10, 1, 100, 0, 0), limiter);
+        interceptor.intercept(MinioOperation.write("removeObject", "bucket", "a"), operation -> null);
+        // a large body takes long to send on an idle server
+        for (int i = 0; i < 10; i++) {
+            interceptor.intercept(MinioOperation.upload("putObject", "bucket", "a", null, -1), operation -> {
+                Thread.sleep(20);
+                return null;
+            });
+        }
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+
+        for (int i = 0; i < 10; i++) {
+            interceptor.intercept(MinioOperation.write("removeObject", "bucket", "a"), operation -> {
+                Thread.sleep(20);
+                return null;
+            });
+        }
+        assertTrue(limiter.getLimit() < 10, "limit " + limiter.getLimit());
+    }
+}
@@ -0,0 +1,48 @@
+package win.hgfdodo.minio.transfer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelTransferTest {
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(3).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    void downloadsKnownSize(@TempDir Path dir) throws Exception {
+        byte[] content = content(300 * 1024 + 17);
+        Path file = dir.resolve("sub/object");
+        assertEquals(content.length, ChannelTransfer.download(new ByteArrayInputStream(content), file, content.length, FsyncPolicy.DATA));
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertFalse(Files.exists(dir.resolve("sub/object.part.minio")));
+    }
+
+    @Test
+    void downloadsUnknownSize(@TempDir Path dir) throws Exception {
+        byte[] content = content(100 * 1024 + 5);
+        Path file = dir.resolve("object");
+        Files.write(file, new byte[1024 * 1024]);
+        assertEquals(content.length, ChannelTransfer.download(new ByteArrayInputStream(content), file, -1, FsyncPolicy.NONE));
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    void shortStreamKeepsExistingFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("object");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(EOFException.class, () -> ChannelTransfer.download(new ByteArrayInputStream(content(10)), file, 20, FsyncPolicy.ALL));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+        assertFalse(Files.exists(dir.resolve("object.part.minio")));
+    }
+}
@@ -0,0 +1,158 @@
+package win.hgfdodo.minio.transfer;
+
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import win.hgfdodo.minio.FakeMinioServer;
+import win.hgfdodo.minio.connection.MinioConnectionFactory;
+import win.hgfdodo.minio.exception.ObjectModifiedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static win.hgfdodo.minio.FakeMinioServer.readAll;
+
+class ParallelDownloaderTest {
+    private final static int PART = 64 * 1024;
+
+    private final byte[] content = new byte[5 * PART + 1234];
+    private final AtomicInteger gets = new AtomicInteger();
+    private volatile String etag = "abc";
+    private volatile int changeEtagAfterGets = Integer.MAX_VALUE;
+    private volatile int failOffset = -1;
+
+    private FakeMinioServer server;
+    private ExecutorService executor;
+    private MinioConnectionFactory factory;
+
+    @BeforeEach
+    void start() throws IOException {
+        new Random(7).nextBytes(content);
+        server = FakeMinioServer.start("/bucket/object", this::handle);
+        factory = server.getFactory();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    void splitsIntoRanges() {
+        ParallelDownloader downloader = new ParallelDownloader(factory, executor, PART, 4, 2, 3);
+        assertEquals(0, downloader.split(0).size());
+        assertEquals(6, downloader.split(content.length).size());
+        assertArrayEquals(new long[]{5L * PART, 1234}, downloader.split(content.length).get(5));
+    }
+
+    @Test
+    void downloadsRangesIntoFile(@TempDir Path dir) throws Exception {
+        ParallelDownloader downloader = new ParallelDownloader(factory, executor, PART, 4, 2, 3);
+        Path file = dir.resolve("object");
+        assertEquals(content.length, downloader.download("bucket", "object", file).length());
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(6, gets.get());
+    }
+
+    @Test
+    void streamsRangesInOrder() throws Exception {
+        ParallelDownloader downloader = new ParallelDownloader(factory, executor, PART, 4, 2, 3);
+        assertArrayEquals(content, readAll(downloader.openStream("bucket", "object")));
+    }
+
+    @Test
+    void overwriteDuringDownloadFails(@TempDir Path dir) throws Exception {
+        changeEtagAfterGets = 2;
+        ParallelDownloader downloader = new ParallelDownloader(factory, executor, PART, 1, 2, 3);
+        Path file = dir.resolve("object");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(ObjectModifiedException.class, () -> downloader.download("bucket", "object", file));
+        // the previous file is kept, the partial download is removed
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void resumesFromCheckpoint(@TempDir Path dir) throws Exception {
+        ParallelDownloader downloader = new ParallelDownloader(factory, executor, PART, 1, 2, 1);
+        Path file = dir.resolve("object");
+        failOffset = 3 * PART;
+        assertThrows(ErrorResponseException.class, () -> downloader.downloadResumable("bucket", "object", null, file));
+        assertFalse(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("object.part")));
+        assertEquals("0-2", DownloadCheckpoint.format(DownloadCheckpoint.load(dir.resolve("object.part.checkpoint")).completed()));
+
+        failOffset = -1;
+        gets.set(0);
+        downloader.downloadResumable("bucket", "object", null, file);
+        assertEquals(3, gets.get());
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertFalse(Files.exists(dir.resolve("object.part")));
+        assertFalse(Files.exists(dir.resolve("object.part.checkpoint")));
+    }
+
+    @Test
+    void changedObjectIsDownloadedAgain(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("object");
+        Files.write(dir.resolve("object.part"), new byte[content.length]);
+        DownloadCheckpoint stale = new DownloadCheckpoint(dir.resolve("object.part.checkpoint"), "old", null, content.length, PART);
+        for (int i = 0; i < 6; i++) {
+            stale.complete(i);
+        }
+        new ParallelDownloader(factory, executor, PART, 4, 2, 1).downloadResumable("bucket", "object", null, file);
+        assertEquals(6, gets.get());
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    void checkpointWithoutEtagIsNotResumed(@TempDir Path dir) throws Exception {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(dir.resolve("object.part.checkpoint"), null, null, content.length, PART);
+        checkpoint.complete(0);
+        DownloadCheckpoint loaded = DownloadCheckpoint.load(dir.resolve("object.part.checkpoint"));
+        assertEquals("0", DownloadCheckpoint.format(loaded.completed()));
+        assertFalse(loaded.matches(null, null, content.length, PART));
+    }
+
+    @Test
+    void formatsCompletedRanges() {
+        assertEquals("0-2,5,7-8", DownloadCheckpoint.format(DownloadCheckpoint.parse("0-2,5,7-8")));
+        assertEquals("", DownloadCheckpoint.format(DownloadCheckpoint.parse("")));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Last-Modified", FakeMinioServer.LAST_MODIFIED);
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+            FakeMinioServer.answerHead(exchange, content.length);
+            return;
+        }
+        if (gets.incrementAndGet() > changeEtagAfterGets) {
+            etag = "changed";
+        }
+        if (FakeMinioServer.rejectIfNotMatch(exchange, etag)) {
+            return;
+        }
+        int[] range = FakeMinioServer.range(exchange, content.length);
+        if (range[0] == failOffset) {
+            FakeMinioServer.sendError(exchange, 500, "InternalError", "We encountered an internal error, please try again.");
+            return;
+        }
+        exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+        FakeMinioServer.sendContent(exchange, content, range);
+    }
+}
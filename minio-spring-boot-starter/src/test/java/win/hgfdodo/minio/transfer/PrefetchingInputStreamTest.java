@@ -0,0 +1,137 @@
+package win.hgfdodo.minio.transfer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetchingInputStreamTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final byte[] content = new byte[100_000];
+
+    {
+        new Random(5).nextBytes(content);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void readsRangesInOrder() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        try (InputStream in = new PrefetchingInputStream((offset, length) -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(content, (int) offset, (int) length);
+        }, content.length, executor, 30_000, 4096, 4)) {
+            assertArrayEquals(content, readAll(in));
+            assertEquals(-1, in.read());
+        }
+        assertEquals(4, opened.get());
+    }
+
+    @Test
+    void resumesAfterNetworkError() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        try (InputStream in = new PrefetchingInputStream((offset, length) -> {
+            InputStream range = new ByteArrayInputStream(content, (int) offset, (int) length);
+            if (offset == 0 && failures.getAndIncrement() == 0) {
+                return new InputStream() {
+                    private int read;
+
+                    @Override
+                    public int read() throws IOException {
+                        if (++read > 5000) {
+                            throw new SocketTimeoutException("read timed out");
+                        }
+                        return range.read();
+                    }
+                };
+            }
+            return range;
+        }, content.length, executor, 30_000, 1024, 4)) {
+            assertArrayEquals(content, readAll(in));
+        }
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    void reportsSourceFailure() {
+        InputStream in = new PrefetchingInputStream((offset, length) -> {
+            throw new IllegalStateException("no such object");
+        }, content.length, executor, 30_000, 1024, 4);
+        IOException error = assertThrows(IOException.class, () -> readAll(in));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void readsAheadOnlyIntoItsBuffers() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        InputStream in = new PrefetchingInputStream((offset, length) -> new InputStream() {
+            private long position = offset;
+
+            @Override
+            public int read() {
+                served.incrementAndGet();
+                return position < offset + length ? content[(int) position++] & 0xFF : -1;
+            }
+        }, content.length, executor, 30_000, 1000, 4);
+        byte[] first = new byte[10];
+        assertEquals(10, in.read(first));
+        assertArrayEquals(Arrays.copyOf(content, 10), first);
+        TimeUnit.MILLISECONDS.sleep(200);
+        // one buffer held by the consumer, four filled ahead
+        assertTrue(served.get() <= 5000, "served " + served.get());
+        in.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stopsReadingAheadForAbandonedStream() throws Exception {
+        InputStream in = new PrefetchingInputStream((offset, length) -> new ByteArrayInputStream(content, (int) offset, (int) length),
+                content.length, executor, 30_000, 1000, 4, Duration.ofMillis(200));
+        assertEquals(content[0] & 0xFF, in.read());
+        executor.shutdown();
+        // the reader gives up while the consumer holds its buffers
+        assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+        byte[] buffer = new byte[1000];
+        int reads = 0;
+        IOException error = null;
+        try {
+            while (in.read(buffer) != -1) {
+                reads++;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        assertNotNull(error);
+        // only the buffers filled before the reader stopped
+        assertTrue(reads <= 4, "reads " + reads);
+        in.close();
+    }
+}